@@ -2,7 +2,6 @@
 public class Book extends LibraryItem {
     private String author;
     private String isbn;
-    private static final double DAILY_LATE_FEE = 1.00;
 
     public Book(String title, String id, String author, String isbn) {
         super(title, id);
@@ -10,8 +9,12 @@ public class Book extends LibraryItem {
         this.isbn = isbn;
     }
 
+    public String getAuthor() { return author; }
+
+    public String getIsbn() { return isbn; }
+
     @Override
-    public double calculateLateFee(int daysLate) {
-        return daysLate * DAILY_LATE_FEE;
+    public ItemType getType() {
+        return ItemType.BOOK;
     }
 }
\ No newline at end of file
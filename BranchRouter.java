@@ -0,0 +1,202 @@
+/**
+ * BranchRouter - Routes Circulation Requests to the Branch Owning Each Item
+ *
+ * This class is the front door of a multi-branch deployment. It resolves an
+ * item id to the BranchShard that holds the item, sends the request over a
+ * ShardTransport and turns the reply back into the usual BorrowResult.
+ *
+ * Routing (first match wins):
+ * - Per-item overrides, set when an item is transferred between branches
+ *   or learned from a MOVED reply
+ * - Branch prefixes: routePrefix("NORTH-", 1) keeps a branch's items
+ *   together; the longest matching prefix wins
+ * - Otherwise the id's hash modulo the number of branches
+ *
+ * Members have a home branch chosen by hash of the member id. Their loans
+ * live on the branches of the items they borrowed, so getLoans() and
+ * outstandingFeesCents() ask every branch in parallel and combine the
+ * answers.
+ *
+ * Transfers move an AVAILABLE item with no waiting holds: the source marks
+ * it TRANSFERRED and hands over a copy, the target shelves it, the override
+ * is updated, and the source starts answering MOVED. While the item is in
+ * transit it is simply UNAVAILABLE; a router that still sends requests to
+ * the old branch afterwards follows the MOVED reply to the new one.
+ */
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// BranchRouter class to route requests across branch shards
+public class BranchRouter {
+    static final int MAX_REDIRECTS = 4;
+
+    private final ShardTransport transport;
+    private final Map<String, Integer> itemOverrides = new ConcurrentHashMap<>();
+    // Branch prefixes, longest first
+    private final List<Map.Entry<String, Integer>> prefixRoutes = new CopyOnWriteArrayList<>();
+
+    public BranchRouter(ShardTransport transport) {
+        this.transport = transport;
+    }
+
+    public int shardCount() {
+        return transport.shardCount();
+    }
+
+    // Sends every item whose id starts with the prefix to the given branch
+    public synchronized void routePrefix(String prefix, int shard) {
+        checkShard(shard);
+        List<Map.Entry<String, Integer>> routes = new ArrayList<>(prefixRoutes);
+        routes.removeIf(route -> route.getKey().equals(prefix));
+        routes.add(Map.entry(prefix, shard));
+        routes.sort(Comparator.comparingInt((Map.Entry<String, Integer> route) -> route.getKey().length()).reversed());
+        prefixRoutes.clear();
+        prefixRoutes.addAll(routes);
+    }
+
+    // Branch that holds the item
+    public int shardOfItem(String itemId) {
+        Integer shard = itemOverrides.get(itemId);
+        if (shard != null) {
+            return shard;
+        }
+        for (Map.Entry<String, Integer> route : prefixRoutes) {
+            if (itemId.startsWith(route.getKey())) {
+                return route.getValue();
+            }
+        }
+        return Math.floorMod(itemId.hashCode(), transport.shardCount());
+    }
+
+    public int shardOfMember(String memberId) {
+        return Math.floorMod(memberId.hashCode(), transport.shardCount());
+    }
+
+    // Returns false if the id is already taken at its branch
+    public boolean addItem(LibraryItem item) {
+        return call(item.getId(), BranchShard.Request.item(BranchShard.Op.ADD_ITEM, item)).status
+            == BranchShard.Status.OK;
+    }
+
+    // Registers the member at their home branch; returns false if already registered
+    public boolean addMember(Member member) {
+        BranchShard.Request request = BranchShard.Request.member(BranchShard.Op.ADD_MEMBER, member);
+        return transport.send(shardOfMember(member.getMemberId()), request).join().status == BranchShard.Status.OK;
+    }
+
+    public LibraryItem findItem(String itemId) {
+        return (LibraryItem) call(itemId, BranchShard.Request.findItem(itemId)).value;
+    }
+
+    public CirculationService.BorrowResult borrow(Member member, String itemId) {
+        return borrowResult(call(itemId, BranchShard.Request.memberItem(BranchShard.Op.BORROW, member, itemId)));
+    }
+
+    public CirculationService.BorrowResult placeHold(Member member, String itemId) {
+        return borrowResult(call(itemId, BranchShard.Request.memberItem(BranchShard.Op.PLACE_HOLD, member, itemId)));
+    }
+
+    // The closed loan, or null if the member did not have the item
+    public Loan returnItem(Member member, String itemId) {
+        return (Loan) call(itemId, BranchShard.Request.memberItem(BranchShard.Op.RETURN, member, itemId)).value;
+    }
+
+    // The member's open loans at every branch
+    @SuppressWarnings("unchecked")
+    public List<Loan> getLoans(Member member) {
+        List<Loan> loans = new ArrayList<>();
+        for (BranchShard.Reply reply : broadcast(BranchShard.Request.member(BranchShard.Op.LOANS, member))) {
+            loans.addAll((List<Loan>) reply.value);
+        }
+        return loans;
+    }
+
+    public long outstandingFeesCents(Member member) {
+        long total = 0;
+        for (BranchShard.Reply reply : broadcast(BranchShard.Request.member(BranchShard.Op.FEES, member))) {
+            total += (Long) reply.value;
+        }
+        return total;
+    }
+
+    /**
+     * Moves an AVAILABLE item nobody is waiting for to another branch.
+     * Returns false if the item is missing, lent, held, or already there.
+     * Transfers of one item must not run concurrently with each other.
+     */
+    public boolean transfer(String itemId, int toShard) {
+        checkShard(toShard);
+        int from = shardOfItem(itemId);
+        if (from == toShard) {
+            return false;
+        }
+        BranchShard.Reply out = call(itemId,
+            BranchShard.Request.transfer(BranchShard.Op.TRANSFER_OUT, itemId, toShard));
+        if (out.status != BranchShard.Status.OK) {
+            return false;
+        }
+        from = shardOfItem(itemId); // call() may have followed a MOVED reply
+        LibraryItem item = (LibraryItem) out.value;
+        BranchShard.Request in = BranchShard.Request.item(BranchShard.Op.TRANSFER_IN, item);
+        if (transport.send(toShard, in).join().status != BranchShard.Status.OK) {
+            // The target already has a live item with this id: put it back on the source shelf
+            transport.send(from, BranchShard.Request.item(BranchShard.Op.TRANSFER_IN, item)).join();
+            return false;
+        }
+        itemOverrides.put(itemId, toShard);
+        transport.send(from, BranchShard.Request.transfer(BranchShard.Op.TRANSFER_DONE, itemId, toShard)).join();
+        return true;
+    }
+
+    // Sends an item request to its branch, following MOVED replies
+    private BranchShard.Reply call(String itemId, BranchShard.Request request) {
+        BranchShard.Reply reply = null;
+        for (int attempt = 0; attempt <= MAX_REDIRECTS; attempt++) {
+            reply = transport.send(shardOfItem(itemId), request).join();
+            if (reply.status != BranchShard.Status.MOVED) {
+                return reply;
+            }
+            itemOverrides.put(itemId, reply.movedTo);
+        }
+        // Still moving after several hops (a transfer is in flight)
+        return BranchShard.Reply.of(BranchShard.Status.UNAVAILABLE);
+    }
+
+    // Sends the request to every branch at once and waits for all replies
+    private List<BranchShard.Reply> broadcast(BranchShard.Request request) {
+        List<CompletableFuture<BranchShard.Reply>> pending = new ArrayList<>();
+        for (int shard = 0; shard < transport.shardCount(); shard++) {
+            pending.add(transport.send(shard, request));
+        }
+        List<BranchShard.Reply> replies = new ArrayList<>(pending.size());
+        for (CompletableFuture<BranchShard.Reply> reply : pending) {
+            replies.add(reply.join());
+        }
+        return replies;
+    }
+
+    private static CirculationService.BorrowResult borrowResult(BranchShard.Reply reply) {
+        switch (reply.status) {
+            case OK:
+                return CirculationService.BorrowResult.BORROWED;
+            case HELD:
+                return CirculationService.BorrowResult.HELD;
+            case UNAVAILABLE:
+                return CirculationService.BorrowResult.UNAVAILABLE;
+            default:
+                return CirculationService.BorrowResult.NOT_FOUND;
+        }
+    }
+
+    private void checkShard(int shard) {
+        if (shard < 0 || shard >= transport.shardCount()) {
+            throw new IllegalArgumentException("No branch " + shard + " (have " + transport.shardCount() + ")");
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/**
+ * BranchShard - One Branch's Partition of the Catalog and Its Loans
+ *
+ * This class is one node of a multi-branch deployment: it owns a slice of
+ * the items (chosen by BranchRouter), the loans on those items and the
+ * members registered at the branch, and serves requests sent to it through
+ * a ShardTransport.
+ *
+ * Key Features:
+ * - A private CirculationEngine, Catalog and MemberRegistry per branch, so
+ *   branches share no locks, indexes or caches
+ * - A single executor thread per branch runs every request in arrival
+ *   order; a transfer can therefore never interleave with a borrow of the
+ *   same item
+ * - Members borrowing from another branch are registered here as visitors
+ *   the first time they borrow; their loans at this branch live here
+ * - Items in transit stay here as TRANSFERRED (borrows see UNAVAILABLE);
+ *   once the target has them they answer MOVED with their new branch, so a
+ *   router with a stale routing table learns the new location
+ *
+ * Requests and replies are plain values (ids, names, items, loans), so a
+ * socket transport between JVMs would only need to encode these fields.
+ */
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+// BranchShard class to serve one branch's items, members and loans
+public class BranchShard implements AutoCloseable {
+
+    public enum Op {
+        ADD_ITEM,
+        ADD_MEMBER,
+        FIND_ITEM,
+        BORROW,
+        RETURN,
+        PLACE_HOLD,
+        LOANS,
+        FEES,
+        TRANSFER_OUT,
+        TRANSFER_IN,
+        TRANSFER_DONE
+    }
+
+    public enum Status {
+        OK,
+        NOT_FOUND,
+        UNAVAILABLE,
+        HELD,
+        MOVED
+    }
+
+    // One request to a branch; unused fields are null
+    public static final class Request {
+        final Op op;
+        final String memberId;
+        final String memberName;
+        final String itemId;
+        final LibraryItem item;
+        final int targetShard;
+
+        private Request(Op op, String memberId, String memberName, String itemId, LibraryItem item,
+        int targetShard) {
+            this.op = op;
+            this.memberId = memberId;
+            this.memberName = memberName;
+            this.itemId = itemId;
+            this.item = item;
+            this.targetShard = targetShard;
+        }
+
+        static Request item(Op op, LibraryItem item) {
+            return new Request(op, null, null, item.getId(), item, -1);
+        }
+
+        static Request member(Op op, Member member) {
+            return new Request(op, member.getMemberId(), member.getName(), null, null, -1);
+        }
+
+        static Request memberItem(Op op, Member member, String itemId) {
+            return new Request(op, member.getMemberId(), member.getName(), itemId, null, -1);
+        }
+
+        static Request findItem(String itemId) {
+            return new Request(Op.FIND_ITEM, null, null, itemId, null, -1);
+        }
+
+        static Request transfer(Op op, String itemId, int targetShard) {
+            return new Request(op, null, null, itemId, null, targetShard);
+        }
+    }
+
+    // Outcome of a request; value is the item, loan list or fee total asked for
+    public static final class Reply {
+        final Status status;
+        final Object value;
+        final int movedTo;
+
+        private Reply(Status status, Object value, int movedTo) {
+            this.status = status;
+            this.value = value;
+            this.movedTo = movedTo;
+        }
+
+        static Reply of(Status status) {
+            return new Reply(status, null, -1);
+        }
+
+        static Reply ok(Object value) {
+            return new Reply(Status.OK, value, -1);
+        }
+
+        static Reply moved(int shard) {
+            return new Reply(Status.MOVED, null, shard);
+        }
+
+        public Status getStatus() { return status; }
+
+        public Object getValue() { return value; }
+
+        public int getMovedTo() { return movedTo; }
+    }
+
+    private final int index;
+    private final CirculationEngine engine;
+    private final ExecutorService executor;
+    // Items transferred away and the branch they went to; only used on the executor thread
+    private final Map<String, Integer> movedTo = new HashMap<>();
+
+    public BranchShard(int index, int expectedItems) {
+        this.index = index;
+        this.engine = new CirculationEngine(new Catalog(expectedItems), new MemberRegistry());
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "branch-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    // The branch's engine, for local reports; requests should go through submit()
+    public CirculationEngine getEngine() {
+        return engine;
+    }
+
+    // Queues the request on this branch's thread
+    public CompletableFuture<Reply> submit(Request request) {
+        try {
+            return CompletableFuture.supplyAsync(() -> handle(request), executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<Reply> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalStateException("Branch " + index + " is closed"));
+            return failed;
+        }
+    }
+
+    private Reply handle(Request request) {
+        if (request.itemId != null && request.op != Op.TRANSFER_IN) {
+            Integer shard = movedTo.get(request.itemId);
+            if (shard != null) {
+                return Reply.moved(shard);
+            }
+        }
+        switch (request.op) {
+            case ADD_ITEM:
+                return Reply.of(engine.getCatalog().add(request.item) ? Status.OK : Status.UNAVAILABLE);
+            case ADD_MEMBER:
+                return Reply.of(engine.getMemberRegistry().add(new Member(request.memberId, request.memberName))
+                    ? Status.OK : Status.UNAVAILABLE);
+            case FIND_ITEM: {
+                LibraryItem item = engine.findItem(request.itemId);
+                return item == null ? Reply.of(Status.NOT_FOUND) : Reply.ok(item);
+            }
+            case BORROW:
+                return borrowResult(engine.borrow(visitor(request), request.itemId));
+            case PLACE_HOLD:
+                return borrowResult(engine.placeHold(visitor(request), request.itemId));
+            case RETURN: {
+                Member member = engine.findMember(request.memberId);
+                Loan loan = member == null ? null : engine.returnItem(member, request.itemId);
+                return loan == null ? Reply.of(Status.NOT_FOUND) : Reply.ok(loan);
+            }
+            case LOANS: {
+                Member member = engine.findMember(request.memberId);
+                return Reply.ok(member == null ? Collections.<Loan>emptyList() : new ArrayList<>(member.getLoans()));
+            }
+            case FEES: {
+                Member member = engine.findMember(request.memberId);
+                return Reply.ok(member == null ? 0L : engine.outstandingFeesCents(member, LocalDate.now()));
+            }
+            case TRANSFER_OUT: {
+                if (!engine.transferOut(request.itemId)) {
+                    return Reply.of(engine.findItem(request.itemId) == null ? Status.NOT_FOUND : Status.UNAVAILABLE);
+                }
+                return Reply.ok(copyOf(engine.findItem(request.itemId)));
+            }
+            case TRANSFER_DONE:
+                // The target has shelved the item; from now on redirect to it
+                movedTo.put(request.itemId, request.targetShard);
+                return Reply.of(Status.OK);
+            case TRANSFER_IN:
+                if (!engine.transferIn(request.item)) {
+                    return Reply.of(Status.UNAVAILABLE);
+                }
+                movedTo.remove(request.itemId);
+                return Reply.of(Status.OK);
+            default:
+                throw new IllegalArgumentException("Unknown op " + request.op);
+        }
+    }
+
+    // The member as known at this branch, registered on first visit
+    private Member visitor(Request request) {
+        Member member = engine.findMember(request.memberId);
+        if (member == null) {
+            engine.getMemberRegistry().add(new Member(request.memberId, request.memberName));
+            member = engine.findMember(request.memberId);
+        }
+        return member;
+    }
+
+    private static Reply borrowResult(CirculationService.BorrowResult result) {
+        switch (result) {
+            case BORROWED:
+                return Reply.of(Status.OK);
+            case HELD:
+                return Reply.of(Status.HELD);
+            case UNAVAILABLE:
+                return Reply.of(Status.UNAVAILABLE);
+            default:
+                return Reply.of(Status.NOT_FOUND);
+        }
+    }
+
+    // A fresh item for the receiving branch; an item belongs to one Catalog
+    static LibraryItem copyOf(LibraryItem item) {
+        if (item instanceof Book) {
+            Book book = (Book) item;
+            return new Book(book.getTitle(), book.getId(), book.getAuthor(), book.getIsbn());
+        } else if (item instanceof Magazine) {
+            return new Magazine(item.getTitle(), item.getId(), ((Magazine) item).getIssueNumber());
+        } else if (item instanceof DVD) {
+            return new DVD(item.getTitle(), item.getId(), ((DVD) item).getDirector());
+        }
+        throw new IllegalArgumentException("Cannot transfer " + item.getClass().getSimpleName());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
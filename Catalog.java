@@ -0,0 +1,336 @@
+/**
+ * Catalog - Indexed Store of Library Items
+ *
+ * This class owns every LibraryItem in the system and replaces the linear
+ * findItem() scan that MainLMS used to perform over a plain List.
+ *
+ * Key Features:
+ * - O(1) lookup by item id (hash index)
+ * - Secondary indexes by ItemType and ItemStatus
+ * - Id-ordered status index for paginated "available items" listings
+ * - Bulk loading with a pre-sized primary index
+ * - Optional SearchIndex that is updated as items are added
+ *
+ * Index Maintenance:
+ * - Items are attached to the catalog when added, and LibraryItem.setStatus()
+ *   reports every status change back so the status index never goes stale
+ * - Listing a page costs O(log n + page size), independent of catalog size,
+ *   and a per-status counter gives the listing's row count in O(1)
+ * - Bulk status changes (journal recovery) can pause the status index and
+ *   rebuild it afterwards in one linear, id-ordered pass
+ */
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Catalog class to index library items by id, type and status
+public class Catalog {
+    private final Map<String, LibraryItem> itemsById;
+    private final Map<LibraryItem.ItemType, Set<LibraryItem>> itemsByType =
+        new EnumMap<>(LibraryItem.ItemType.class);
+    private final Map<LibraryItem.ItemStatus, NavigableMap<String, LibraryItem>> itemsByStatus =
+        new EnumMap<>(LibraryItem.ItemStatus.class);
+    private final Map<LibraryItem.ItemStatus, AtomicInteger> statusCounts =
+        new EnumMap<>(LibraryItem.ItemStatus.class);
+    private final SearchIndex searchIndex;
+    private volatile boolean statusIndexPaused;
+
+    public Catalog() {
+        this(16);
+    }
+
+    public Catalog(int expectedSize) {
+        this(expectedSize, null);
+    }
+
+    // A catalog whose items are also full-text indexed (searchIndex may be null)
+    public Catalog(int expectedSize, SearchIndex searchIndex) {
+        this.itemsById = new ConcurrentHashMap<>(expectedSize);
+        this.searchIndex = searchIndex;
+        for (LibraryItem.ItemType type : LibraryItem.ItemType.values()) {
+            itemsByType.put(type, ConcurrentHashMap.newKeySet());
+        }
+        for (LibraryItem.ItemStatus status : LibraryItem.ItemStatus.values()) {
+            itemsByStatus.put(status, new ConcurrentSkipListMap<>());
+            statusCounts.put(status, new AtomicInteger());
+        }
+    }
+
+    // Adds an item to every index; returns false if the id is already taken
+    public boolean add(LibraryItem item) {
+        if (itemsById.putIfAbsent(item.getId(), item) != null) {
+            return false;
+        }
+        itemsByType.get(item.getType()).add(item);
+        itemsByStatus.get(item.getStatus()).put(item.getId(), item);
+        statusCounts.get(item.getStatus()).incrementAndGet();
+        item.attachTo(this);
+        if (searchIndex != null) {
+            searchIndex.add(item);
+        }
+        return true;
+    }
+
+    // Bulk load; returns the number of items actually added
+    public int addAll(Collection<? extends LibraryItem> items) {
+        int added = 0;
+        for (LibraryItem item : items) {
+            if (add(item)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    public LibraryItem findItem(String id) {
+        return itemsById.get(id);
+    }
+
+    public Collection<LibraryItem> getItems() {
+        return Collections.unmodifiableCollection(itemsById.values());
+    }
+
+    public Set<LibraryItem> getItemsByType(LibraryItem.ItemType type) {
+        return Collections.unmodifiableSet(itemsByType.get(type));
+    }
+
+    public Collection<LibraryItem> getItemsByStatus(LibraryItem.ItemStatus status) {
+        return Collections.unmodifiableCollection(itemsByStatus.get(status).values());
+    }
+
+    // Returns up to limit items with the given status, ordered by id and
+    // starting after afterId (null for the first page)
+    public List<LibraryItem> getPage(LibraryItem.ItemStatus status, String afterId, int limit) {
+        NavigableMap<String, LibraryItem> index = itemsByStatus.get(status);
+        if (afterId != null) {
+            index = index.tailMap(afterId, false);
+        }
+        List<LibraryItem> page = new ArrayList<>(Math.min(limit, 64));
+        for (LibraryItem item : index.values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(item);
+        }
+        return page;
+    }
+
+    public List<LibraryItem> getAvailablePage(String afterId, int limit) {
+        return getPage(LibraryItem.ItemStatus.AVAILABLE, afterId, limit);
+    }
+
+    // Number of items with the given status, without walking the index
+    public int countByStatus(LibraryItem.ItemStatus status) {
+        return statusCounts.get(status).get();
+    }
+
+    public int size() {
+        return itemsById.size();
+    }
+
+    // The full-text index, or null if this catalog was created without one
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    // Called by LibraryItem.setStatus() to keep the status index current
+    void statusChanged(LibraryItem item, LibraryItem.ItemStatus from, LibraryItem.ItemStatus to) {
+        if (statusIndexPaused) {
+            return;
+        }
+        // Into the new index before out of the old one, so a concurrent page
+        // or count may briefly see the item twice but never misses it
+        itemsByStatus.get(to).put(item.getId(), item);
+        statusCounts.get(to).incrementAndGet();
+        itemsByStatus.get(from).remove(item.getId());
+        statusCounts.get(from).decrementAndGet();
+    }
+
+    /**
+     * Stops updating the status index on every change, for bulk status
+     * changes such as journal recovery. Status listings are stale until
+     * rebuildStatusIndex(); only call this while no transactions run.
+     */
+    void pauseStatusIndex() {
+        statusIndexPaused = true;
+    }
+
+    /**
+     * Rebuilds the status index from every item's current status and resumes
+     * per-change updates. The old index is still id-ordered, so its lists are
+     * merged in id order and each new list is built in linear time, instead
+     * of one skip-list search per changed item.
+     */
+    void rebuildStatusIndex() {
+        Map<LibraryItem.ItemStatus, List<LibraryItem>> sorted = new EnumMap<>(LibraryItem.ItemStatus.class);
+        for (LibraryItem.ItemStatus status : LibraryItem.ItemStatus.values()) {
+            sorted.put(status, new ArrayList<>());
+        }
+        // k-way merge of the old per-status lists (one per status, each id-ordered)
+        PriorityQueue<Map.Entry<LibraryItem, Iterator<LibraryItem>>> heads =
+            new PriorityQueue<>(Comparator.comparing((Map.Entry<LibraryItem, Iterator<LibraryItem>> head) ->
+                    head.getKey().getId()));
+        for (NavigableMap<String, LibraryItem> index : itemsByStatus.values()) {
+            Iterator<LibraryItem> items = index.values().iterator();
+            if (items.hasNext()) {
+                heads.add(new AbstractMap.SimpleEntry<>(items.next(), items));
+            }
+        }
+        while (!heads.isEmpty()) {
+            Map.Entry<LibraryItem, Iterator<LibraryItem>> head = heads.poll();
+            LibraryItem item = head.getKey();
+            sorted.get(item.getStatus()).add(item);
+            if (head.getValue().hasNext()) {
+                heads.add(new AbstractMap.SimpleEntry<>(head.getValue().next(), head.getValue()));
+            }
+        }
+        for (LibraryItem.ItemStatus status : LibraryItem.ItemStatus.values()) {
+            itemsByStatus.put(status, new ConcurrentSkipListMap<>(new SortedItems(sorted.get(status))));
+            statusCounts.get(status).set(sorted.get(status).size());
+        }
+        statusIndexPaused = false;
+    }
+
+    /**
+     * A read-only SortedMap over an id-ordered item list (or a range of it),
+     * so the ConcurrentSkipListMap copy constructor builds the status index
+     * in one linear pass. Key lookups and range views use binary search.
+     */
+    private static final class SortedItems extends AbstractMap<String, LibraryItem>
+    implements SortedMap<String, LibraryItem> {
+        private final List<LibraryItem> items;
+        private final int from;
+        private final int to;
+
+        SortedItems(List<LibraryItem> items) {
+            this(items, 0, items.size());
+        }
+
+        private SortedItems(List<LibraryItem> items, int from, int to) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+        }
+
+        // Index of the first item in range whose id is not less than key
+        private int lowerBound(String key) {
+            int low = from;
+            int high = to;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (items.get(middle).getId().compareTo(key) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private int indexOf(Object key) {
+            if (!(key instanceof String)) {
+                return -1;
+            }
+            int index = lowerBound((String) key);
+            return index < to && items.get(index).getId().equals(key) ? index : -1;
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public LibraryItem get(Object key) {
+            int index = indexOf(key);
+            return index < 0 ? null : items.get(index);
+        }
+
+        @Override
+        public Set<Map.Entry<String, LibraryItem>> entrySet() {
+            return new AbstractSet<Map.Entry<String, LibraryItem>>() {
+                @Override
+                public Iterator<Map.Entry<String, LibraryItem>> iterator() {
+                    Iterator<LibraryItem> it = items.subList(from, to).iterator();
+                    return new Iterator<Map.Entry<String, LibraryItem>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<String, LibraryItem> next() {
+                            LibraryItem item = it.next();
+                            return new AbstractMap.SimpleImmutableEntry<>(item.getId(), item);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return to - from;
+                }
+            };
+        }
+
+        @Override
+        public Comparator<? super String> comparator() {
+            return null; // natural order, like the status index
+        }
+
+        @Override
+        public SortedMap<String, LibraryItem> subMap(String fromKey, String toKey) {
+            if (fromKey.compareTo(toKey) > 0) {
+                throw new IllegalArgumentException("fromKey > toKey");
+            }
+            return new SortedItems(items, lowerBound(fromKey), lowerBound(toKey));
+        }
+
+        @Override
+        public SortedMap<String, LibraryItem> headMap(String toKey) {
+            return new SortedItems(items, from, lowerBound(toKey));
+        }
+
+        @Override
+        public SortedMap<String, LibraryItem> tailMap(String fromKey) {
+            return new SortedItems(items, lowerBound(fromKey), to);
+        }
+
+        @Override
+        public String firstKey() {
+            if (from == to) {
+                throw new NoSuchElementException();
+            }
+            return items.get(from).getId();
+        }
+
+        @Override
+        public String lastKey() {
+            if (from == to) {
+                throw new NoSuchElementException();
+            }
+            return items.get(to - 1).getId();
+        }
+    }
+}
@@ -0,0 +1,410 @@
+/**
+ * CirculationEngine - Thread-Safe Borrow and Return Operations
+ *
+ * This class implements CirculationService without any GUI code, so many
+ * front desks and kiosks can share one catalog concurrently.
+ *
+ * Key Features:
+ * - Atomic borrow: an item is claimed with LibraryItem.compareAndSetStatus(),
+ *   so two desks can never lend the same item twice
+ * - Atomic return: the loan is removed from the member exactly once before
+ *   the item is released back to AVAILABLE
+ * - Batched checkout: borrowAll() lends a stack of items all-or-nothing as
+ *   one loan, one journal record and one status pass; items can then be
+ *   returned one at a time
+ * - No global lock: each transaction only locks the item and member involved
+ * - O(1) member lookup through the MemberRegistry
+ * - Holds: members can queue for a borrowed item, and a return hands the
+ *   item straight to the next member in line without it becoming AVAILABLE
+ * - Late fees are summed in cents using the installed FeeSchedule
+ * - Optional LoanJournal: a transaction is durable before it is reported
+ * - DueDateIndex of open loans for reminder and overdue-notice jobs
+ * - Versioned snapshots (CirculationSnapshots) give reports a consistent
+ *   view without blocking transactions
+ * - Optional LoanArchive: returned loans are kept for history reports
+ * - Every public transaction is timed in the global Metrics
+ */
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+// CirculationEngine class to run borrow/return transactions
+public class CirculationEngine implements CirculationService {
+    private final Catalog catalog;
+    private final MemberRegistry members;
+    private final DueDateIndex dueDates = new DueDateIndex();
+    private final HoldRegistry holds = new HoldRegistry();
+    private final CirculationSnapshots snapshots;
+    private volatile LoanJournal journal;
+    private volatile LoanArchive archive;
+
+    public CirculationEngine() {
+        this(new Catalog(16, new SearchIndex()));
+    }
+
+    public CirculationEngine(Catalog catalog) {
+        this(catalog, new MemberRegistry());
+    }
+
+    public CirculationEngine(Catalog catalog, MemberRegistry members) {
+        this.catalog = catalog;
+        this.members = members;
+        this.snapshots = new CirculationSnapshots(catalog, members);
+    }
+
+    @Override
+    public BorrowResult borrow(Member member, String itemId) {
+        long start = System.nanoTime();
+        try {
+            LibraryItem item = catalog.findItem(itemId);
+            if (item == null) {
+                return BorrowResult.NOT_FOUND;
+            }
+            // Members waiting in the hold queue go first
+            if (holds.hasWaiting(itemId)) {
+                serveHolds(item);
+                return BorrowResult.UNAVAILABLE;
+            }
+            // Claim the item first; losing the race means someone else borrowed it
+            if (!item.compareAndSetStatus(LibraryItem.ItemStatus.AVAILABLE, LibraryItem.ItemStatus.BORROWED)) {
+                return BorrowResult.UNAVAILABLE;
+            }
+            lend(new Loan(member, item));
+            return BorrowResult.BORROWED;
+        } finally {
+            Metrics.BORROW.record(start);
+        }
+    }
+
+    @Override
+    public BorrowResult borrowAll(Member member, Collection<String> itemIds) {
+        long start = System.nanoTime();
+        try {
+            List<LibraryItem> items = new ArrayList<>(itemIds.size());
+            for (String itemId : new TreeSet<>(itemIds)) {
+                LibraryItem item = catalog.findItem(itemId);
+                if (item == null) {
+                    return BorrowResult.NOT_FOUND;
+                }
+                if (holds.hasWaiting(itemId)) {
+                    serveHolds(item);
+                    return BorrowResult.UNAVAILABLE;
+                }
+                items.add(item);
+            }
+            if (items.isEmpty()) {
+                return BorrowResult.NOT_FOUND;
+            }
+            if (!claimAll(items)) {
+                return BorrowResult.UNAVAILABLE;
+            }
+            LocalDate today = LocalDate.now();
+            lend(new Loan(member, items, today, today.plusDays(Loan.LOAN_PERIOD_DAYS)));
+            return BorrowResult.BORROWED;
+        } finally {
+            Metrics.BORROW_ALL.record(start);
+        }
+    }
+
+    // Opens a loan whose items the caller has already claimed
+    private void lend(Loan loan) {
+        // Run the borrow event before the loan becomes visible to returns,
+        // so a concurrent return can never be overwritten by onBorrow()
+        loan.onBorrow();
+        dueDates.add(loan);
+        snapshots.recordLoan(loan);
+        // Journal while the items are still only ours: the BORROW record must
+        // precede the RETURN of any desk that sees the loan once it is added
+        if (journal != null) {
+            journal.recordBorrow(loan);
+        }
+        loan.getMember().addLoan(loan);
+    }
+
+    // Claims every item or none: on the first conflict the items already
+    // claimed are released again, so no other desk is left blocked
+    private boolean claimAll(List<LibraryItem> items) {
+        for (int i = 0; i < items.size(); i++) {
+            if (!items.get(i).compareAndSetStatus(LibraryItem.ItemStatus.AVAILABLE, LibraryItem.ItemStatus.BORROWED)) {
+                for (int j = 0; j < i; j++) {
+                    items.get(j).setStatus(LibraryItem.ItemStatus.AVAILABLE);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Loan returnItem(Member member, String itemId) {
+        long start = System.nanoTime();
+        try {
+            Loan loan = member.removeLoan(itemId);
+            if (loan == null) {
+                return null;
+            }
+            dueDates.remove(loan);
+            // With a member waiting, the item stays BORROWED and goes straight to them
+            LibraryItem item = loan.getItem();
+            HoldRegistry.Hold next = holds.fillNext(itemId);
+            // Recorded even when the item goes straight to a hold (whose loan is
+            // recorded next), and before the RETURN is journaled: a journal
+            // snapshot relies on seeing every return its position covers
+            snapshots.recordReturn(item);
+            // Journal before the item is released, so its RETURN precedes the
+            // BORROW of whichever desk lends it next
+            if (loan.getReturnDate() == null) {
+                loan.setReturnDate(LocalDate.now());
+            }
+            if (journal != null) {
+                journal.recordReturn(loan);
+            }
+            loan.onReturn(next == null);
+            if (archive != null) {
+                archive.record(loan);
+            }
+            if (next != null) {
+                lend(new Loan(next.getMember(), item));
+            } else {
+                serveHolds(item);
+            }
+            return loan;
+        } finally {
+            Metrics.RETURN.record(start);
+        }
+    }
+
+    @Override
+    public BorrowResult placeHold(Member member, String itemId) {
+        LibraryItem item = catalog.findItem(itemId);
+        if (item == null || item.getStatus() == LibraryItem.ItemStatus.TRANSFERRED) {
+            return BorrowResult.NOT_FOUND;
+        }
+        if (member.findLoan(itemId) != null) {
+            return BorrowResult.UNAVAILABLE;
+        }
+        // On the shelf with nobody waiting: lend it right away
+        if (!holds.hasWaiting(itemId) && borrow(member, itemId) == BorrowResult.BORROWED) {
+            return BorrowResult.BORROWED;
+        }
+        HoldRegistry.Hold hold = holds.place(member, itemId);
+        if (hold == null) {
+            return BorrowResult.UNAVAILABLE; // already waiting for this item
+        }
+        // transferOut() may have claimed the item after the check above and
+        // before the hold was queued, so it did not see the hold. Either it
+        // sees the hold and keeps the item, or this re-check sees TRANSFERRED
+        if (item.getStatus() == LibraryItem.ItemStatus.TRANSFERRED && holds.cancel(member, itemId)) {
+            return BorrowResult.NOT_FOUND;
+        }
+        // The item may have been returned while the hold was being queued
+        serveHolds(item);
+        return hold.getState() == HoldRegistry.HoldState.FILLED ? BorrowResult.BORROWED : BorrowResult.HELD;
+    }
+
+    @Override
+    public boolean cancelHold(Member member, String itemId) {
+        return holds.cancel(member, itemId);
+    }
+
+    public HoldRegistry getHolds() {
+        return holds;
+    }
+
+    /**
+     * Lends an AVAILABLE item to the oldest waiting hold, if any. Runs after
+     * every release and every new hold, so a hold queued while the item was
+     * being returned is never left waiting on an item on the shelf.
+     */
+    private void serveHolds(LibraryItem item) {
+        while (holds.hasWaiting(item.getId())
+            && item.compareAndSetStatus(LibraryItem.ItemStatus.AVAILABLE, LibraryItem.ItemStatus.BORROWED)) {
+            HoldRegistry.Hold next = holds.fillNext(item.getId());
+            if (next != null) {
+                lend(new Loan(next.getMember(), item));
+                return;
+            }
+            // Every waiting hold was cancelled meanwhile
+            item.setStatus(LibraryItem.ItemStatus.AVAILABLE);
+        }
+    }
+
+    /**
+     * Takes an AVAILABLE item nobody is waiting for off this branch's shelf
+     * so it can be added to another branch; it stays in the catalog as
+     * TRANSFERRED. Returns false if the item is missing, lent or held.
+     */
+    public boolean transferOut(String itemId) {
+        LibraryItem item = catalog.findItem(itemId);
+        if (item == null
+            || !item.compareAndSetStatus(LibraryItem.ItemStatus.AVAILABLE, LibraryItem.ItemStatus.TRANSFERRED)) {
+            return false;
+        }
+        // A hold queued before the claim keeps the item here
+        if (holds.hasWaiting(itemId)) {
+            item.setStatus(LibraryItem.ItemStatus.AVAILABLE);
+            serveHolds(item);
+            return false;
+        }
+        snapshots.recordStatus(item, LibraryItem.ItemStatus.TRANSFERRED);
+        return true;
+    }
+
+    /**
+     * Shelves an item arriving from another branch. An item that once left
+     * this branch is put back as AVAILABLE; returns false if the id belongs
+     * to an item that is still here.
+     */
+    public boolean transferIn(LibraryItem item) {
+        LibraryItem existing = catalog.findItem(item.getId());
+        if (existing == null) {
+            return catalog.add(item);
+        }
+        if (existing.getStatus() != LibraryItem.ItemStatus.TRANSFERRED) {
+            return false;
+        }
+        snapshots.recordStatus(existing, LibraryItem.ItemStatus.AVAILABLE);
+        existing.setStatus(LibraryItem.ItemStatus.AVAILABLE);
+        return true;
+    }
+
+    // Attaches an existing loan (journal recovery or seed data) without
+    // running the borrow event; returns false if any item is not available
+    public boolean restoreLoan(Loan loan) {
+        if (!claimAll(loan.getItems())) {
+            return false;
+        }
+        snapshots.recordLoan(loan);
+        if (journal != null) {
+            journal.recordBorrow(loan);
+        }
+        loan.getMember().addLoan(loan);
+        dueDates.add(loan);
+        return true;
+    }
+
+    // Closes a loan during journal recovery without running the return event
+    public boolean restoreReturn(Member member, String itemId, LocalDate returnDate) {
+        Loan loan = member.removeLoan(itemId);
+        if (loan == null) {
+            return false;
+        }
+        dueDates.remove(loan);
+        loan.setReturnDate(returnDate);
+        snapshots.recordReturn(loan.getItem());
+        loan.getItem().setStatus(LibraryItem.ItemStatus.AVAILABLE);
+        return true;
+    }
+
+    public DueDateIndex getDueDateIndex() {
+        return dueDates;
+    }
+
+    public void setJournal(LoanJournal journal) {
+        this.journal = journal;
+    }
+
+    // Returned loans are archived here for history reports (null to stop)
+    public void setArchive(LoanArchive archive) {
+        this.archive = archive;
+    }
+
+    @Override
+    public LoanArchive getArchive() {
+        return archive;
+    }
+
+    @Override
+    public LibraryItem findItem(String itemId) {
+        long start = System.nanoTime();
+        LibraryItem item = catalog.findItem(itemId);
+        Metrics.FIND_ITEM.record(start);
+        return item;
+    }
+
+    // Throws IllegalStateException if the catalog has no SearchIndex
+    @Override
+    public List<LibraryItem> search(String query, int limit) {
+        SearchIndex index = catalog.getSearchIndex();
+        if (index == null) {
+            throw new IllegalStateException("Catalog was created without a SearchIndex");
+        }
+        return index.search(query, limit);
+    }
+
+    @Override
+    public Member findMember(String memberId) {
+        return members.find(memberId);
+    }
+
+    @Override
+    public void addItem(LibraryItem item) {
+        catalog.add(item);
+    }
+
+    @Override
+    public void addMember(Member member) {
+        members.add(member);
+    }
+
+    @Override
+    public Catalog getCatalog() {
+        return catalog;
+    }
+
+    @Override
+    public Collection<Member> getMembers() {
+        return members.getMembers();
+    }
+
+    @Override
+    public CirculationSnapshots.Snapshot openSnapshot() {
+        return snapshots.open();
+    }
+
+    public CirculationSnapshots getSnapshots() {
+        return snapshots;
+    }
+
+    public MemberRegistry getMemberRegistry() {
+        return members;
+    }
+
+    @Override
+    public long daysLate(Loan loan, LocalDate asOf) {
+        LocalDate dueDate = loan.getDueDate();
+        return asOf.isAfter(dueDate) ? ChronoUnit.DAYS.between(dueDate, asOf) : 0;
+    }
+
+    @Override
+    public long lateFeeCents(Loan loan, LocalDate asOf) {
+        long daysLate = daysLate(loan, asOf);
+        if (daysLate <= 0) {
+            return 0;
+        }
+        long total = 0;
+        for (LibraryItem item : loan.getItems()) {
+            total += item.calculateLateFeeCents((int) daysLate);
+        }
+        return total;
+    }
+
+    // Read from the due-date index rather than by walking every member's loans
+    @Override
+    public List<Loan> getOverdueLoans(LocalDate asOf) {
+        return dueDates.overdue(asOf);
+    }
+
+    @Override
+    public long outstandingFeesCents(Member member, LocalDate asOf) {
+        long total = 0;
+        for (Loan loan : member.getLoans()) {
+            total += lateFeeCents(loan, asOf);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * CirculationService - Headless Library Circulation API
+ *
+ * This interface exposes every business operation of the library (borrowing,
+ * returning, lookups and late-fee calculation) without any GUI dependency,
+ * so the same logic can back the Swing client, batch jobs and load tests.
+ *
+ * Key Features:
+ * - Borrow/return transactions that are safe to call from many threads
+ * - All-or-nothing checkout of several items at once
+ * - Hold queues: returned items go to the next waiting member first
+ * - Item and member lookup by id
+ * - Ranked full-text search over item titles, creators and codes
+ * - Overdue and late-fee queries evaluated as of a given date, in exact cents
+ * - History reports over returned loans, when a LoanArchive is kept
+ */
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+// CirculationService interface for GUI-independent library operations
+public interface CirculationService {
+
+    enum BorrowResult {
+        BORROWED,
+        NOT_FOUND,
+        UNAVAILABLE,
+        HELD // queued; the item will be lent when it comes back
+    }
+
+    BorrowResult borrow(Member member, String itemId);
+
+    // Borrows all of the items as one loan, or none of them
+    BorrowResult borrowAll(Member member, Collection<String> itemIds);
+
+    // Returns the closed loan, or null if the member does not hold the item
+    Loan returnItem(Member member, String itemId);
+
+    // Lends the item now if it is free, otherwise queues the member for it
+    // (HELD); UNAVAILABLE if they already have it or are already waiting
+    BorrowResult placeHold(Member member, String itemId);
+
+    // Returns false if the member was not waiting for the item
+    boolean cancelHold(Member member, String itemId);
+
+    LibraryItem findItem(String itemId);
+
+    // Items matching every word of the query, best match first
+    List<LibraryItem> search(String query, int limit);
+
+    Member findMember(String memberId);
+
+    void addItem(LibraryItem item);
+
+    void addMember(Member member);
+
+    Catalog getCatalog();
+
+    Collection<Member> getMembers();
+
+    // Consistent view of items and loans for reports; close it when done
+    CirculationSnapshots.Snapshot openSnapshot();
+
+    // Returned loans for history reports, or null if no history is kept
+    LoanArchive getArchive();
+
+    // Whole days the loan is overdue as of the given date (0 if not overdue)
+    long daysLate(Loan loan, LocalDate asOf);
+
+    long lateFeeCents(Loan loan, LocalDate asOf);
+
+    // Loans overdue as of the given date, longest overdue first
+    List<Loan> getOverdueLoans(LocalDate asOf);
+
+    long outstandingFeesCents(Member member, LocalDate asOf);
+}
@@ -0,0 +1,357 @@
+/**
+ * CirculationSnapshots - Versioned Point-in-Time Views of Circulation State
+ *
+ * This class keeps old versions of each item's circulation state (status and
+ * open loan) so that reports and exports can read one consistent moment while
+ * borrows and returns carry on.
+ *
+ * Key Features:
+ * - MVCC: each item keeps a short newest-first chain of (version, status,
+ *   loan) entries, where the version is the epoch the transaction committed in
+ * - A Snapshot reads, for every item, the newest entry not newer than its
+ *   own version, so a report sees whole transactions or nothing of them
+ *   (a multi-item borrowAll() is one version)
+ * - Readers never block writers, and writers share no hot cache line: see
+ *   Epochs below
+ * - Reclamation: entries no open snapshot can see are unlinked by the next
+ *   write to the item, and by close() for items written while a long report
+ *   was open; with no snapshot open every chain is cut back to its head
+ *
+ * Epochs:
+ * - A transaction reads the current epoch and tags its entries with it; it
+ *   writes nothing global, only a counter of its own stripe (picked by
+ *   thread) that marks it in flight, so desks on different cores do not
+ *   contend on one lock word or clock
+ * - open() takes the current epoch E as the snapshot version, advances the
+ *   epoch to E + 1 and waits until no transaction tagged E is in flight;
+ *   from then on the snapshot sees all of epoch E and nothing after it
+ * - Two counter sets, by epoch parity, keep the transactions of E + 1 from
+ *   delaying that wait; a transaction that read E but registered after the
+ *   advance sees the new epoch on its re-check and retries with E + 1
+ * - Only open() is serialized; it is rare and waits for a few in-flight
+ *   pushes at most
+ *
+ * Items whose status has not changed since start-up (no loan, no branch
+ * transfer) have no chain and are read as AVAILABLE. Items and members are
+ * listed from the live Catalog and MemberRegistry, so ones added after a
+ * snapshot was opened may appear in it (with no loans); their circulation
+ * state is still as of the snapshot.
+ */
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// CirculationSnapshots class to give reports a consistent view of loans
+public class CirculationSnapshots {
+    private final Catalog catalog;
+    private final MemberRegistry members;
+    // Stripes of in-flight counters; each counter sits on its own cache line
+    private static final int STRIPES =
+        Math.min(64, Integer.highestOneBit(Runtime.getRuntime().availableProcessors()) * 4);
+    private static final int PAD = 16;
+
+    private volatile long epoch;
+    // In-flight transactions per (epoch parity, stripe)
+    private final AtomicLongArray inFlight = new AtomicLongArray(2 * STRIPES * PAD);
+    private final Object openLock = new Object();
+    private final Map<String, ItemRecord> records = new ConcurrentHashMap<>();
+    // Open snapshot versions and how many snapshots hold each
+    private final ConcurrentSkipListMap<Long, Integer> openVersions = new ConcurrentSkipListMap<>();
+    // Records whose chains were kept longer than one entry for an open snapshot
+    private final Queue<ItemRecord> retained = new ConcurrentLinkedQueue<>();
+
+    // One item's state as of some version; loan is null unless BORROWED
+    public static final class ItemState {
+        private final LibraryItem item;
+        private final LibraryItem.ItemStatus status;
+        private final Loan loan;
+
+        ItemState(LibraryItem item, LibraryItem.ItemStatus status, Loan loan) {
+            this.item = item;
+            this.status = status;
+            this.loan = loan;
+        }
+
+        public LibraryItem getItem() { return item; }
+
+        public LibraryItem.ItemStatus getStatus() { return status; }
+
+        public Loan getLoan() { return loan; }
+
+        public Member getBorrower() { return loan == null ? null : loan.getMember(); }
+
+        public LocalDate getDueDate() { return loan == null ? null : loan.getDueDate(); }
+    }
+
+    private static final class Version {
+        final long version;
+        final LibraryItem.ItemStatus status;
+        final Loan loan;
+        volatile Version older;
+
+        Version(long version, LibraryItem.ItemStatus status, Loan loan, Version older) {
+            this.version = version;
+            this.status = status;
+            this.loan = loan;
+            this.older = older;
+        }
+    }
+
+    private static final class ItemRecord {
+        final LibraryItem item;
+        volatile Version head;
+        final AtomicBoolean queued = new AtomicBoolean();
+
+        ItemRecord(LibraryItem item) {
+            this.item = item;
+            // Before its first recorded loan the item was on the shelf
+            this.head = new Version(0, LibraryItem.ItemStatus.AVAILABLE, null, null);
+        }
+    }
+
+    /**
+     * A consistent read-only view. Close it when the report is done so the
+     * versions it pins can be reclaimed; use it with try-with-resources.
+     */
+    public final class Snapshot implements AutoCloseable {
+        private final long version;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private Map<Member, Integer> loanCounts;
+
+        private Snapshot(long version) {
+            this.version = version;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public ItemState getItem(String itemId) {
+            LibraryItem item = catalog.findItem(itemId);
+            return item == null ? null : stateAt(item, version);
+        }
+
+        // Every catalog item with its state as of this snapshot; O(catalog size)
+        public List<ItemState> getItems() {
+            Collection<LibraryItem> items = catalog.getItems();
+            List<ItemState> states = new ArrayList<>(items.size());
+            for (LibraryItem item : items) {
+                states.add(stateAt(item, version));
+            }
+            return states;
+        }
+
+        // One entry per borrowed item, with the loan it was lent on
+        public List<ItemState> getLoans() {
+            List<ItemState> loans = new ArrayList<>();
+            for (ItemRecord record : records.values()) {
+                Version entry = visible(record, version);
+                if (entry.loan != null) {
+                    loans.add(new ItemState(record.item, entry.status, entry.loan));
+                }
+            }
+            return loans;
+        }
+
+        public Collection<Member> getMembers() {
+            return members.getMembers();
+        }
+
+        // Items the member had borrowed as of this snapshot
+        public synchronized int getLoanCount(Member member) {
+            if (loanCounts == null) {
+                loanCounts = new HashMap<>();
+                for (ItemState loan : getLoans()) {
+                    loanCounts.merge(loan.getBorrower(), 1, Integer::sum);
+                }
+            }
+            return loanCounts.getOrDefault(member, 0);
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release(version);
+            }
+        }
+    }
+
+    public CirculationSnapshots(Catalog catalog, MemberRegistry members) {
+        this.catalog = catalog;
+        this.members = members;
+    }
+
+    // Opens a view of every transaction committed so far
+    public Snapshot open() {
+        synchronized (openLock) {
+            long version = epoch;
+            // Registered before the advance, so every transaction of the next
+            // epoch sees this snapshot when it trims a chain
+            openVersions.merge(version, 1, Integer::sum);
+            epoch = version + 1;
+            int parity = (int) (version & 1);
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                while (inFlight.get(slot(parity, stripe)) != 0) {
+                    Thread.yield();
+                }
+            }
+            return new Snapshot(version);
+        }
+    }
+
+    // Records that every item of the loan is now lent on it
+    public void recordLoan(Loan loan) {
+        int stripe = stripe();
+        long version = enter(stripe);
+        try {
+            for (LibraryItem item : loan.getItems()) {
+                push(item, new Version(version, LibraryItem.ItemStatus.BORROWED, loan, null));
+            }
+        } finally {
+            exit(version, stripe);
+        }
+    }
+
+    // Records that the item is back on the shelf; call before the item is released
+    public void recordReturn(LibraryItem item) {
+        recordStatus(item, LibraryItem.ItemStatus.AVAILABLE);
+    }
+
+    // Records a status change that involves no loan, such as a branch transfer
+    public void recordStatus(LibraryItem item, LibraryItem.ItemStatus status) {
+        int stripe = stripe();
+        long version = enter(stripe);
+        try {
+            push(item, new Version(version, status, null, null));
+        } finally {
+            exit(version, stripe);
+        }
+    }
+
+    public int getOpenSnapshotCount() {
+        int count = 0;
+        for (int open : openVersions.values()) {
+            count += open;
+        }
+        return count;
+    }
+
+    // Superseded entries still kept for open snapshots
+    public long getRetainedVersionCount() {
+        long count = 0;
+        for (ItemRecord record : records.values()) {
+            for (Version entry = record.head.older; entry != null; entry = entry.older) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writers of one item are ordered by the engine (an item is only written
+     * by the transaction that holds it), so a plain volatile write publishes
+     * the new head. Runs inside enter()/exit(), so a snapshot opened
+     * meanwhile either is already in openVersions when the chain is trimmed
+     * or waits for the push before it reads.
+     */
+    private void push(LibraryItem item, Version entry) {
+        ItemRecord record = records.computeIfAbsent(item.getId(), id -> new ItemRecord(item));
+        Version head = record.head;
+        // No snapshot reads the current epoch yet, so a head from the same
+        // epoch is replaced rather than kept under the new entry
+        entry.older = head.version == entry.version ? head.older : head;
+        record.head = entry;
+        if (!trim(record) && record.queued.compareAndSet(false, true)) {
+            retained.add(record);
+        }
+    }
+
+    // Unlinks the entries no open snapshot can see; true if only the head is left
+    private boolean trim(ItemRecord record) {
+        Map.Entry<Long, Integer> oldest = openVersions.firstEntry();
+        long oldestVersion = oldest == null ? Long.MAX_VALUE : oldest.getKey();
+        // The oldest snapshot reads the newest entry not newer than it; older ones are dead
+        Version keep = record.head;
+        while (keep.version > oldestVersion && keep.older != null) {
+            keep = keep.older;
+        }
+        keep.older = null;
+        return record.head.older == null;
+    }
+
+    private void release(long version) {
+        openVersions.computeIfPresent(version, (key, count) -> count == 1 ? null : count - 1);
+        // Trim what the closed snapshot was pinning; records still pinned go back in the queue
+        int stripe = stripe();
+        long current = enter(stripe);
+        try {
+            for (int i = retained.size(); i > 0; i--) {
+                ItemRecord record = retained.poll();
+                if (record == null) {
+                    break;
+                }
+                record.queued.set(false);
+                if (!trim(record) && record.queued.compareAndSet(false, true)) {
+                    retained.add(record);
+                }
+            }
+        } finally {
+            exit(current, stripe);
+        }
+    }
+
+    // Marks a transaction in flight and returns its epoch (its version)
+    private long enter(int stripe) {
+        while (true) {
+            long version = epoch;
+            int slot = slot((int) (version & 1), stripe);
+            inFlight.incrementAndGet(slot);
+            // An open() that advanced the epoch before the increment may not
+            // have seen it, so only keep a version that is still current
+            if (epoch == version) {
+                return version;
+            }
+            inFlight.decrementAndGet(slot);
+        }
+    }
+
+    private void exit(long version, int stripe) {
+        inFlight.decrementAndGet(slot((int) (version & 1), stripe));
+    }
+
+    private static int stripe() {
+        int hash = System.identityHashCode(Thread.currentThread());
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    private static int slot(int parity, int stripe) {
+        return (parity * STRIPES + stripe) * PAD;
+    }
+
+    private ItemState stateAt(LibraryItem item, long version) {
+        ItemRecord record = records.get(item.getId());
+        if (record == null) {
+            return new ItemState(item, LibraryItem.ItemStatus.AVAILABLE, null);
+        }
+        Version entry = visible(record, version);
+        return new ItemState(item, entry.status, entry.loan);
+    }
+
+    private static Version visible(ItemRecord record, long version) {
+        Version entry = record.head;
+        while (entry.version > version) {
+            entry = entry.older;
+        }
+        return entry;
+    }
+}
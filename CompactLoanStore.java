@@ -0,0 +1,282 @@
+/**
+ * CompactLoanStore - Struct-of-Arrays Store for Large Loan Volumes
+ *
+ * This class holds active and historical loans as rows of primitive columns
+ * instead of one Loan object graph per loan, so tens of millions of loans fit
+ * in a few hundred MB of heap and add almost nothing to GC marking work.
+ *
+ * Key Features:
+ * - One row per borrowed item: int member handle, int item handle, int
+ *   borrow/due/return epoch days and a status byte (21 bytes per row)
+ * - Member and item ids are interned once into int handles
+ * - Columns grow in fixed-size chunks, so appending never copies old rows
+ * - O(1) return by item id through an item handle -> open row index
+ * - Fee scans run over the primitive columns without creating objects
+ * - toLoan() materializes a row as a regular Loan for existing callers
+ *
+ * An item has at most one open row: adding an open row for an item that
+ * is still out is rejected, so close the old row with markReturned() first.
+ *
+ * All methods are synchronized on the store; scans hold the monitor for
+ * their duration, so run long scans away from the transaction path.
+ *
+ * The store is standalone. CirculationEngine, the journal and the UI keep
+ * working on Loan objects and do not write here; a caller that holds its
+ * loans in this store reads them back one row at a time through toLoan().
+ * LoanStoreBenchmark measures it against the Loan object graph.
+ */
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// CompactLoanStore class to keep loans in primitive column arrays
+public class CompactLoanStore {
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    public static final int NO_ROW = -1;
+    public static final int NO_DAY = Integer.MIN_VALUE;
+
+    private static final byte OPEN = 0;
+    private static final byte RETURNED = 1;
+
+    private static final LibraryItem.ItemType[] TYPES = LibraryItem.ItemType.values();
+
+    // Handle tables: handle -> id, id -> handle, plus per-item type and open row
+    private final Map<String, Integer> memberHandles = new HashMap<>();
+    private String[] memberIds = new String[1024];
+    private final Map<String, Integer> itemHandles = new HashMap<>();
+    private String[] itemIds = new String[1024];
+    private byte[] itemTypes = new byte[1024];
+    private int[] openRowByItem = new int[1024];
+
+    // Row columns, split into chunks of CHUNK_SIZE rows
+    private int[][] memberColumn = new int[0][];
+    private int[][] itemColumn = new int[0][];
+    private int[][] borrowColumn = new int[0][];
+    private int[][] dueColumn = new int[0][];
+    private int[][] returnColumn = new int[0][];
+    private byte[][] statusColumn = new byte[0][];
+    private int rows;
+    private int openRows;
+
+    // Appends one row per item of the loan and returns the first row; all
+    // or none of the items are added
+    public synchronized int add(Loan loan) {
+        int first = rows;
+        String memberId = loan.getMember().getMemberId();
+        int borrowDay = (int) loan.getBorrowDate().toEpochDay();
+        int dueDay = (int) loan.getDueDate().toEpochDay();
+        int returnDay = loan.getReturnDate() == null ? NO_DAY : (int) loan.getReturnDate().toEpochDay();
+        if (returnDay == NO_DAY) {
+            for (LibraryItem item : loan.getItems()) {
+                checkNotOpen(item.getId());
+            }
+        }
+        for (LibraryItem item : loan.getItems()) {
+            add(memberId, item.getId(), item.getType(), borrowDay, dueDay, returnDay);
+        }
+        return first;
+    }
+
+    // Appends one row; returnDay is NO_DAY for an open loan. Throws
+    // IllegalArgumentException if the item already has an open row
+    public synchronized int add(String memberId, String itemId, LibraryItem.ItemType type,
+    int borrowDay, int dueDay, int returnDay) {
+        if (returnDay == NO_DAY) {
+            checkNotOpen(itemId);
+        }
+        int row = rows;
+        if ((row & CHUNK_MASK) == 0) {
+            addChunk();
+        }
+        int chunk = row >>> CHUNK_BITS;
+        int offset = row & CHUNK_MASK;
+        int item = itemHandle(itemId, type);
+        memberColumn[chunk][offset] = memberHandle(memberId);
+        itemColumn[chunk][offset] = item;
+        borrowColumn[chunk][offset] = borrowDay;
+        dueColumn[chunk][offset] = dueDay;
+        returnColumn[chunk][offset] = returnDay;
+        if (returnDay == NO_DAY) {
+            statusColumn[chunk][offset] = OPEN;
+            openRowByItem[item] = row;
+            openRows++;
+        } else {
+            statusColumn[chunk][offset] = RETURNED;
+        }
+        rows = row + 1;
+        return row;
+    }
+
+    // Closes the open row for the item; returns the row or NO_ROW
+    public synchronized int markReturned(String itemId, LocalDate returnDate) {
+        Integer item = itemHandles.get(itemId);
+        if (item == null || openRowByItem[item] == NO_ROW) {
+            return NO_ROW;
+        }
+        int row = openRowByItem[item];
+        openRowByItem[item] = NO_ROW;
+        returnColumn[row >>> CHUNK_BITS][row & CHUNK_MASK] = (int) returnDate.toEpochDay();
+        statusColumn[row >>> CHUNK_BITS][row & CHUNK_MASK] = RETURNED;
+        openRows--;
+        return row;
+    }
+
+    // The open row for the item, or NO_ROW
+    public synchronized int findOpenRow(String itemId) {
+        Integer item = itemHandles.get(itemId);
+        return item == null ? NO_ROW : openRowByItem[item];
+    }
+
+    public synchronized int size() {
+        return rows;
+    }
+
+    public synchronized int openCount() {
+        return openRows;
+    }
+
+    public synchronized String getMemberId(int row) {
+        return memberIds[memberColumn[row >>> CHUNK_BITS][row & CHUNK_MASK]];
+    }
+
+    public synchronized String getItemId(int row) {
+        return itemIds[itemColumn[row >>> CHUNK_BITS][row & CHUNK_MASK]];
+    }
+
+    public synchronized LibraryItem.ItemType getItemType(int row) {
+        return TYPES[itemTypes[itemColumn[row >>> CHUNK_BITS][row & CHUNK_MASK]]];
+    }
+
+    public synchronized int getBorrowDay(int row) {
+        return borrowColumn[row >>> CHUNK_BITS][row & CHUNK_MASK];
+    }
+
+    public synchronized int getDueDay(int row) {
+        return dueColumn[row >>> CHUNK_BITS][row & CHUNK_MASK];
+    }
+
+    public synchronized int getReturnDay(int row) {
+        return returnColumn[row >>> CHUNK_BITS][row & CHUNK_MASK];
+    }
+
+    public synchronized boolean isOpen(int row) {
+        return statusColumn[row >>> CHUNK_BITS][row & CHUNK_MASK] == OPEN;
+    }
+
+    // Late fee owed for one row as of the given day (return day for closed rows)
+    public synchronized long lateFeeCents(int row, LocalDate asOf) {
+        return lateFeeCents(row, (int) asOf.toEpochDay(), FeeSchedule.current());
+    }
+
+    // Sum of late fees over every open row as of the given date
+    public synchronized long outstandingFeesCents(LocalDate asOf) {
+        FeeSchedule schedule = FeeSchedule.current();
+        int today = (int) asOf.toEpochDay();
+        long total = 0;
+        for (int row = 0; row < rows; row++) {
+            if (statusColumn[row >>> CHUNK_BITS][row & CHUNK_MASK] == OPEN) {
+                total += lateFeeCents(row, today, schedule);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Materializes a row as a Loan, resolving the member and item through the
+     * given service. Returns null if either is no longer known there.
+     */
+    public Loan toLoan(int row, CirculationService service) {
+        String memberId;
+        String itemId;
+        int borrowDay;
+        int dueDay;
+        int returnDay;
+        synchronized (this) {
+            memberId = getMemberId(row);
+            itemId = getItemId(row);
+            borrowDay = getBorrowDay(row);
+            dueDay = getDueDay(row);
+            returnDay = getReturnDay(row);
+        }
+        Member member = service.findMember(memberId);
+        LibraryItem item = service.findItem(itemId);
+        if (member == null || item == null) {
+            return null;
+        }
+        Loan loan = new Loan(member, item, LocalDate.ofEpochDay(borrowDay), LocalDate.ofEpochDay(dueDay));
+        if (returnDay != NO_DAY) {
+            loan.setReturnDate(LocalDate.ofEpochDay(returnDay));
+        }
+        return loan;
+    }
+
+    private long lateFeeCents(int row, int asOfDay, FeeSchedule schedule) {
+        int chunk = row >>> CHUNK_BITS;
+        int offset = row & CHUNK_MASK;
+        int endDay = statusColumn[chunk][offset] == OPEN ? asOfDay : returnColumn[chunk][offset];
+        int daysLate = endDay - dueColumn[chunk][offset];
+        if (daysLate <= 0) {
+            return 0;
+        }
+        return schedule.lateFeeCents(TYPES[itemTypes[itemColumn[chunk][offset]]], daysLate);
+    }
+
+    private void checkNotOpen(String itemId) {
+        if (findOpenRow(itemId) != NO_ROW) {
+            throw new IllegalArgumentException("Item " + itemId + " already has an open loan row");
+        }
+    }
+
+    private void addChunk() {
+        int chunks = memberColumn.length + 1;
+        memberColumn = Arrays.copyOf(memberColumn, chunks);
+        itemColumn = Arrays.copyOf(itemColumn, chunks);
+        borrowColumn = Arrays.copyOf(borrowColumn, chunks);
+        dueColumn = Arrays.copyOf(dueColumn, chunks);
+        returnColumn = Arrays.copyOf(returnColumn, chunks);
+        statusColumn = Arrays.copyOf(statusColumn, chunks);
+        memberColumn[chunks - 1] = new int[CHUNK_SIZE];
+        itemColumn[chunks - 1] = new int[CHUNK_SIZE];
+        borrowColumn[chunks - 1] = new int[CHUNK_SIZE];
+        dueColumn[chunks - 1] = new int[CHUNK_SIZE];
+        returnColumn[chunks - 1] = new int[CHUNK_SIZE];
+        statusColumn[chunks - 1] = new byte[CHUNK_SIZE];
+    }
+
+    private int memberHandle(String memberId) {
+        Integer handle = memberHandles.get(memberId);
+        if (handle != null) {
+            return handle;
+        }
+        int next = memberHandles.size();
+        if (next == memberIds.length) {
+            memberIds = Arrays.copyOf(memberIds, next * 2);
+        }
+        memberIds[next] = memberId;
+        memberHandles.put(memberId, next);
+        return next;
+    }
+
+    private int itemHandle(String itemId, LibraryItem.ItemType type) {
+        Integer handle = itemHandles.get(itemId);
+        if (handle != null) {
+            return handle;
+        }
+        int next = itemHandles.size();
+        if (next == itemIds.length) {
+            itemIds = Arrays.copyOf(itemIds, next * 2);
+            itemTypes = Arrays.copyOf(itemTypes, next * 2);
+            openRowByItem = Arrays.copyOf(openRowByItem, next * 2);
+        }
+        itemIds[next] = itemId;
+        itemTypes[next] = (byte) type.ordinal();
+        openRowByItem[next] = NO_ROW;
+        itemHandles.put(itemId, next);
+        return next;
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * DueDateIndex - Open Loans Bucketed by Due Day
+ *
+ * This class indexes open loans by the epoch day they fall due, so reminder
+ * and overdue-notice jobs can find the loans they need without scanning every
+ * member's loan list.
+ *
+ * Key Features:
+ * - One bucket per due day, kept in a sorted concurrent map
+ * - Added on borrow and removed on return by CirculationEngine
+ * - "Due on day D" touches one bucket; "overdue by more than N days" walks
+ *   only the buckets older than the cutoff
+ *
+ * Query cost is O(log d + result size), where d is the number of distinct
+ * due days still indexed. prune() drops emptied buckets of past days; it can
+ * run while desks lend and return, and startPruning() schedules it daily.
+ *
+ * Bucket Removal:
+ * - Each bucket counts the adds it has let in; prune() closes a bucket only
+ *   by moving that count from 0 to CLOSED, and only then unlinks it
+ * - An add that finds a closed bucket replaces it with a fresh one, so a
+ *   loan is never added to a bucket that is no longer in the map
+ * - A plain emptiness check before remove(key, bucket) is not enough: an
+ *   add can fetch the existing bucket, leaving the map unchanged, and put
+ *   its loan in after the check but before the removal
+ */
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// DueDateIndex class to look up loans by due date
+public class DueDateIndex {
+    private final ConcurrentNavigableMap<Long, Bucket> buckets = new ConcurrentSkipListMap<>();
+    private ScheduledExecutorService pruner;
+
+    // The loans due on one day, plus the count prune() uses to close it safely
+    private static final class Bucket {
+        static final int CLOSED = -1;
+
+        final Set<Loan> loans = ConcurrentHashMap.newKeySet();
+        final AtomicInteger count = new AtomicInteger();
+
+        // Reserves a place for one loan; false once the bucket is closed
+        boolean enter() {
+            for (int current = count.get(); current != CLOSED; current = count.get()) {
+                if (count.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Closes the bucket if it holds no loans and no add is in flight
+        boolean close() {
+            return count.compareAndSet(0, CLOSED) || count.get() == CLOSED;
+        }
+
+        boolean isClosed() {
+            return count.get() == CLOSED;
+        }
+    }
+
+    public void add(Loan loan) {
+        long day = loan.getDueDate().toEpochDay();
+        Bucket bucket = buckets.get(day);
+        while (bucket == null || !bucket.enter()) {
+            bucket = buckets.compute(day, (key, current) ->
+                current == null || current.isClosed() ? new Bucket() : current);
+        }
+        bucket.loans.add(loan);
+    }
+
+    public void remove(Loan loan) {
+        Bucket bucket = buckets.get(loan.getDueDate().toEpochDay());
+        if (bucket != null && bucket.loans.remove(loan)) {
+            bucket.count.decrementAndGet();
+        }
+    }
+
+    // Loans due exactly on the given day (e.g. "due today" reminders)
+    public Set<Loan> dueOn(LocalDate day) {
+        Bucket bucket = buckets.get(day.toEpochDay());
+        return bucket == null ? Collections.emptySet() : Collections.unmodifiableSet(bucket.loans);
+    }
+
+    // Loans that became overdue on the given day (due the day before)
+    public Set<Loan> becameOverdueOn(LocalDate day) {
+        return dueOn(day.minusDays(1));
+    }
+
+    // Loans more than minDaysLate days overdue as of the given date
+    public List<Loan> overdueBy(int minDaysLate, LocalDate asOf) {
+        long cutoff = asOf.toEpochDay() - minDaysLate;
+        List<Loan> result = new ArrayList<>();
+        for (Map.Entry<Long, Bucket> bucket : buckets.headMap(cutoff, false).entrySet()) {
+            result.addAll(bucket.getValue().loans);
+        }
+        return result;
+    }
+
+    // All loans overdue as of the given date
+    public List<Loan> overdue(LocalDate asOf) {
+        return overdueBy(0, asOf);
+    }
+
+    // Drops empty buckets for days before the given date; returns how many
+    public int prune(LocalDate before) {
+        int pruned = 0;
+        for (Long day : buckets.headMap(before.toEpochDay(), false).keySet()) {
+            Bucket bucket = buckets.get(day);
+            if (bucket != null && bucket.close() && buckets.remove(day, bucket)) {
+                pruned++;
+            }
+        }
+        return pruned;
+    }
+
+    // Number of due days currently indexed, emptied ones included
+    public int bucketCount() {
+        return buckets.size();
+    }
+
+    // Prunes the days before today once per period on a daemon thread
+    public synchronized void startPruning(long period, TimeUnit unit) {
+        if (pruner != null) {
+            return;
+        }
+        pruner = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "due-date-prune");
+                thread.setDaemon(true);
+                return thread;
+            });
+        pruner.scheduleWithFixedDelay(() -> prune(LocalDate.now()), period, period, unit);
+    }
+
+    public synchronized void stopPruning() {
+        if (pruner != null) {
+            pruner.shutdown();
+            pruner = null;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * FeePolicy - Late Fee Rules for One Item Type
+ *
+ * This immutable class turns a number of days late into a fee in cents.
+ * All arithmetic is on primitive longs, so computing a fee never allocates
+ * and totals never drift the way double dollars do.
+ *
+ * Key Features:
+ * - Grace days: the first N late days are free
+ * - Tiered daily rates: e.g. 25c/day for the first week, then 50c/day
+ * - Optional cap on the fee for a single item
+ */
+
+import java.util.Arrays;
+
+// FeePolicy class to compute late fees in cents
+public final class FeePolicy {
+    public static final long NO_CAP = Long.MAX_VALUE;
+
+    private final int graceDays;
+    private final long capCents;
+    private final int[] tierStartDays;   // billable day on which each tier begins; first is 0
+    private final long[] tierRateCents;  // daily rate within each tier
+
+    private FeePolicy(int graceDays, long capCents, int[] tierStartDays, long[] tierRateCents) {
+        this.graceDays = graceDays;
+        this.capCents = capCents;
+        this.tierStartDays = tierStartDays;
+        this.tierRateCents = tierRateCents;
+    }
+
+    // A single flat daily rate with no grace period and no cap
+    public static FeePolicy daily(long rateCents) {
+        return new FeePolicy(0, NO_CAP, new int[] {0}, new long[] {rateCents});
+    }
+
+    public FeePolicy withGraceDays(int days) {
+        return new FeePolicy(days, capCents, tierStartDays, tierRateCents);
+    }
+
+    public FeePolicy withCap(long cents) {
+        return new FeePolicy(graceDays, cents, tierStartDays, tierRateCents);
+    }
+
+    // Adds a tier charging rateCents per day from the given billable day onwards
+    public FeePolicy withTier(int fromBillableDay, long rateCents) {
+        int last = tierStartDays.length - 1;
+        if (fromBillableDay <= tierStartDays[last]) {
+            throw new IllegalArgumentException("Tiers must be added in increasing day order");
+        }
+        int[] starts = Arrays.copyOf(tierStartDays, last + 2);
+        long[] rates = Arrays.copyOf(tierRateCents, last + 2);
+        starts[last + 1] = fromBillableDay;
+        rates[last + 1] = rateCents;
+        return new FeePolicy(graceDays, capCents, starts, rates);
+    }
+
+    public long lateFeeCents(int daysLate) {
+        int billable = daysLate - graceDays;
+        if (billable <= 0) {
+            return 0;
+        }
+        long fee = 0;
+        for (int tier = 0; tier < tierStartDays.length; tier++) {
+            int start = tierStartDays[tier];
+            if (billable <= start) {
+                break;
+            }
+            int end = tier + 1 < tierStartDays.length ? Math.min(billable, tierStartDays[tier + 1]) : billable;
+            fee += (long) (end - start) * tierRateCents[tier];
+        }
+        return Math.min(fee, capCents);
+    }
+
+    public int getGraceDays() { return graceDays; }
+
+    public long getCapCents() { return capCents; }
+}
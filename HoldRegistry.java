@@ -0,0 +1,160 @@
+/**
+ * HoldRegistry - Per-Item Reservation Queues
+ *
+ * This class keeps the members waiting for each borrowed item, in the order
+ * they placed their holds, so a returned item can go straight to the next
+ * member in line.
+ *
+ * Key Features:
+ * - One lock-free FIFO queue per item, so hot titles with thousands of
+ *   holds never serialize returns of other items
+ * - O(1) enqueue, O(1) cancel and amortized O(1) hand-off
+ * - Lazy cancellation: a cancelled hold only flips its state and is skipped
+ *   (and dropped) when it reaches the head of the queue
+ * - A queue is removed from the map as soon as it is empty, so items whose
+ *   holds were all filled or cancelled cost nothing
+ * - Each hold is filled or cancelled exactly once, decided by a
+ *   compare-and-set on its state, so concurrent returns and cancels never
+ *   hand one hold two items
+ *
+ * CirculationEngine decides when holds are served; this class only orders
+ * them. Holds are kept in memory and are not journaled.
+ */
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+// HoldRegistry class to queue members waiting for borrowed items
+public class HoldRegistry {
+
+    public enum HoldState {
+        WAITING,
+        FILLED,
+        CANCELLED
+    }
+
+    // One member waiting for one item
+    public static final class Hold {
+        private final Member member;
+        private final String itemId;
+        private final AtomicReference<HoldState> state = new AtomicReference<>(HoldState.WAITING);
+
+        Hold(Member member, String itemId) {
+            this.member = member;
+            this.itemId = itemId;
+        }
+
+        public Member getMember() { return member; }
+
+        public String getItemId() { return itemId; }
+
+        public HoldState getState() { return state.get(); }
+    }
+
+    private final Map<String, Queue<Hold>> queuesByItem = new ConcurrentHashMap<>();
+    private final Map<String, Hold> activeHolds = new ConcurrentHashMap<>();
+
+    // Queues the member for the item; returns null if they are already waiting for it
+    public Hold place(Member member, String itemId) {
+        Hold hold = new Hold(member, itemId);
+        if (activeHolds.putIfAbsent(key(member.getMemberId(), itemId), hold) != null) {
+            return null;
+        }
+        // Added under the map's lock for the item, so dropIfEmpty() cannot
+        // remove the queue between its lookup and this add
+        queuesByItem.compute(itemId, (id, queue) -> {
+                if (queue == null) {
+                    queue = new ConcurrentLinkedQueue<>();
+                }
+                queue.add(hold);
+                return queue;
+            });
+        return hold;
+    }
+
+    // Cancels the member's waiting hold; returns false if there was none
+    public boolean cancel(Member member, String itemId) {
+        Hold hold = activeHolds.get(key(member.getMemberId(), itemId));
+        if (hold == null || !hold.state.compareAndSet(HoldState.WAITING, HoldState.CANCELLED)) {
+            return false;
+        }
+        activeHolds.remove(key(member.getMemberId(), itemId), hold);
+        hasWaiting(itemId); // drops the queue if this was its last waiting hold
+        return true;
+    }
+
+    /**
+     * Removes and fills the oldest waiting hold for the item, dropping
+     * cancelled holds on the way. Returns null if nobody is waiting.
+     */
+    public Hold fillNext(String itemId) {
+        Queue<Hold> queue = queuesByItem.get(itemId);
+        if (queue == null) {
+            return null;
+        }
+        Hold hold;
+        while ((hold = queue.poll()) != null) {
+            if (hold.state.compareAndSet(HoldState.WAITING, HoldState.FILLED)) {
+                activeHolds.remove(key(hold.member.getMemberId(), itemId), hold);
+                break;
+            }
+        }
+        if (queue.isEmpty()) {
+            dropIfEmpty(itemId);
+        }
+        return hold;
+    }
+
+    // True if the queue for the item may still hold a waiting member
+    public boolean hasWaiting(String itemId) {
+        Queue<Hold> queue = queuesByItem.get(itemId);
+        if (queue == null) {
+            return false;
+        }
+        // Drop cancelled holds at the head so this stays O(1) amortized
+        Hold head;
+        while ((head = queue.peek()) != null && head.state.get() != HoldState.WAITING) {
+            queue.remove(head);
+        }
+        if (head == null) {
+            dropIfEmpty(itemId);
+        }
+        return head != null;
+    }
+
+    // Number of items with a queue; items whose holds are all gone have none
+    int queuedItems() {
+        return queuesByItem.size();
+    }
+
+    // Removes the item's queue if it is still empty, atomically with place()
+    private void dropIfEmpty(String itemId) {
+        queuesByItem.computeIfPresent(itemId, (id, queue) -> queue.isEmpty() ? null : queue);
+    }
+
+    // Members ahead of this member in the item's queue (0 = next), or -1 if not waiting; O(queue length)
+    public int position(Member member, String itemId) {
+        Hold hold = activeHolds.get(key(member.getMemberId(), itemId));
+        Queue<Hold> queue = queuesByItem.get(itemId);
+        if (hold == null || queue == null) {
+            return -1;
+        }
+        int ahead = 0;
+        for (Hold other : queue) {
+            if (other == hold) {
+                return ahead;
+            }
+            if (other.state.get() == HoldState.WAITING) {
+                ahead++;
+            }
+        }
+        return -1;
+    }
+
+    private static String key(String memberId, String itemId) {
+        return memberId + '\u0000' + itemId;
+    }
+}
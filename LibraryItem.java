@@ -5,12 +5,13 @@
  * It implements the core functionality required by Requirement 1 (Class Design and Hierarchy).
  * 
  * Key Features:
- * - Abstract method for late fee calculation (polymorphic implementation)
- * - Status tracking (Available/Borrowed)
+ * - Late fee calculation in exact cents, driven by the FeeSchedule policy table
+ * - Thread-safe status tracking (Available/Borrowed/Transferred) with compare-and-set
+ * - Item type tag used by the Catalog's secondary indexes
  * - Common attributes for all library items
  * 
  * Design Patterns:
- * - Template Method: calculateLateFee() is implemented differently by each subclass
+ * - Strategy: each ItemType's fee rules come from a pluggable FeePolicy
  * - State Pattern: ItemStatus enum manages item availability
  */
 
@@ -24,11 +25,19 @@ import java.util.Scanner;
 public abstract class LibraryItem {
     private String title;
     private String id;
-    private ItemStatus status;
+    private volatile ItemStatus status;
+    private Catalog catalog; // set when the item is added to a Catalog
 
     public enum ItemStatus {
         AVAILABLE,
-        BORROWED
+        BORROWED,
+        TRANSFERRED // moved to another branch; kept so the id stays reserved
+    }
+
+    public enum ItemType {
+        BOOK,
+        MAGAZINE,
+        DVD
     }
 
     public LibraryItem(String title, String id) {
@@ -37,7 +46,19 @@ public abstract class LibraryItem {
         this.status = ItemStatus.AVAILABLE;
     }
 
-    public abstract double calculateLateFee(int daysLate);
+    // Late fee in cents under the installed FeeSchedule; never allocates.
+    // Not timed here: a lookup costs less than a nanoTime() pair, so callers
+    // time the work around it (Loan.onReturn, BatchFeeEngine.run)
+    public long calculateLateFeeCents(int daysLate) {
+        return FeeSchedule.current().lateFeeCents(getType(), daysLate);
+    }
+
+    // Late fee in dollars, for display only; use calculateLateFeeCents() for sums
+    public double calculateLateFee(int daysLate) {
+        return calculateLateFeeCents(daysLate) / 100.0;
+    }
+
+    public abstract ItemType getType();
 
     public String getTitle() { return title; }
 
@@ -45,5 +66,25 @@ public abstract class LibraryItem {
 
     public ItemStatus getStatus() { return status; }
 
-    public void setStatus(ItemStatus status) { this.status = status; }
+    // Status transitions lock only this item, so the catalog index is updated
+    // in the same order as the status itself without a global lock
+    public synchronized void setStatus(ItemStatus status) {
+        ItemStatus previous = this.status;
+        this.status = status;
+        if (catalog != null && previous != status) {
+            catalog.statusChanged(this, previous, status);
+        }
+    }
+
+    // Atomically moves the item from expected to update; returns false if the
+    // item was not in the expected status (e.g. another desk borrowed it first)
+    public synchronized boolean compareAndSetStatus(ItemStatus expected, ItemStatus update) {
+        if (status != expected) {
+            return false;
+        }
+        setStatus(update);
+        return true;
+    }
+
+    synchronized void attachTo(Catalog catalog) { this.catalog = catalog; }
 }
\ No newline at end of file
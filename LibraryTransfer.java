@@ -0,0 +1,749 @@
+/**
+ * LibraryTransfer - Streaming Bulk Import and Export of Items and Members
+ *
+ * This class loads Book/Magazine/DVD and Member records from CSV or
+ * JSON-lines dumps and writes the same formats back out, so a catalog of
+ * millions of items no longer has to be built by initializeLibrary().
+ *
+ * Import Pipeline:
+ * - The calling thread reads the file record by record and hands batches
+ *   of BATCH_LINES records to a bounded queue, so memory stays constant no
+ *   matter how large the file is
+ * - Parser threads turn each batch into objects and insert it into the
+ *   Catalog (addAll) or MemberRegistry, both of which accept concurrent adds
+ * - Bad lines are skipped and counted; the first MAX_ERRORS are kept with
+ *   their line numbers for the report
+ * - If a parser thread fails, the reader stops, the other parser threads
+ *   are interrupted and the import throws an IOException
+ *
+ * Formats (chosen by file extension: .csv, otherwise JSON lines):
+ * - Items CSV: header row naming the columns type,id,title,creator,isbn in
+ *   any order; creator is the author, magazine issue or director
+ * - Items JSON lines: {"type":"BOOK","id":"B001","title":"...","author":"...","isbn":"..."}
+ *   with "issue" for magazines and "director" for DVDs
+ * - Members: CSV columns id,name or {"id":"A001","name":"..."}
+ * - CSV fields may be quoted ("..." with "" for a quote); export quotes any
+ *   field with a comma, quote, CR or LF, and import keeps line breaks inside
+ *   quoted fields, so every title survives a round trip
+ *
+ * Only catalog data is transferred; item status and loans come from the
+ * LoanJournal.
+ */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// LibraryTransfer class to import and export library data in bulk
+public class LibraryTransfer {
+    static final int BATCH_LINES = 4096;
+    static final int MAX_ERRORS = 20;
+    // Longest record the reader accepts; no valid item or member comes close
+    static final int MAX_RECORD_CHARS = 1 << 20;
+    private static final int IO_BUFFER_CHARS = 1 << 20;
+
+    private static final String[] ITEM_COLUMNS = { "type", "id", "title", "creator", "isbn" };
+    private static final String[] MEMBER_COLUMNS = { "id", "name" };
+    private static final int TYPE = 0;
+    private static final int ID = 1;
+    private static final int TITLE = 2;
+    private static final int CREATOR = 3;
+    private static final int ISBN = 4;
+    private static final int MEMBER_ID = 0;
+    private static final int NAME = 1;
+
+    private final int parseThreads;
+
+    // Outcome of one import
+    public static class Report {
+        private long lines;
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong duplicates = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        private long elapsedMillis;
+
+        public long getLines() { return lines; }
+
+        public long getImported() { return imported.get(); }
+
+        public long getDuplicates() { return duplicates.get(); }
+
+        public long getRejected() { return rejected.get(); }
+
+        // The first MAX_ERRORS problems, as "line N: message"
+        public List<String> getErrors() { return new ArrayList<>(errors); }
+
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        private void reject(long line, String message) {
+            rejected.incrementAndGet();
+            // Check and add under the list's lock, so workers never keep more than MAX_ERRORS
+            synchronized (errors) {
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add("line " + line + ": " + message);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d lines, %d imported, %d duplicates, %d rejected in %d ms",
+                lines, imported.get(), duplicates.get(), rejected.get(), elapsedMillis);
+        }
+    }
+
+    // Converts one parsed record into an object, or throws IllegalArgumentException
+    private interface RecordParser<T> {
+        T parse(String[] values);
+    }
+
+    // Inserts a parsed batch and returns how many were new
+    private interface BatchSink<T> {
+        int insert(List<T> batch);
+    }
+
+    // Records and the file line each one starts on (a quoted CSV field may span lines)
+    private static final class Batch {
+        final long[] lineNumbers;
+        final List<String> lines;
+
+        Batch(long[] lineNumbers, List<String> lines) {
+            this.lineNumbers = lineNumbers;
+            this.lines = lines;
+        }
+    }
+
+    private static final Batch END = new Batch(new long[0], Collections.emptyList());
+    private static final long OFFER_WAIT_MILLIS = 100;
+
+    /**
+     * Reads the file one record at a time. A record ends at LF (or CRLF);
+     * for CSV, line breaks inside a quoted field belong to the record and are
+     * kept exactly. Quotes follow parseCsv: a quote opens a quoted field only
+     * at the start of a field, and "" inside one is an escaped quote. A
+     * record longer than MAX_RECORD_CHARS (say, an unterminated quote that
+     * would swallow the rest of the file) fails the import. Scans a char
+     * buffer instead of calling read() per char.
+     */
+    private static final class RecordReader {
+        // CSV quote states
+        private static final int UNQUOTED = 0;
+        private static final int QUOTED = 1;
+        private static final int CLOSED = 2;     // a quote inside a quoted field: the end, or half of ""
+
+        private final Reader in;
+        private final boolean csv;
+        private final char[] buffer = new char[IO_BUFFER_CHARS];
+        private final StringBuilder record = new StringBuilder(256);
+        private int position;
+        private int limit;
+        private long lineNumber;      // lines consumed so far
+        private long recordLine;      // line the last record started on
+
+        RecordReader(Reader in, boolean csv) {
+            this.in = in;
+            this.csv = csv;
+        }
+
+        // The next record without its line terminator, or null at end of file
+        String next() throws IOException {
+            record.setLength(0);
+            recordLine = lineNumber + 1;
+            int state = UNQUOTED;
+            boolean fieldStart = true;
+            boolean any = false;
+            while (true) {
+                if (position == limit) {
+                    limit = in.read(buffer, 0, buffer.length);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        if (!any) {
+                            return null;
+                        }
+                        lineNumber++;
+                        return record.toString();
+                    }
+                }
+                any = true;
+                int start = position;
+                while (position < limit) {
+                    char c = buffer[position];
+                    if (csv && state != UNQUOTED) {
+                        if (c == '"') {
+                            // The second quote of "" goes back into the field
+                            state = state == QUOTED ? CLOSED : QUOTED;
+                            position++;
+                            continue;
+                        }
+                        if (state == QUOTED) {
+                            if (c == '\n') {
+                                lineNumber++;
+                            }
+                            position++;
+                            continue;
+                        }
+                        state = UNQUOTED;
+                    }
+                    if (c == '\n') {
+                        lineNumber++;
+                        record.append(buffer, start, position - start);
+                        position++;
+                        checkLength();
+                        int end = record.length();
+                        if (end > 0 && record.charAt(end - 1) == '\r') {
+                            record.setLength(end - 1);
+                        }
+                        return record.toString();
+                    }
+                    if (csv) {
+                        if (c == '"' && fieldStart) {
+                            state = QUOTED;
+                        }
+                        fieldStart = c == ',';
+                    }
+                    position++;
+                }
+                record.append(buffer, start, position - start);
+                checkLength();
+            }
+        }
+
+        private void checkLength() throws IOException {
+            if (record.length() > MAX_RECORD_CHARS) {
+                throw new IOException("Record starting on line " + recordLine + " is longer than "
+                    + MAX_RECORD_CHARS + " characters" + (csv ? " (unterminated quote?)" : ""));
+            }
+        }
+
+        long recordLine() {
+            return recordLine;
+        }
+
+        long lines() {
+            return lineNumber;
+        }
+    }
+
+    public LibraryTransfer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public LibraryTransfer(int parseThreads) {
+        this.parseThreads = Math.max(1, parseThreads);
+    }
+
+    public Report importItems(Path file, Catalog catalog) throws IOException {
+        return runImport(file, ITEM_COLUMNS, LibraryTransfer::toItem, catalog::addAll);
+    }
+
+    public Report importMembers(Path file, MemberRegistry members) throws IOException {
+        return runImport(file, MEMBER_COLUMNS, values -> new Member(required(values, MEMBER_ID, "id"),
+                required(values, NAME, "name")), batch -> {
+                int added = 0;
+                for (Member member : batch) {
+                    if (members.add(member)) {
+                        added++;
+                    }
+                }
+                return added;
+            });
+    }
+
+    // Writes the items and returns how many were written; items may be a lazy Iterable
+    public long exportItems(Iterable<? extends LibraryItem> items, Path file) throws IOException {
+        boolean csv = isCsv(file);
+        long written = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder(256);
+            if (csv) {
+                out.write(String.join(",", ITEM_COLUMNS));
+                out.write('\n');
+            }
+            String[] values = new String[ITEM_COLUMNS.length];
+            for (LibraryItem item : items) {
+                values[TYPE] = item.getType().name();
+                values[ID] = item.getId();
+                values[TITLE] = item.getTitle();
+                values[CREATOR] = creatorOf(item);
+                values[ISBN] = item instanceof Book ? ((Book) item).getIsbn() : null;
+                line.setLength(0);
+                if (csv) {
+                    appendCsv(line, values);
+                } else {
+                    appendJson(line, values, itemJsonKeys(item.getType()));
+                }
+                out.append(line);
+                written++;
+            }
+        }
+        return written;
+    }
+
+    public long exportMembers(Iterable<Member> members, Path file) throws IOException {
+        boolean csv = isCsv(file);
+        long written = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder(128);
+            if (csv) {
+                out.write(String.join(",", MEMBER_COLUMNS));
+                out.write('\n');
+            }
+            String[] values = new String[MEMBER_COLUMNS.length];
+            for (Member member : members) {
+                values[MEMBER_ID] = member.getMemberId();
+                values[NAME] = member.getName();
+                line.setLength(0);
+                if (csv) {
+                    appendCsv(line, values);
+                } else {
+                    appendJson(line, values, MEMBER_COLUMNS);
+                }
+                out.append(line);
+                written++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Reads the file on the calling thread and parses/inserts batches on
+     * parseThreads workers. The queue holds at most two batches per worker,
+     * which bounds memory use. A worker that fails records its exception;
+     * the reader then stops, interrupts the other workers and rethrows it
+     * as an IOException instead of waiting on a queue nobody drains.
+     */
+    private <T> Report runImport(Path file, String[] columns, RecordParser<T> parser, BatchSink<T> sink)
+    throws IOException {
+        long started = System.nanoTime();
+        Report report = new Report();
+        try (Reader in = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+            RecordReader reader = new RecordReader(in, isCsv(file));
+            int[] csvMapping = null;
+            if (isCsv(file)) {
+                String header = reader.next();
+                if (header == null) {
+                    throw new IOException("Empty CSV file: " + file);
+                }
+                csvMapping = csvMapping(header, columns);
+            }
+
+            BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(parseThreads * 2);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<Thread> workers = new ArrayList<>();
+            int[] mapping = csvMapping;
+            for (int i = 0; i < parseThreads; i++) {
+                Thread worker = new Thread(() -> {
+                        try {
+                            parseBatches(queue, columns, mapping, parser, sink, report);
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        }
+                    }, "library-import-" + i);
+                worker.start();
+                workers.add(worker);
+            }
+            try {
+                String line;
+                List<String> lines = new ArrayList<>(BATCH_LINES);
+                long[] lineNumbers = new long[BATCH_LINES];
+                while ((line = reader.next()) != null) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    lineNumbers[lines.size()] = reader.recordLine();
+                    lines.add(line);
+                    if (lines.size() == BATCH_LINES) {
+                        put(queue, new Batch(lineNumbers, lines), failure);
+                        lines = new ArrayList<>(BATCH_LINES);
+                        lineNumbers = new long[BATCH_LINES];
+                    }
+                }
+                if (!lines.isEmpty()) {
+                    put(queue, new Batch(lineNumbers, lines), failure);
+                }
+                report.lines = reader.lines();
+            } finally {
+                try {
+                    for (int i = 0; i < workers.size(); i++) {
+                        put(queue, END, failure);
+                    }
+                } catch (IOException e) {
+                    // A worker failed or this thread was interrupted: stop the rest
+                    for (Thread worker : workers) {
+                        worker.interrupt();
+                    }
+                }
+                for (Thread worker : workers) {
+                    try {
+                        worker.join();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+            if (failure.get() != null) {
+                throw new IOException("Import failed: " + failure.get(), failure.get());
+            }
+        }
+        report.elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        return report;
+    }
+
+    // csvMapping is null for JSON lines, else the column index of each CSV field (-1 = ignored)
+    private <T> void parseBatches(BlockingQueue<Batch> queue, String[] columns, int[] csvMapping,
+    RecordParser<T> parser, BatchSink<T> sink, Report report) {
+        String[] values = new String[columns.length];
+        String[] fields = csvMapping == null ? null : new String[csvMapping.length];
+        List<T> parsed = new ArrayList<>(BATCH_LINES);
+        while (true) {
+            Batch batch;
+            try {
+                batch = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (batch == END) {
+                return;
+            }
+            parsed.clear();
+            for (int i = 0; i < batch.lines.size(); i++) {
+                try {
+                    Arrays.fill(values, null);
+                    if (csvMapping != null) {
+                        Arrays.fill(fields, null);
+                        parseCsv(batch.lines.get(i), fields);
+                        for (int f = 0; f < fields.length; f++) {
+                            if (csvMapping[f] >= 0) {
+                                values[csvMapping[f]] = fields[f];
+                            }
+                        }
+                    } else {
+                        parseJson(batch.lines.get(i), values, columns);
+                    }
+                    parsed.add(parser.parse(values));
+                } catch (IllegalArgumentException e) {
+                    report.reject(batch.lineNumbers[i], e.getMessage());
+                }
+            }
+            int added = sink.insert(parsed);
+            report.imported.addAndGet(added);
+            report.duplicates.addAndGet(parsed.size() - added);
+        }
+    }
+
+    private static LibraryItem toItem(String[] values) {
+        String type = required(values, TYPE, "type").toUpperCase(Locale.ROOT);
+        String id = required(values, ID, "id");
+        String title = required(values, TITLE, "title");
+        switch (type) {
+            case "BOOK":
+                return new Book(title, id, values[CREATOR], values[ISBN]);
+            case "MAGAZINE":
+                return new Magazine(title, id, values[CREATOR]);
+            case "DVD":
+                return new DVD(title, id, values[CREATOR]);
+            default:
+                throw new IllegalArgumentException("unknown item type " + type);
+        }
+    }
+
+    private static String required(String[] values, int index, String name) {
+        String value = values[index];
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("missing " + name);
+        }
+        return value;
+    }
+
+    private static String creatorOf(LibraryItem item) {
+        if (item instanceof Book) {
+            return ((Book) item).getAuthor();
+        } else if (item instanceof Magazine) {
+            return ((Magazine) item).getIssueNumber();
+        } else if (item instanceof DVD) {
+            return ((DVD) item).getDirector();
+        }
+        return null;
+    }
+
+    // JSON key for each item column; the creator key depends on the type
+    private static String[] itemJsonKeys(LibraryItem.ItemType type) {
+        String creator = type == LibraryItem.ItemType.BOOK ? "author"
+            : type == LibraryItem.ItemType.MAGAZINE ? "issue" : "director";
+        return new String[] { "type", "id", "title", creator, "isbn" };
+    }
+
+    private static boolean isCsv(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+    }
+
+    // Column index for each header field, -1 for columns this import does not use
+    private static int[] csvMapping(String header, String[] columns) throws IOException {
+        String[] names;
+        try {
+            names = new String[parseCsv(header, new String[0])];
+            parseCsv(header, names);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Bad CSV header: " + e.getMessage());
+        }
+        int[] mapping = new int[names.length];
+        boolean hasId = false;
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i] == null ? "" : names[i].trim().toLowerCase(Locale.ROOT);
+            mapping[i] = Arrays.asList(columns).indexOf(name);
+            hasId |= mapping[i] >= 0 && columns[mapping[i]].equals("id");
+        }
+        if (!hasId) {
+            throw new IOException("CSV header has no id column: " + header);
+        }
+        return mapping;
+    }
+
+    // Waits for queue space, but gives up as soon as a worker has failed
+    private static void put(BlockingQueue<Batch> queue, Batch batch, AtomicReference<Throwable> failure)
+    throws IOException {
+        try {
+            while (!queue.offer(batch, OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (failure.get() != null) {
+                    throw new IOException("Import failed: " + failure.get(), failure.get());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        }
+    }
+
+    /**
+     * Splits one CSV line into values[0..]; extra fields beyond the array are
+     * ignored. Returns the number of fields on the line.
+     */
+    static int parseCsv(String line, String[] values) {
+        int field = 0;
+        int i = 0;
+        int length = line.length();
+        StringBuilder quoted = null;
+        while (i <= length) {
+            String value;
+            if (i < length && line.charAt(i) == '"') {
+                if (quoted == null) {
+                    quoted = new StringBuilder();
+                }
+                quoted.setLength(0);
+                i++;
+                while (true) {
+                    if (i >= length) {
+                        throw new IllegalArgumentException("unterminated quoted field");
+                    }
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        if (i < length && line.charAt(i) == '"') {
+                            quoted.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+                value = quoted.toString();
+                if (i < length && line.charAt(i) != ',') {
+                    throw new IllegalArgumentException("text after closing quote");
+                }
+            } else {
+                int end = line.indexOf(',', i);
+                if (end < 0) {
+                    end = length;
+                }
+                value = line.substring(i, end);
+                i = end;
+            }
+            if (field < values.length) {
+                values[field] = value.isEmpty() ? null : value;
+            }
+            field++;
+            i++; // skip the comma
+        }
+        return field;
+    }
+
+    /**
+     * Reads a flat JSON object of string values. Keys are matched against
+     * columns (author, issue and director all map to creator); other keys
+     * are ignored.
+     */
+    static void parseJson(String line, String[] values, String[] columns) {
+        int[] position = { skipSpace(line, 0) };
+        expect(line, position, '{');
+        position[0] = skipSpace(line, position[0]);
+        if (position[0] < line.length() && line.charAt(position[0]) == '}') {
+            return;
+        }
+        while (true) {
+            position[0] = skipSpace(line, position[0]);
+            String key = readJsonString(line, position);
+            position[0] = skipSpace(line, position[0]);
+            expect(line, position, ':');
+            position[0] = skipSpace(line, position[0]);
+            String value;
+            if (line.startsWith("null", position[0])) {
+                value = null;
+                position[0] += 4;
+            } else {
+                value = readJsonString(line, position);
+            }
+            int column = jsonColumn(key, columns);
+            if (column >= 0) {
+                values[column] = value == null || value.isEmpty() ? null : value;
+            }
+            position[0] = skipSpace(line, position[0]);
+            if (position[0] < line.length() && line.charAt(position[0]) == ',') {
+                position[0]++;
+                continue;
+            }
+            expect(line, position, '}');
+            return;
+        }
+    }
+
+    private static int jsonColumn(String key, String[] columns) {
+        if (columns == ITEM_COLUMNS && (key.equals("author") || key.equals("issue") || key.equals("director"))) {
+            return CREATOR;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String readJsonString(String line, int[] position) {
+        expect(line, position, '"');
+        StringBuilder value = null;
+        int i = position[0];
+        int start = i;
+        while (true) {
+            if (i >= line.length()) {
+                throw new IllegalArgumentException("unterminated string");
+            }
+            char c = line.charAt(i);
+            if (c == '"') {
+                position[0] = i + 1;
+                return value == null ? line.substring(start, i) : value.append(line, start, i).toString();
+            }
+            if (c == '\\') {
+                if (value == null) {
+                    value = new StringBuilder();
+                }
+                value.append(line, start, i);
+                if (i + 1 >= line.length()) {
+                    throw new IllegalArgumentException("bad escape");
+                }
+                char escaped = line.charAt(i + 1);
+                switch (escaped) {
+                    case 'n': value.append('\n'); break;
+                    case 't': value.append('\t'); break;
+                    case 'r': value.append('\r'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        if (i + 6 > line.length()) {
+                            throw new IllegalArgumentException("bad unicode escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(line.substring(i + 2, i + 6), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("bad unicode escape");
+                        }
+                        i += 4;
+                        break;
+                    default: value.append(escaped);
+                }
+                i += 2;
+                start = i;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private static void expect(String line, int[] position, char c) {
+        if (position[0] >= line.length() || line.charAt(position[0]) != c) {
+            throw new IllegalArgumentException("expected '" + c + "' at column " + (position[0] + 1));
+        }
+        position[0]++;
+    }
+
+    private static int skipSpace(String line, int i) {
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static void appendCsv(StringBuilder line, String[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            String value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                line.append(value);
+            } else {
+                line.append('"').append(value.replace("\"", "\"\"")).append('"');
+            }
+        }
+        line.append('\n');
+    }
+
+    private static void appendJson(StringBuilder line, String[] values, String[] keys) {
+        line.append('{');
+        boolean first = true;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                continue;
+            }
+            if (!first) {
+                line.append(',');
+            }
+            first = false;
+            line.append('"').append(keys[i]).append("\":\"");
+            String value = values[i];
+            for (int c = 0; c < value.length(); c++) {
+                char ch = value.charAt(c);
+                if (ch == '"' || ch == '\\') {
+                    line.append('\\').append(ch);
+                } else if (ch < 0x20) {
+                    line.append(String.format("\\u%04x", (int) ch));
+                } else {
+                    line.append(ch);
+                }
+            }
+            line.append('"');
+        }
+        line.append("}\n");
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * ListingTableModel - Key-Sorted Table Model for Large Swing Listings
+ *
+ * This class backs the JTable listings in MainLMS. A JTable only asks the
+ * model for the cells of the rows currently scrolled into view, so even a
+ * multi-million row listing renders as fast as a short one.
+ *
+ * Key Features:
+ * - Columns are declared as (name, value function) pairs over a row type
+ * - Rows are kept sorted by a string key (item id, member id, ...)
+ * - Incremental updates: upsert() and remove() find the row by binary search
+ *   and fire a single-row event, so one borrow or return does not rebuild
+ *   the listing
+ * - Cell values are read from the row objects at paint time, so live fields
+ *   such as item status are always current
+ *
+ * All methods must be called on the Event Dispatch Thread. Build and sort
+ * large row lists in the background (see keyOrder()) and pass them to
+ * setRows().
+ */
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+// ListingTableModel class to show key-sorted rows in a JTable
+public class ListingTableModel<T> extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private final Function<T, String> keyOf;
+    private final List<String> columnNames = new ArrayList<>();
+    private final List<Function<T, Object>> columnValues = new ArrayList<>();
+    private List<T> rows = new ArrayList<>();
+
+    public ListingTableModel(Function<T, String> keyOf) {
+        this.keyOf = keyOf;
+    }
+
+    // Declares the next column; call before the model is attached to a table
+    public ListingTableModel<T> column(String name, Function<T, Object> value) {
+        columnNames.add(name);
+        columnValues.add(value);
+        return this;
+    }
+
+    // Order that setRows() expects; safe to use off the EDT
+    public Comparator<T> keyOrder() {
+        return Comparator.comparing(keyOf);
+    }
+
+    // Replaces every row; the list must already be sorted by keyOrder()
+    public void setRows(List<T> sortedRows) {
+        rows = new ArrayList<>(sortedRows);
+        fireTableDataChanged();
+    }
+
+    public List<T> getRows() {
+        return Collections.unmodifiableList(rows);
+    }
+
+    // Inserts the row at its sorted position, or replaces the row with its key
+    public void upsert(T row) {
+        int index = indexOf(keyOf.apply(row));
+        if (index >= 0) {
+            rows.set(index, row);
+            fireTableRowsUpdated(index, index);
+        } else {
+            index = -(index + 1);
+            rows.add(index, row);
+            fireTableRowsInserted(index, index);
+        }
+    }
+
+    // Removes the row with the given key; returns false if there is none
+    public boolean remove(String key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return false;
+        }
+        rows.remove(index);
+        fireTableRowsDeleted(index, index);
+        return true;
+    }
+
+    // Repaints the row with the given key after its live fields changed
+    public void refresh(String key) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            fireTableRowsUpdated(index, index);
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.size();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames.get(column);
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return columnValues.get(column).apply(rows.get(row));
+    }
+
+    // Binary search by key; returns -(insertion point + 1) if absent
+    private int indexOf(String key) {
+        int low = 0;
+        int high = rows.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int order = keyOf.apply(rows.get(middle)).compareTo(key);
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+}
@@ -6,19 +6,24 @@
  * 
  * Key Features:
  * - Tracks borrowing dates and due dates
- * - Handles multiple items per loan (1..* relationship)
+ * - Handles multiple items per loan (1..* relationship), including
+ *   returning items one at a time from a multi-item loan
  * - Implements onBorrow and onReturn events
- * - Calculates late fees using polymorphic method calls
+ * - Calculates late fees in exact cents through LibraryItem.calculateLateFeeCents(),
+ *   which looks up the FeeSchedule policy for the item type
  * 
  * Event Handlers:
  * - onBorrow(): Updates item status and logs transaction
  * - onReturn(): Processes returns and calculates fees
+ *
+ * Transactions are logged as BORROW/RETURN/LATE_FEE events on the
+ * asynchronous LoanEventLog, so the handlers never block on console output.
  */
 
 import java.util.List;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 
 // Loan class to manage borrowing transactions
 public class Loan {
@@ -27,37 +32,92 @@ public class Loan {
     private LocalDate dueDate;
     private LocalDate returnDate;
     private List<LibraryItem> items;
+    public static final int LOAN_PERIOD_DAYS = 14; // 2-week loan period
 
     public Loan(Member member, LibraryItem item) {
+        this(member, item, LocalDate.now());
+    }
+
+    public Loan(Member member, LibraryItem item, LocalDate borrowDate) {
+        this(member, item, borrowDate, borrowDate.plusDays(LOAN_PERIOD_DAYS));
+    }
+
+    // Used when a loan is rebuilt from the journal with its original dates
+    public Loan(Member member, LibraryItem item, LocalDate borrowDate, LocalDate dueDate) {
+        this(member, Collections.singletonList(item), borrowDate, dueDate);
+    }
+
+    // A batched checkout: several items borrowed together in one transaction
+    public Loan(Member member, List<LibraryItem> items, LocalDate borrowDate, LocalDate dueDate) {
         this.member = member;
-        this.items = new ArrayList<>();  // Initialize the list
-        this.items.add(item);           // Add the initial item
-        this.borrowDate = LocalDate.now();
-        this.dueDate = borrowDate.plusDays(14); // 2-week loan period
+        // Copy-on-write so readers can iterate while an item is split off for return
+        this.items = new CopyOnWriteArrayList<>(items);
+        this.borrowDate = borrowDate;
+        this.dueDate = dueDate;
+    }
+
+    /**
+     * Partial return support: removes one item from this loan and returns it
+     * as a separate single-item loan with the same dates, ready for
+     * onReturn(). Returns null if the item is not part of this loan.
+     */
+    Loan split(String itemId) {
+        for (LibraryItem item : items) {
+            if (item.getId().equals(itemId)) {
+                items.remove(item);
+                return new Loan(member, item, borrowDate, dueDate);
+            }
+        }
+        return null;
+    }
+
+    public boolean contains(String itemId) {
+        for (LibraryItem item : items) {
+            if (item.getId().equals(itemId)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public void onBorrow() {
+        long start = System.nanoTime();
+        LoanEventLog events = LoanEventLog.global();
+        long dueDay = dueDate.toEpochDay();
         for (LibraryItem item : items) {
             item.setStatus(LibraryItem.ItemStatus.BORROWED);
-            System.out.println("Item borrowed: " + item.getTitle() + " by " + member.getName());
+            events.publish(LoanEventLog.EventType.BORROW, member.getMemberId(), item.getId(), item.getTitle(),
+                dueDay, 0, 0);
         }
-        System.out.println("Due date: " + dueDate);
+        Metrics.ON_BORROW.record(start);
     }
 
     public void onReturn() {
+        onReturn(true);
+    }
+
+    // releaseItems is false when the items are handed straight to a waiting
+    // hold, so they never pass through AVAILABLE
+    void onReturn(boolean releaseItems) {
+        long start = System.nanoTime();
         if (returnDate == null) {
             returnDate = LocalDate.now();
         }
+        LoanEventLog events = LoanEventLog.global();
+        long returnDay = returnDate.toEpochDay();
+        int daysLate = (int) (returnDay - dueDate.toEpochDay());
         for (LibraryItem item : items) {
-            item.setStatus(LibraryItem.ItemStatus.AVAILABLE);
-            if (returnDate.isAfter(dueDate)) {
-                long daysLate = ChronoUnit.DAYS.between(dueDate, returnDate);
-                double lateFee = item.calculateLateFee((int) daysLate);
-                System.out.println("Late fee charged: $" + String.format("%.2f", lateFee));
-                System.out.println("Days late: " + daysLate);
+            if (releaseItems) {
+                item.setStatus(LibraryItem.ItemStatus.AVAILABLE);
+            }
+            if (daysLate > 0) {
+                events.publish(LoanEventLog.EventType.LATE_FEE, member.getMemberId(), item.getId(), item.getTitle(),
+                    returnDay, daysLate, item.calculateLateFeeCents(daysLate));
             }
-            System.out.println("Item returned: " + item.getTitle());
+            events.publish(LoanEventLog.EventType.RETURN, member.getMemberId(), item.getId(), item.getTitle(),
+                returnDay, 0, 0);
         }
+        Metrics.ON_RETURN.record(start);
     }
 
     public LibraryItem getItem() { 
@@ -65,10 +125,16 @@ public class Loan {
     }
 
     public List<LibraryItem> getItems() { 
-        return items; 
+        return Collections.unmodifiableList(items); 
     }
 
+    public Member getMember() { return member; }
+
+    public LocalDate getBorrowDate() { return borrowDate; }
+
     public LocalDate getDueDate() { return dueDate; }
 
+    public LocalDate getReturnDate() { return returnDate; }
+
     public void setReturnDate(LocalDate date) { this.returnDate = date; }
 }
\ No newline at end of file
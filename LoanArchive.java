@@ -0,0 +1,827 @@
+/**
+ * LoanArchive - Compressed History of Returned Loans
+ *
+ * This class keeps every returned loan after it leaves Member.getLoans(),
+ * partitioned by return day, and answers time-range questions over that
+ * history without touching the live loan store.
+ *
+ * Key Features:
+ * - One segment per return day; the current day's segment takes appends,
+ *   and a segment is sealed (encoded and deflated) once a later day starts
+ * - Compact encoding: item and member ids go into a per-segment string
+ *   table, rows refer to them by varint index, and dates are stored as
+ *   varint day deltas (return - borrow, due - borrow) against the segment's
+ *   day; the result is compressed with Deflater
+ * - Queries fork one task per segment in the range on a ForkJoinPool and
+ *   merge the partial results; each task decodes its segment once
+ * - Optional directory: sealed segments are written as yyyy-MM-dd.loans
+ *   files (forced, then atomically replaced) and loaded again by open()
+ * - Day logs: with a directory, every row is also appended to the day's
+ *   yyyy-MM-dd.loans.log (CRC-checked records, as in LoanJournal) before
+ *   record() returns, so a killed process keeps the current day's returns;
+ *   open() replays the logs and a stored segment replaces its log
+ * - A segment or log that fails to decode is renamed to *.corrupt and
+ *   listed in getLoadErrors(); the rest of the history still loads
+ *
+ * Queries:
+ * - mostBorrowed(from, to, limit): items returned most often in the range
+ * - averageDaysLate(from, to): mean days overdue per ItemType
+ * - memberHistory(memberId, from, to): a member's returned loans
+ *
+ * Only returned loans are archived. Log appends are not forced, so a power
+ * failure (not a process kill) can still lose the last returns the OS had
+ * not written back; the loans themselves are safe in the LoanJournal.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// LoanArchive class to store and query the history of returned loans
+public class LoanArchive implements AutoCloseable {
+    private static final String SEGMENT_SUFFIX = ".loans";
+    private static final String LOG_SUFFIX = ".loans.log";
+    private static final String CORRUPT_SUFFIX = ".corrupt";
+    private static final long LOG_MAGIC = 0x4C4D53484953544CL;  // "LMSHISTL"
+    private static final int LOG_HEADER_BYTES = 16;             // magic + rows already stored
+    private static final int ROW_HEADER_BYTES = 8;              // length + CRC32
+    // Deflate never expands data more than about 1032:1
+    private static final long MAX_EXPANSION = 1032;
+    private static final LibraryItem.ItemType[] TYPES = LibraryItem.ItemType.values();
+
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Path directory;
+    private final ForkJoinPool pool;
+    private final List<String> loadErrors = Collections.synchronizedList(new ArrayList<>());
+
+    // One returned loan of one item
+    public static final class Record {
+        private final String itemId;
+        private final LibraryItem.ItemType itemType;
+        private final String memberId;
+        private final LocalDate borrowDate;
+        private final LocalDate dueDate;
+        private final LocalDate returnDate;
+
+        Record(String itemId, LibraryItem.ItemType itemType, String memberId, LocalDate borrowDate,
+        LocalDate dueDate, LocalDate returnDate) {
+            this.itemId = itemId;
+            this.itemType = itemType;
+            this.memberId = memberId;
+            this.borrowDate = borrowDate;
+            this.dueDate = dueDate;
+            this.returnDate = returnDate;
+        }
+
+        public String getItemId() { return itemId; }
+
+        public LibraryItem.ItemType getItemType() { return itemType; }
+
+        public String getMemberId() { return memberId; }
+
+        public LocalDate getBorrowDate() { return borrowDate; }
+
+        public LocalDate getDueDate() { return dueDate; }
+
+        public LocalDate getReturnDate() { return returnDate; }
+
+        public long getDaysLate() { return Math.max(0, returnDate.toEpochDay() - dueDate.toEpochDay()); }
+    }
+
+    // Decoded row handed to query code; reused for every row of a segment
+    private static final class Row {
+        int type;
+        String itemId;
+        String memberId;
+        long borrowDay;
+        long dueDay;
+        long returnDay;
+    }
+
+    /**
+     * The loans returned on one day. While open, rows are appended to plain
+     * arrays; sealing encodes them into a deflated byte array and drops the
+     * arrays. Appending to a sealed segment (a late-arriving return) opens
+     * it again.
+     *
+     * A day log starts with the number of rows already stored in the
+     * segment file, so replay can tell which of its rows that file holds
+     * (all of them, if the process died between storing and deleting it).
+     */
+    private static final class Segment {
+        final long day;
+        // Day log for rows not yet in the segment file; null without a directory
+        private final Path logFile;
+        private FileChannel log;
+        private int storedCount;
+        // Open form
+        private int count;
+        private byte[] types = new byte[16];
+        private String[] itemIds = new String[16];
+        private String[] memberIds = new String[16];
+        private long[] borrowDays = new long[16];
+        private long[] dueDays = new long[16];
+        // Sealed form
+        private byte[] sealed;
+        private int encodedLength;
+
+        Segment(long day, Path logFile) {
+            this.day = day;
+            this.logFile = logFile;
+        }
+
+        // A segment loaded from disk and already decoded once
+        Segment(long day, Path logFile, byte[] sealed, int encodedLength, int count) {
+            this.day = day;
+            this.logFile = logFile;
+            this.sealed = sealed;
+            this.encodedLength = encodedLength;
+            this.count = count;
+            this.storedCount = count;
+            this.types = null;
+            this.itemIds = null;
+            this.memberIds = null;
+            this.borrowDays = null;
+            this.dueDays = null;
+        }
+
+        // Adds the row and appends it to the day log
+        synchronized void append(int type, String itemId, String memberId, long borrowDay, long dueDay) {
+            add(type, itemId, memberId, borrowDay, dueDay);
+            if (logFile != null) {
+                writeLog(type, itemId, memberId, borrowDay, dueDay);
+            }
+        }
+
+        synchronized void add(int type, String itemId, String memberId, long borrowDay, long dueDay) {
+            if (sealed != null) {
+                unseal();
+            }
+            if (count == types.length) {
+                int capacity = count * 2;
+                types = Arrays.copyOf(types, capacity);
+                itemIds = Arrays.copyOf(itemIds, capacity);
+                memberIds = Arrays.copyOf(memberIds, capacity);
+                borrowDays = Arrays.copyOf(borrowDays, capacity);
+                dueDays = Arrays.copyOf(dueDays, capacity);
+            }
+            types[count] = (byte) type;
+            itemIds[count] = itemId;
+            memberIds[count] = memberId;
+            borrowDays[count] = borrowDay;
+            dueDays[count] = dueDay;
+            count++;
+        }
+
+        // A failed write leaves the row in memory only; it is still stored when the day is sealed
+        private void writeLog(int type, String itemId, String memberId, long borrowDay, long dueDay) {
+            try {
+                if (log == null) {
+                    log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+                    if (log.size() == 0) {
+                        writeFully(log, ByteBuffer.allocate(LOG_HEADER_BYTES).putLong(LOG_MAGIC)
+                            .putLong(storedCount).flip());
+                    }
+                }
+                writeFully(log, encodeRow(type, itemId, memberId, borrowDay, dueDay));
+            } catch (IOException e) {
+                System.err.println("Could not write loan history log: " + e.getMessage());
+                closeLog();
+            }
+        }
+
+        private void closeLog() {
+            if (log != null) {
+                try {
+                    log.close();
+                } catch (IOException e) {
+                    // Nothing left to write
+                }
+                log = null;
+            }
+        }
+
+        synchronized boolean isSealed() {
+            return sealed != null;
+        }
+
+        synchronized int size() {
+            return count;
+        }
+
+        synchronized long storedBytes() {
+            return sealed != null ? sealed.length : (long) count * 40;
+        }
+
+        // Encodes and deflates the rows
+        synchronized void seal() {
+            if (sealed == null) {
+                byte[] encoded = encode();
+                encodedLength = encoded.length;
+                sealed = deflate(encoded);
+                types = null;
+                itemIds = null;
+                memberIds = null;
+                borrowDays = null;
+                dueDays = null;
+            }
+        }
+
+        // Calls visitor for every row; an open segment is encoded under the lock first
+        <R> void forEach(BiConsumer<Row, R> visitor, R partial) {
+            byte[] compressed;
+            int length;
+            byte[] encoded = null;
+            synchronized (this) {
+                compressed = sealed;
+                length = encodedLength;
+                if (compressed == null) {
+                    encoded = encode();
+                }
+            }
+            decode(encoded != null ? encoded : inflate(compressed, length), day, visitor, partial);
+        }
+
+        private void unseal() {
+            byte[] encoded = inflate(sealed, encodedLength);
+            int rows = (int) new Cursor(encoded).readVarLong();
+            types = new byte[Math.max(16, rows)];
+            itemIds = new String[types.length];
+            memberIds = new String[types.length];
+            borrowDays = new long[types.length];
+            dueDays = new long[types.length];
+            sealed = null;
+            count = 0;
+            decode(encoded, day, (Row row, Object unused) -> {
+                    types[count] = (byte) row.type;
+                    itemIds[count] = row.itemId;
+                    memberIds[count] = row.memberId;
+                    borrowDays[count] = row.borrowDay;
+                    dueDays[count] = row.dueDay;
+                    count++;
+                }, null);
+        }
+
+        /**
+         * Layout: rows, string count, strings (varint length + UTF-8), then
+         * per row: type byte, item index, member index,
+         * day - borrowDay, zigzag(dueDay - borrowDay).
+         */
+        private byte[] encode() {
+            Map<String, Integer> strings = new HashMap<>();
+            List<String> table = new ArrayList<>();
+            int[] itemIndex = new int[count];
+            int[] memberIndex = new int[count];
+            for (int i = 0; i < count; i++) {
+                itemIndex[i] = intern(strings, table, itemIds[i]);
+                memberIndex[i] = intern(strings, table, memberIds[i]);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(count * 8 + table.size() * 8 + 16);
+            writeVarLong(out, count);
+            writeVarLong(out, table.size());
+            for (String s : table) {
+                byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(out, utf8.length);
+                out.write(utf8, 0, utf8.length);
+            }
+            for (int i = 0; i < count; i++) {
+                out.write(types[i]);
+                writeVarLong(out, itemIndex[i]);
+                writeVarLong(out, memberIndex[i]);
+                writeVarLong(out, zigzag(day - borrowDays[i]));
+                writeVarLong(out, zigzag(dueDays[i] - borrowDays[i]));
+            }
+            return out.toByteArray();
+        }
+
+        private static int intern(Map<String, Integer> strings, List<String> table, String s) {
+            Integer index = strings.get(s);
+            if (index == null) {
+                index = table.size();
+                strings.put(s, index);
+                table.add(s);
+            }
+            return index;
+        }
+    }
+
+    // Sequential reader over an encoded segment
+    private static final class Cursor {
+        private final byte[] bytes;
+        private int position;
+
+        Cursor(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = next();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("Corrupt loan history segment");
+        }
+
+        // A varint that must be below bound, such as a string table index
+        int readIndex(long bound) {
+            long value = readVarLong();
+            if (value < 0 || value >= bound) {
+                throw new IllegalStateException("Corrupt loan history segment");
+            }
+            return (int) value;
+        }
+
+        int readByte() {
+            return next();
+        }
+
+        String readString() {
+            int length = readIndex(bytes.length - position + 1L);
+            if (length > bytes.length - position) {
+                throw new IllegalStateException("Truncated loan history segment");
+            }
+            String s = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return s;
+        }
+
+        private byte next() {
+            if (position >= bytes.length) {
+                throw new IllegalStateException("Truncated loan history segment");
+            }
+            return bytes[position++];
+        }
+    }
+
+    public LoanArchive() {
+        this(null, ForkJoinPool.commonPool());
+    }
+
+    private LoanArchive(Path directory, ForkJoinPool pool) {
+        this.directory = directory;
+        this.pool = pool;
+    }
+
+    /**
+     * An archive that keeps its segments in the directory, loading any
+     * already there and replaying the day logs on top of them. A file that
+     * does not decode is renamed to *.corrupt and reported by
+     * getLoadErrors() instead of failing the whole archive.
+     */
+    public static LoanArchive open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        LoanArchive archive = new LoanArchive(directory, ForkJoinPool.commonPool());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                long day = dayOf(file, SEGMENT_SUFFIX);
+                if (day != Long.MIN_VALUE) {
+                    try {
+                        archive.load(file, day);
+                    } catch (IllegalStateException e) {
+                        archive.quarantine(file, e);
+                    }
+                }
+            }
+        }
+        List<Segment> replayed = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + LOG_SUFFIX)) {
+            for (Path file : files) {
+                long day = dayOf(file, LOG_SUFFIX);
+                if (day != Long.MIN_VALUE) {
+                    try {
+                        replayed.add(archive.replay(file, day));
+                    } catch (IllegalStateException | BufferUnderflowException e) {
+                        archive.quarantine(file, e);
+                    }
+                }
+            }
+        }
+        // Storing a replayed day folds its log into the segment file and deletes it
+        for (Segment segment : replayed) {
+            archive.sealAndStore(segment);
+        }
+        return archive;
+    }
+
+    // Files that could not be loaded by open(), as "file: reason"
+    public List<String> getLoadErrors() {
+        return new ArrayList<>(loadErrors);
+    }
+
+    // The epoch day in a yyyy-MM-dd file name, or Long.MIN_VALUE for other files
+    private static long dayOf(Path file, String suffix) {
+        String name = file.getFileName().toString();
+        try {
+            return LocalDate.parse(name.substring(0, name.length() - suffix.length())).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    // Decodes the whole segment once, so queries never meet a corrupt one
+    private void load(Path file, long day) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        Cursor header = new Cursor(bytes);
+        long encodedLength = header.readVarLong();
+        byte[] sealed = Arrays.copyOfRange(bytes, header.position, bytes.length);
+        if (encodedLength < 0 || encodedLength > sealed.length * MAX_EXPANSION + 64) {
+            throw new IllegalStateException("Corrupt loan history segment");
+        }
+        int[] rows = new int[1];
+        decode(inflate(sealed, (int) encodedLength), day, (Row row, int[] counter) -> counter[0]++, rows);
+        segments.put(day, new Segment(day, logFile(day), sealed, (int) encodedLength, rows[0]));
+    }
+
+    // Adds the log rows the segment file does not hold yet; stops at a torn last record
+    private Segment replay(Path file, long day) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (in.remaining() < LOG_HEADER_BYTES || in.getLong() != LOG_MAGIC) {
+            throw new IllegalStateException("Not a loan history log");
+        }
+        long index = in.getLong();
+        Segment segment = segments.computeIfAbsent(day, this::newSegment);
+        int stored = segment.size();
+        CRC32 crc = new CRC32();
+        while (in.remaining() >= ROW_HEADER_BYTES) {
+            int length = in.getInt();
+            int checksum = in.getInt();
+            if (length <= 0 || length > in.remaining()) {
+                break;
+            }
+            crc.reset();
+            crc.update(in.array(), in.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            int next = in.position() + length;
+            int type = in.get();
+            if (type < 0 || type >= TYPES.length) {
+                throw new IllegalStateException("Corrupt loan history log");
+            }
+            String itemId = readString(in);
+            String memberId = readString(in);
+            long borrowDay = in.getLong();
+            long dueDay = in.getLong();
+            in.position(next);
+            if (index++ >= stored) {
+                segment.add(type, itemId, memberId, borrowDay, dueDay);
+            }
+        }
+        return segment;
+    }
+
+    // Moves a bad file aside, so it is kept for inspection but not loaded again
+    private void quarantine(Path file, RuntimeException e) throws IOException {
+        Files.move(file, file.resolveSibling(file.getFileName() + CORRUPT_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+        loadErrors.add(file.getFileName() + ": " + e.getMessage());
+    }
+
+    private Segment newSegment(long day) {
+        return new Segment(day, logFile(day));
+    }
+
+    private Path logFile(long day) {
+        return directory == null ? null : directory.resolve(LocalDate.ofEpochDay(day) + LOG_SUFFIX);
+    }
+
+    /**
+     * Archives a returned loan, one row per item, in the segment of its
+     * return date (today if none is set). Starting a new day seals the
+     * segments of earlier days.
+     */
+    public void record(Loan loan) {
+        LocalDate returned = loan.getReturnDate() != null ? loan.getReturnDate() : LocalDate.now();
+        long day = returned.toEpochDay();
+        Segment segment = segments.computeIfAbsent(day, this::newSegment);
+        for (LibraryItem item : loan.getItems()) {
+            segment.append(item.getType().ordinal(), item.getId(), loan.getMember().getMemberId(),
+                loan.getBorrowDate().toEpochDay(), loan.getDueDate().toEpochDay());
+        }
+        // Seal earlier days that are still open
+        Map.Entry<Long, Segment> earlier = segments.lowerEntry(day);
+        if (earlier != null && !earlier.getValue().isSealed()) {
+            for (Segment old : segments.headMap(day).values()) {
+                if (!old.isSealed()) {
+                    sealAndStore(old);
+                }
+            }
+        }
+    }
+
+    // Seals and stores every open segment, including today's
+    public void flush() {
+        for (Segment segment : segments.values()) {
+            if (!segment.isSealed()) {
+                sealAndStore(segment);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    // Returned loans archived so far
+    public long size() {
+        long total = 0;
+        for (Segment segment : segments.values()) {
+            total += segment.size();
+        }
+        return total;
+    }
+
+    // Heap used by segment data (sealed bytes, or an estimate for open ones)
+    public long storedBytes() {
+        long total = 0;
+        for (Segment segment : segments.values()) {
+            total += segment.storedBytes();
+        }
+        return total;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    // Items returned most often between the dates (inclusive), most first
+    public List<Map.Entry<String, Long>> mostBorrowed(LocalDate from, LocalDate to, int limit) {
+        Map<String, Long> counts = this.<Map<String, Long>>scan(from, to, HashMap::new,
+            (row, partial) -> partial.merge(row.itemId, 1L, Long::sum),
+            (a, b) -> {
+                Map<String, Long> small = a.size() < b.size() ? a : b;
+                Map<String, Long> large = small == a ? b : a;
+                small.forEach((id, count) -> large.merge(id, count, Long::sum));
+                return large;
+            });
+        List<Map.Entry<String, Long>> ranked = new ArrayList<>(counts.entrySet());
+        ranked.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        return new ArrayList<>(ranked.subList(0, Math.min(limit, ranked.size())));
+    }
+
+    // Mean days overdue per item type for loans returned between the dates; types with no returns are left out
+    public Map<LibraryItem.ItemType, Double> averageDaysLate(LocalDate from, LocalDate to) {
+        long[] totals = scan(from, to, () -> new long[TYPES.length * 2],
+            (row, sums) -> {
+                sums[row.type * 2] += Math.max(0, row.returnDay - row.dueDay);
+                sums[row.type * 2 + 1]++;
+            },
+            (a, b) -> {
+                for (int i = 0; i < a.length; i++) {
+                    a[i] += b[i];
+                }
+                return a;
+            });
+        Map<LibraryItem.ItemType, Double> averages = new EnumMap<>(LibraryItem.ItemType.class);
+        for (LibraryItem.ItemType type : TYPES) {
+            long returns = totals[type.ordinal() * 2 + 1];
+            if (returns > 0) {
+                averages.put(type, (double) totals[type.ordinal() * 2] / returns);
+            }
+        }
+        return averages;
+    }
+
+    // The member's returned loans between the dates, oldest return first
+    public List<Record> memberHistory(String memberId, LocalDate from, LocalDate to) {
+        List<Record> history = this.<List<Record>>scan(from, to, ArrayList::new,
+            (row, partial) -> {
+                if (row.memberId.equals(memberId)) {
+                    partial.add(new Record(row.itemId, TYPES[row.type], row.memberId,
+                            LocalDate.ofEpochDay(row.borrowDay), LocalDate.ofEpochDay(row.dueDay),
+                            LocalDate.ofEpochDay(row.returnDay)));
+                }
+            },
+            (a, b) -> {
+                a.addAll(b);
+                return a;
+            });
+        history.sort(Comparator.comparing(Record::getReturnDate).thenComparing(Record::getBorrowDate));
+        return history;
+    }
+
+    /**
+     * Runs visitor over every row returned between the dates: one fork-join
+     * task per segment, each with its own partial result, merged pairwise.
+     */
+    private <R> R scan(LocalDate from, LocalDate to, Supplier<R> create, BiConsumer<Row, R> visitor,
+    BinaryOperator<R> merge) {
+        Segment[] range = segments.subMap(from.toEpochDay(), true, to.toEpochDay(), true).values()
+            .toArray(new Segment[0]);
+        if (range.length == 0) {
+            return create.get();
+        }
+        return pool.invoke(new ScanTask<>(range, 0, range.length, create, visitor, merge));
+    }
+
+    private static final class ScanTask<R> extends RecursiveTask<R> {
+        private static final long serialVersionUID = 1L;
+
+        private final Segment[] segments;
+        private final int from;
+        private final int to;
+        private final Supplier<R> create;
+        private final BiConsumer<Row, R> visitor;
+        private final BinaryOperator<R> merge;
+
+        ScanTask(Segment[] segments, int from, int to, Supplier<R> create, BiConsumer<Row, R> visitor,
+        BinaryOperator<R> merge) {
+            this.segments = segments;
+            this.from = from;
+            this.to = to;
+            this.create = create;
+            this.visitor = visitor;
+            this.merge = merge;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from == 1) {
+                R partial = create.get();
+                segments[from].forEach(visitor, partial);
+                return partial;
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask<R> left = new ScanTask<>(segments, from, mid, create, visitor, merge);
+            left.fork();
+            R right = new ScanTask<>(segments, mid, to, create, visitor, merge).compute();
+            return merge.apply(left.join(), right);
+        }
+    }
+
+    private void sealAndStore(Segment segment) {
+        segment.seal();
+        if (directory == null) {
+            return;
+        }
+        // Two desks may seal the same day at once; they must not share the temp file
+        synchronized (segment) {
+            if (segment.sealed == null) {
+                return; // reopened by a late return; written again when it is sealed
+            }
+            try {
+                Path file = directory.resolve(LocalDate.ofEpochDay(segment.day) + SEGMENT_SUFFIX);
+                Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                ByteArrayOutputStream out = new ByteArrayOutputStream(segment.sealed.length + 5);
+                writeVarLong(out, segment.encodedLength);
+                out.write(segment.sealed, 0, segment.sealed.length);
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    writeFully(channel, ByteBuffer.wrap(out.toByteArray()));
+                    // The new contents must be on disk before the rename can replace the old file
+                    channel.force(true);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                LoanJournal.forceDirectory(directory.toAbsolutePath());
+                // Every logged row is in the file now
+                segment.storedCount = segment.count;
+                segment.closeLog();
+                Files.deleteIfExists(segment.logFile);
+            } catch (IOException e) {
+                System.err.println("Could not write loan history segment: " + e.getMessage());
+            }
+        }
+    }
+
+    // Throws IllegalStateException if the bytes are not a valid segment
+    private static <R> void decode(byte[] encoded, long day, BiConsumer<Row, R> visitor, R partial) {
+        Cursor in = new Cursor(encoded);
+        // Every row and string takes at least one byte
+        int rows = in.readIndex(encoded.length + 1L);
+        String[] table = new String[in.readIndex(encoded.length + 1L)];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = in.readString();
+        }
+        Row row = new Row();
+        row.returnDay = day;
+        for (int i = 0; i < rows; i++) {
+            row.type = in.readByte();
+            if (row.type < 0 || row.type >= TYPES.length) {
+                throw new IllegalStateException("Corrupt loan history segment");
+            }
+            row.itemId = table[in.readIndex(table.length)];
+            row.memberId = table[in.readIndex(table.length)];
+            row.borrowDay = day - unzigzag(in.readVarLong());
+            row.dueDay = row.borrowDay + unzigzag(in.readVarLong());
+            visitor.accept(row, partial);
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 3 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int length) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] out = new byte[length];
+            int filled = 0;
+            while (filled < length) {
+                int n = inflater.inflate(out, filled, length - filled);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalStateException("Truncated loan history segment");
+                }
+                filled += n;
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt loan history segment", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // Row of a day log: length, CRC32, then type, item id, member id, borrow day, due day
+    private static ByteBuffer encodeRow(int type, String itemId, String memberId, long borrowDay, long dueDay) {
+        byte[] item = itemId.getBytes(StandardCharsets.UTF_8);
+        byte[] member = memberId.getBytes(StandardCharsets.UTF_8);
+        int length = 1 + 2 + item.length + 2 + member.length + 16;
+        ByteBuffer buffer = ByteBuffer.allocate(ROW_HEADER_BYTES + length);
+        buffer.position(ROW_HEADER_BYTES);
+        buffer.put((byte) type);
+        buffer.putShort((short) item.length).put(item);
+        buffer.putShort((short) member.length).put(member);
+        buffer.putLong(borrowDay).putLong(dueDay);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), ROW_HEADER_BYTES, length);
+        buffer.putInt(0, length);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer.flip();
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getShort() & 0xFFFF;
+        String value = new String(record.array(), record.position(), length, StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,359 @@
+/**
+ * LoanEventLog - Asynchronous Ring-Buffer Pipeline for Loan Events
+ *
+ * This class takes BORROW, RETURN and LATE_FEE events off the transaction
+ * path. Loan.onBorrow()/onReturn() only fill a preallocated slot in a ring
+ * buffer; a background consumer drains the slots in batches and hands them to
+ * the registered subscribers (a JSON-lines sink, billing, analytics, ...).
+ *
+ * Key Features:
+ * - Lock-free multi-producer publish: a sequence is claimed with one atomic
+ *   increment and the slot is published with an ordered store
+ * - Preallocated Event slots, so publishing allocates nothing
+ * - Single consumer thread that dispatches in batches and calls
+ *   Subscriber.onBatchEnd() so sinks can flush once per batch
+ * - Backpressure instead of loss: producers wait if the ring is full
+ * - The idle consumer parks; a producer unparks it only if it is parked, so
+ *   a quiet log costs no CPU and a busy one no unpark calls
+ * - Never fails the transaction that publishes: once the log is closed, or
+ *   its consumer has died, events are dropped and counted instead of
+ *   waiting forever or throwing into Loan.onBorrow()/onReturn()
+ *
+ * Subscribers see a reused Event instance; copy any fields that must outlive
+ * the onEvent() call.
+ */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// LoanEventLog class to record loan events asynchronously
+public class LoanEventLog implements AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int MAX_BATCH = 1024;
+    // How often flush() and a closing consumer re-check progress
+    private static final long POLL_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static volatile LoanEventLog global;
+
+    public enum EventType {
+        BORROW,
+        RETURN,
+        LATE_FEE
+    }
+
+    // One ring slot; fields are overwritten each time the slot is reused
+    public static final class Event {
+        private long sequence;
+        private EventType type;
+        private String memberId;
+        private String itemId;
+        private String title;
+        private long epochDay;   // due day for BORROW, return day for RETURN/LATE_FEE
+        private int daysLate;
+        private long feeCents;
+
+        public long getSequence() { return sequence; }
+
+        public EventType getType() { return type; }
+
+        public String getMemberId() { return memberId; }
+
+        public String getItemId() { return itemId; }
+
+        public String getTitle() { return title; }
+
+        public long getEpochDay() { return epochDay; }
+
+        public int getDaysLate() { return daysLate; }
+
+        public long getFeeCents() { return feeCents; }
+    }
+
+    public interface Subscriber {
+        void onEvent(Event event);
+
+        // Called after each drained batch; a good place to flush buffered output
+        default void onBatchEnd() {
+        }
+    }
+
+    private final Event[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long consumed = -1;
+    private volatile boolean running = true;
+    private volatile boolean idle;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Thread consumer;
+
+    public LoanEventLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LoanEventLog(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        this.slots = new Event[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Event();
+            published.set(i, -1);
+        }
+        this.mask = capacity - 1;
+        this.consumer = new Thread(this::drainLoop, "loan-event-log");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    // The log used by Loan; created on first use with a JSON-lines sink on stdout
+    public static LoanEventLog global() {
+        LoanEventLog log = global;
+        if (log == null) {
+            synchronized (LoanEventLog.class) {
+                log = global;
+                if (log == null) {
+                    log = new LoanEventLog();
+                    log.subscribe(new JsonLinesSink(System.out));
+                    Runtime.getRuntime().addShutdownHook(new Thread(log::close));
+                    global = log;
+                }
+            }
+        }
+        return log;
+    }
+
+    // Replaces the global log (e.g. a subscriber-less log for benchmarks) and
+    // closes the old one, so its consumer thread does not outlive it
+    public static void setGlobal(LoanEventLog log) {
+        LoanEventLog old;
+        synchronized (LoanEventLog.class) {
+            old = global;
+            global = log;
+        }
+        if (old != null && old != log) {
+            old.close();
+        }
+    }
+
+    public void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    public void publish(EventType type, String memberId, String itemId, String title,
+    long epochDay, int daysLate, long feeCents) {
+        // Checked before a sequence is claimed: a claimed sequence that is
+        // never published would keep close() waiting for it
+        if (!running) {
+            dropped.incrementAndGet();
+            return;
+        }
+        long sequence = claimed.incrementAndGet();
+        // Ring full: wait for the consumer rather than dropping the event.
+        // A closing log still drains, so only a dead consumer ends the wait
+        while (sequence - consumed > slots.length) {
+            if (!consumer.isAlive()) {
+                dropped.incrementAndGet();
+                return;
+            }
+            Thread.onSpinWait();
+            Thread.yield();
+        }
+        int index = (int) sequence & mask;
+        Event event = slots[index];
+        event.sequence = sequence;
+        event.type = type;
+        event.memberId = memberId;
+        event.itemId = itemId;
+        event.title = title;
+        event.epochDay = epochDay;
+        event.daysLate = daysLate;
+        event.feeCents = feeCents;
+        // A full store, not lazySet: it must be visible before idle is read,
+        // or the consumer could park just after this event without a wake-up
+        published.set(index, sequence);
+        if (idle) {
+            LockSupport.unpark(consumer);
+        }
+        if (!running) {
+            awaitClosingConsumer(sequence);
+        }
+    }
+
+    // The log closed after this producer's first check. A consumer that saw
+    // the close after the sequence was claimed drains it; one that saw it
+    // earlier may already have stopped, and the event is counted as dropped
+    private void awaitClosingConsumer(long sequence) {
+        while (consumed < sequence && consumer.isAlive()) {
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+        if (consumed < sequence) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void drainLoop() {
+        try {
+            while (true) {
+                if (drainBatch() > 0) {
+                    continue;
+                }
+                if (!running && consumed == claimed.get()) {
+                    return;
+                }
+                // Announce the park, then re-check, so a producer that published
+                // meanwhile either is seen here or sees idle and unparks us
+                idle = true;
+                long next = consumed + 1;
+                if (published.get((int) next & mask) != next) {
+                    if (running) {
+                        LockSupport.park(this);
+                    } else {
+                        // Closing: a producer has claimed a slot but not filled it yet
+                        LockSupport.parkNanos(this, POLL_NANOS);
+                    }
+                }
+                idle = false;
+            }
+        } finally {
+            // A consumer killed by an Error closes the log, so later events
+            // are dropped and counted rather than left in the ring
+            running = false;
+        }
+    }
+
+    private int drainBatch() {
+        long next = consumed + 1;
+        int count = 0;
+        while (count < MAX_BATCH && published.get((int) next & mask) == next) {
+            Event event = slots[(int) next & mask];
+            for (Subscriber subscriber : subscribers) {
+                try {
+                    subscriber.onEvent(event);
+                } catch (RuntimeException e) {
+                    System.err.println("Loan event subscriber failed: " + e);
+                }
+            }
+            next++;
+            count++;
+        }
+        if (count > 0) {
+            for (Subscriber subscriber : subscribers) {
+                try {
+                    subscriber.onBatchEnd();
+                } catch (RuntimeException e) {
+                    System.err.println("Loan event subscriber failed: " + e);
+                }
+            }
+            consumed = next - 1; // frees the slots for producers
+        }
+        return count;
+    }
+
+    // Events dropped because the log was closed or its consumer had died
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // Waits until every event published so far has been delivered
+    public void flush() {
+        long target = claimed.get();
+        while (consumed < target && consumer.isAlive()) {
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+    }
+
+    // Drains the remaining events and stops the consumer thread; publish()
+    // drops and counts events from then on. Safe to call more than once
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes each event as one JSON object per line, e.g.
+     * {"seq":3,"type":"LATE_FEE","member":"A001","item":"B001","title":"...","day":20110,"daysLate":5,"feeCents":500}
+     */
+    public static class JsonLinesSink implements Subscriber {
+        private final Writer out;
+        private final StringBuilder line = new StringBuilder(256);
+
+        public JsonLinesSink(OutputStream stream) {
+            this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        @Override
+        public void onEvent(Event event) {
+            line.setLength(0);
+            line.append("{\"seq\":").append(event.sequence)
+                .append(",\"type\":\"").append(event.type.name()).append('"');
+            appendField(line, "member", event.memberId);
+            appendField(line, "item", event.itemId);
+            appendField(line, "title", event.title);
+            line.append(",\"day\":").append(event.epochDay);
+            if (event.type == EventType.LATE_FEE) {
+                line.append(",\"daysLate\":").append(event.daysLate)
+                    .append(",\"feeCents\":").append(event.feeCents);
+            }
+            line.append("}\n");
+            try {
+                out.append(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void onBatchEnd() {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static void appendField(StringBuilder line, String name, String value) {
+            line.append(",\"").append(name).append("\":");
+            if (value == null) {
+                line.append("null");
+                return;
+            }
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    line.append('\\').append(c);
+                } else if (c < 0x20) {
+                    line.append(String.format("\\u%04x", (int) c));
+                } else {
+                    line.append(c);
+                }
+            }
+            line.append('"');
+        }
+    }
+}
@@ -0,0 +1,647 @@
+/**
+ * LoanJournal - Append-Only Write-Ahead Log for Loans
+ *
+ * This class makes borrow and return transactions durable. Every transaction
+ * is appended to a binary journal file before the caller is told it succeeded,
+ * and periodic snapshots let startup replay only the tail of the journal.
+ *
+ * Key Features:
+ * - Append-only binary records written through a FileChannel
+ * - Group commit: concurrent appends are batched and share one fsync
+ * - Snapshots of all open loans, written atomically next to the journal
+ * - Compaction: after each snapshot the journal is rewritten to hold only
+ *   the records the snapshot does not cover, so replay time and file size
+ *   stay bounded by the snapshot period instead of growing forever
+ * - Crash recovery: load the latest snapshot, then replay the journal tail;
+ *   snapshot records are independent of each other and are applied in
+ *   parallel chunks, the tail strictly in order
+ *
+ * Journal Positions:
+ * - Positions are logical: the offset a record would have in a journal that
+ *   was never compacted. The journal file starts with a header (magic, then
+ *   the logical position of its first record), and a snapshot stores the
+ *   logical position it covers
+ * - Compaction writes the uncovered tail to a new file whose header names
+ *   the snapshot's position, forces it, and renames it over the journal, so
+ *   a crash at any step leaves a journal that agrees with the snapshot
+ * - A journal from before compaction existed has no header and starts at 0
+ *
+ * Record Format (journal and snapshot):
+ * - int payload length, int CRC32 of the payload, then the payload:
+ *   byte type, member id, item id, int epoch day, int epoch day
+ * - BORROW carries the borrow and due dates, RETURN the return date
+ * - BORROW_BATCH is a multi-item checkout in one record: byte type,
+ *   member id, short item count, item ids, int borrow day, int due day
+ * - Item status is not logged separately; it is implied by open loans
+ *
+ * A torn record at the end of the journal (crash mid-write) fails its length
+ * or CRC check and is ignored, along with anything after it.
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// LoanJournal class to persist loan transactions
+public class LoanJournal implements AutoCloseable {
+    private static final byte BORROW = 1;
+    private static final byte RETURN = 2;
+    private static final byte BORROW_BATCH = 3;
+    private static final int HEADER_BYTES = 8;          // length + CRC32
+    private static final int MAX_PAYLOAD_BYTES = 64 * 1024;
+    private static final long SNAPSHOT_MAGIC = 0x4C4D53534E415031L; // "LMSSNAP1"
+    private static final long JOURNAL_MAGIC = 0x4C4D534A524E4C31L;  // "LMSJRNL1"
+    private static final int JOURNAL_HEADER_BYTES = 16;             // magic + base position
+    private static final int SNAPSHOT_CHUNK_BYTES = 1 << 20;
+
+    private final Path journalFile;
+    private final Path snapshotFile;
+    private final Thread flusher;
+    private ScheduledExecutorService snapshotter;
+
+    // Guarded by channelLock: the flusher writes and compaction swaps files under it
+    private final Object channelLock = new Object();
+    private FileChannel channel;
+    private long basePosition;      // logical position of the file's first record
+    private long headerBytes;       // 0 for a journal written before compaction existed
+    // One snapshot (and compaction) at a time
+    private final Object snapshotLock = new Object();
+
+    // Guarded by this: records waiting for the next group commit
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer writing = ByteBuffer.allocate(64 * 1024);
+    private long appendedSeq;
+    private long durableSeq;
+    private long durablePosition;
+    private IOException failure;
+    private boolean closed;
+
+    private LoanJournal(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.journalFile = directory.resolve("loans.journal");
+        this.snapshotFile = directory.resolve("loans.snapshot");
+        this.channel = FileChannel.open(journalFile,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // Shorter than a header means new, or torn while the header was written; no record fits
+            if (channel.size() < JOURNAL_HEADER_BYTES) {
+                channel.truncate(0);
+                writeHeader(channel, 0);
+                channel.force(true);
+            }
+            headerBytes = headerBytes(channel);
+            basePosition = readBase(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.durablePosition = basePosition + channel.size() - headerBytes;
+        channel.position(channel.size());
+        this.flusher = new Thread(this::flushLoop, "loan-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    public static LoanJournal open(Path directory) throws IOException {
+        return new LoanJournal(directory);
+    }
+
+    // True when there is neither a snapshot nor any journaled transaction
+    public boolean isEmpty() throws IOException {
+        synchronized (channelLock) {
+            return !Files.exists(snapshotFile) && channel.size() == headerBytes;
+        }
+    }
+
+    // Logical journal position of everything made durable so far
+    public synchronized long getDurablePosition() {
+        return durablePosition;
+    }
+
+    // Bytes in the journal file; after a snapshot only the uncovered tail is left
+    public long fileSize() throws IOException {
+        synchronized (channelLock) {
+            return channel.size();
+        }
+    }
+
+    // Journals a checkout; a multi-item loan is written as one BORROW_BATCH record
+    public void recordBorrow(Loan loan) {
+        append(loan.getItems().size() == 1 ? BORROW : BORROW_BATCH, loan.getMember().getMemberId(),
+            loan.getItems(), (int) loan.getBorrowDate().toEpochDay(), (int) loan.getDueDate().toEpochDay());
+    }
+
+    // Journals the return of a single-item loan (partial returns are split first)
+    public void recordReturn(Loan loan) {
+        append(RETURN, loan.getMember().getMemberId(), loan.getItems(),
+            (int) loan.getReturnDate().toEpochDay(), 0);
+    }
+
+    // Blocks until the record has been forced to disk together with its batch
+    private synchronized void append(byte type, String memberId, List<LibraryItem> items, int day1, int day2) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        pending = encode(pending, type, memberId, items, day1, day2);
+        long seq = ++appendedSeq;
+        notifyAll();
+        boolean interrupted = false;
+        while (durableSeq < seq && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Journal write failed", failure);
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            long batchSeq;
+            synchronized (this) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.position() == 0) {
+                    return; // closed and fully drained
+                }
+                ByteBuffer swap = writing;
+                writing = pending;
+                pending = swap;
+                batchSeq = appendedSeq;
+            }
+
+            // Write and fsync the whole batch outside this lock so appenders keep queueing
+            writing.flip();
+            try {
+                synchronized (channelLock) {
+                    while (writing.hasRemaining()) {
+                        channel.write(writing);
+                    }
+                    channel.force(false);
+                    // Advanced before channelLock is released, so compaction never
+                    // sees bytes in the file that the durable position leaves out
+                    synchronized (this) {
+                        durableSeq = batchSeq;
+                        durablePosition += writing.limit();
+                        notifyAll();
+                    }
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+            writing.clear();
+        }
+    }
+
+    /**
+     * Rebuilds open loans into the engine: the snapshot first, then every
+     * journal record written after it. Items and members must already be
+     * loaded. Call this before attaching the journal to the engine so the
+     * replayed transactions are not journaled again. Returns the number of
+     * records applied.
+     */
+    public int recover(CirculationEngine engine) throws IOException {
+        int applied = 0;
+        long replayFrom = 0;
+        // Millions of restored loans would each search the status index twice; rebuild it once instead
+        engine.getCatalog().pauseStatusIndex();
+        try {
+            if (Files.exists(snapshotFile)) {
+                try (FileChannel snapshot = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+                    ByteBuffer header = ByteBuffer.allocate(16);
+                    readFully(snapshot, header);
+                    header.flip();
+                    if (header.getLong() != SNAPSHOT_MAGIC) {
+                        throw new IOException("Not a loan snapshot: " + snapshotFile);
+                    }
+                    replayFrom = header.getLong();
+                    applied += replaySnapshot(snapshot, engine);
+                }
+            }
+
+            try (FileChannel journal = FileChannel.open(journalFile, StandardOpenOption.READ)) {
+                long base = readBase(journal);
+                long header = headerBytes(journal);
+                if (replayFrom < base) {
+                    throw new IOException("Journal " + journalFile + " starts at " + base
+                        + " but the snapshot only covers up to " + replayFrom);
+                }
+                journal.position(Math.min(header + replayFrom - base, journal.size()));
+                applied += replay(journal, engine);
+            }
+        } finally {
+            engine.getCatalog().rebuildStatusIndex();
+        }
+        return applied;
+    }
+
+    // Applies records in order until end of file or the first torn record
+    private int replay(FileChannel source, CirculationEngine engine) throws IOException {
+        int[] applied = {0};
+        readRecords(source, (payload, length) -> {
+                if (apply(ByteBuffer.wrap(payload, 0, length), engine)) {
+                    applied[0]++;
+                }
+            });
+        return applied[0];
+    }
+
+    /**
+     * A snapshot holds one record per open loan and no item twice (except a
+     * loan that moved while the snapshot was written, which the journal tail
+     * settles either way), so its records can be applied in any order: they
+     * are cut into chunks and applied on the common ForkJoinPool. At most two
+     * chunks per worker are buffered at once.
+     */
+    private int replaySnapshot(FileChannel source, CirculationEngine engine) throws IOException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int maxInFlight = Math.max(2, pool.getParallelism() * 2);
+        Deque<ForkJoinTask<Integer>> inFlight = new ArrayDeque<>();
+        int[] applied = {0};
+        ByteBuffer[] chunk = {ByteBuffer.allocate(SNAPSHOT_CHUNK_BYTES)};
+        readRecords(source, (payload, length) -> {
+                if (chunk[0].remaining() < 4 + length) {
+                    if (inFlight.size() == maxInFlight) {
+                        applied[0] += inFlight.poll().join();
+                    }
+                    inFlight.add(pool.submit(applyChunk(chunk[0], engine)));
+                    chunk[0] = ByteBuffer.allocate(SNAPSHOT_CHUNK_BYTES);
+                }
+                chunk[0].putInt(length).put(payload, 0, length);
+            });
+        inFlight.add(pool.submit(applyChunk(chunk[0], engine)));
+        for (ForkJoinTask<Integer> task : inFlight) {
+            applied[0] += task.join();
+        }
+        return applied[0];
+    }
+
+    // A task applying a chunk of length-prefixed payloads
+    private ForkJoinTask<Integer> applyChunk(ByteBuffer chunk, CirculationEngine engine) {
+        chunk.flip();
+        return ForkJoinTask.adapt(() -> {
+                int applied = 0;
+                while (chunk.hasRemaining()) {
+                    int length = chunk.getInt();
+                    ByteBuffer record = ByteBuffer.wrap(chunk.array(), chunk.position(), length).slice();
+                    chunk.position(chunk.position() + length);
+                    if (apply(record, engine)) {
+                        applied++;
+                    }
+                }
+                return applied;
+            });
+    }
+
+    private interface RecordHandler {
+        void accept(byte[] payload, int length);
+    }
+
+    // Passes each verified payload to the handler until end of file or the first torn record
+    private static void readRecords(FileChannel source, RecordHandler handler) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        byte[] payload = new byte[MAX_PAYLOAD_BYTES];
+        CRC32 crc = new CRC32();
+
+        while (source.read(buffer) > 0 || buffer.position() > 0) {
+            buffer.flip();
+            while (buffer.remaining() >= HEADER_BYTES) {
+                buffer.mark();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > MAX_PAYLOAD_BYTES) {
+                    return;
+                }
+                if (buffer.remaining() < length) {
+                    buffer.reset();
+                    break;
+                }
+                buffer.get(payload, 0, length);
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    return;
+                }
+                handler.accept(payload, length);
+            }
+            boolean progressed = buffer.position() > 0;
+            buffer.compact();
+            if (!progressed && source.position() >= source.size()) {
+                return; // trailing partial record
+            }
+        }
+    }
+
+    // Replay is idempotent: records already reflected in the snapshot are skipped
+    private boolean apply(ByteBuffer record, CirculationEngine engine) {
+        byte type = record.get();
+        Member member = engine.findMember(readString(record));
+        int count = type == BORROW_BATCH ? record.getShort() & 0xFFFF : 1;
+        List<LibraryItem> items = new ArrayList<>(count);
+        boolean complete = true;
+        for (int i = 0; i < count; i++) {
+            LibraryItem item = engine.findItem(readString(record));
+            if (item == null) {
+                complete = false;
+            }
+            items.add(item);
+        }
+        LocalDate day1 = LocalDate.ofEpochDay(record.getInt());
+        LocalDate day2 = LocalDate.ofEpochDay(record.getInt());
+        if (member == null || !complete) {
+            return false;
+        }
+        if (type == RETURN) {
+            return engine.restoreReturn(member, items.get(0).getId(), day1);
+        }
+        return engine.restoreLoan(new Loan(member, items, day1, day2));
+    }
+
+    /**
+     * Writes every open loan to a new snapshot, tagged with the journal
+     * position it covers, atomically replaces the previous snapshot and then
+     * compacts the journal down to the records after that position.
+     * Transactions may continue while the snapshot is taken.
+     *
+     * The loans come from a CirculationSnapshots view opened after the
+     * position is read, not from the members: a lend journals its BORROW
+     * before the member sees the loan, but records it in CirculationSnapshots
+     * before journaling (and a return records the item back before its
+     * RETURN), so the view holds every transaction up to the position. Any
+     * later one it also holds is replayed harmlessly: the BORROW finds its
+     * items taken, the RETURN finds the loan still open and closes it.
+     */
+    public void snapshot(CirculationEngine engine) throws IOException {
+        synchronized (snapshotLock) {
+            long coveredPosition;
+            synchronized (this) {
+                coveredPosition = durablePosition;
+            }
+            try (CirculationSnapshots.Snapshot view = engine.getSnapshots().open()) {
+                writeSnapshot(view, coveredPosition);
+            }
+            compact(coveredPosition);
+        }
+    }
+
+    private void writeSnapshot(CirculationSnapshots.Snapshot view, long coveredPosition) throws IOException {
+        // The items each loan still held at the view; a partial return splits items off the Loan itself
+        Map<Loan, List<LibraryItem>> loans = new IdentityHashMap<>();
+        for (CirculationSnapshots.ItemState state : view.getLoans()) {
+            loans.computeIfAbsent(state.getLoan(), loan -> new ArrayList<>()).add(state.getItem());
+        }
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+            buffer.putLong(SNAPSHOT_MAGIC).putLong(coveredPosition);
+            for (Map.Entry<Loan, List<LibraryItem>> entry : loans.entrySet()) {
+                if (buffer.remaining() < HEADER_BYTES + MAX_PAYLOAD_BYTES) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                Loan loan = entry.getKey();
+                List<LibraryItem> items = entry.getValue();
+                buffer = encode(buffer, items.size() == 1 ? BORROW : BORROW_BATCH, loan.getMember().getMemberId(),
+                    items, (int) loan.getBorrowDate().toEpochDay(), (int) loan.getDueDate().toEpochDay());
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // The new snapshot must be on disk before compaction drops what it covers
+        forceDirectory(snapshotFile.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Replaces the journal with one holding only the records after
+     * coveredPosition. The bulk of the tail is copied while appends go on;
+     * only the last few batches are copied with the flusher held off, just
+     * before the new file is renamed into place and takes over appends.
+     */
+    private void compact(long coveredPosition) throws IOException {
+        if (coveredPosition <= basePositionNow()) {
+            return;
+        }
+        Path temp = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeHeader(out, coveredPosition);
+            // Durable bytes never change, so they can be copied without holding anything
+            long copied = copyTail(out, coveredPosition, getDurablePosition());
+            synchronized (channelLock) {
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                }
+                copyTail(out, copied, getDurablePosition());
+                out.force(true);
+                Files.move(temp, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                forceDirectory(journalFile.toAbsolutePath().getParent());
+                FileChannel old = channel;
+                channel = FileChannel.open(journalFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channel.position(channel.size());
+                basePosition = coveredPosition;
+                headerBytes = JOURNAL_HEADER_BYTES;
+                old.close();
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Appends the records between two logical positions of the current journal to out
+    private long copyTail(FileChannel out, long from, long to) throws IOException {
+        FileChannel source;
+        long offset;
+        synchronized (channelLock) {
+            source = channel;
+            offset = headerBytes - basePosition;
+        }
+        long position = from;
+        while (position < to) {
+            position += source.transferTo(position + offset, to - position, out);
+        }
+        return to;
+    }
+
+    private long basePositionNow() {
+        synchronized (channelLock) {
+            return basePosition;
+        }
+    }
+
+    public synchronized void startSnapshots(CirculationEngine engine, long period, TimeUnit unit) {
+        if (snapshotter != null) {
+            return;
+        }
+        snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "loan-journal-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+        snapshotter.scheduleWithFixedDelay(() -> {
+                try {
+                    snapshot(engine);
+                } catch (IOException e) {
+                    System.err.println("Loan snapshot failed: " + e.getMessage());
+                }
+            }, period, period, unit);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+            if (snapshotter != null) {
+                snapshotter.shutdown();
+            }
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (channelLock) {
+            channel.close();
+        }
+    }
+
+    // Writes the header at the start of an empty file and leaves the position after it
+    private static void writeHeader(FileChannel out, long basePosition) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_BYTES);
+        header.putLong(JOURNAL_MAGIC).putLong(basePosition).flip();
+        while (header.hasRemaining()) {
+            out.write(header);
+        }
+    }
+
+    // Header length of the journal: 0 for a journal written before compaction existed
+    private static long headerBytes(FileChannel in) throws IOException {
+        if (in.size() < JOURNAL_HEADER_BYTES) {
+            return 0;
+        }
+        // A record starts with its payload length, which is never as large as the magic
+        return readLongAt(in, 0) == JOURNAL_MAGIC ? JOURNAL_HEADER_BYTES : 0;
+    }
+
+    // Logical position of the journal's first record
+    private static long readBase(FileChannel in) throws IOException {
+        return headerBytes(in) == 0 ? 0 : readLongAt(in, 8);
+    }
+
+    private static long readLongAt(FileChannel in, long position) throws IOException {
+        ByteBuffer value = ByteBuffer.allocate(8);
+        while (value.hasRemaining()) {
+            if (in.read(value, position + value.position()) < 0) {
+                throw new IOException("Unexpected end of journal header");
+            }
+        }
+        return value.getLong(0);
+    }
+
+    // Makes a rename in the directory durable; not every platform can open a directory
+    static void forceDirectory(Path directory) {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Best effort: the rename is still atomic, only its durability is up to the OS
+        }
+    }
+
+    private static ByteBuffer encode(ByteBuffer buffer, byte type, String memberId, List<LibraryItem> items,
+    int day1, int day2) {
+        byte[] member = memberId.getBytes(StandardCharsets.UTF_8);
+        byte[][] itemIds = new byte[items.size()][];
+        int length = 1 + 2 + member.length + 8 + (type == BORROW_BATCH ? 2 : 0);
+        for (int i = 0; i < itemIds.length; i++) {
+            itemIds[i] = items.get(i).getId().getBytes(StandardCharsets.UTF_8);
+            length += 2 + itemIds[i].length;
+        }
+        if (length > MAX_PAYLOAD_BYTES) {
+            throw new IllegalArgumentException("Journal record too large for member " + memberId);
+        }
+        if (buffer.remaining() < HEADER_BYTES + length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + HEADER_BYTES + length));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+
+        int start = buffer.position();
+        buffer.position(start + HEADER_BYTES);
+        buffer.put(type);
+        buffer.putShort((short) member.length).put(member);
+        if (type == BORROW_BATCH) {
+            buffer.putShort((short) itemIds.length);
+        }
+        for (byte[] item : itemIds) {
+            buffer.putShort((short) item.length).put(item);
+        }
+        buffer.putInt(day1).putInt(day2);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), buffer.arrayOffset() + start + HEADER_BYTES, length);
+        buffer.putInt(start, length);
+        buffer.putInt(start + 4, (int) crc.getValue());
+        return buffer;
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getShort() & 0xFFFF;
+        String value = new String(record.array(), record.arrayOffset() + record.position(), length,
+            StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+
+    private static void readFully(FileChannel source, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (source.read(buffer) < 0) {
+                throw new IOException("Unexpected end of snapshot");
+            }
+        }
+    }
+}
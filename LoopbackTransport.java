@@ -0,0 +1,48 @@
+/**
+ * LoopbackTransport - In-Process Transport for Branch Shards
+ *
+ * This class hosts every BranchShard in the current JVM and hands requests
+ * straight to the shard's executor, so a multi-branch deployment can be run
+ * and measured on one machine.
+ *
+ * Key Features:
+ * - Each shard keeps its own thread, so shards run in parallel exactly as
+ *   separate nodes would (up to the number of cores)
+ * - No serialization: requests and replies are passed by reference
+ */
+
+import java.util.concurrent.CompletableFuture;
+
+// LoopbackTransport class to run all branch shards in one JVM
+public class LoopbackTransport implements ShardTransport {
+    private final BranchShard[] shards;
+
+    public LoopbackTransport(int shardCount, int expectedItemsPerShard) {
+        shards = new BranchShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new BranchShard(i, expectedItemsPerShard);
+        }
+    }
+
+    @Override
+    public int shardCount() {
+        return shards.length;
+    }
+
+    // The shard itself, for local inspection and reports
+    public BranchShard getShard(int shard) {
+        return shards[shard];
+    }
+
+    @Override
+    public CompletableFuture<BranchShard.Reply> send(int shard, BranchShard.Request request) {
+        return shards[shard].submit(request);
+    }
+
+    @Override
+    public void close() {
+        for (BranchShard shard : shards) {
+            shard.close();
+        }
+    }
+}
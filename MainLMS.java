@@ -7,117 +7,428 @@
  * Key Features:
  * - Dual interface (Member/Librarian) with role-based access
  * - Real-time dashboard for loan tracking and fee calculation
+ * - Listings are JTables that only render the visible rows; their data is
+ *   loaded off the EDT and kept current from LoanEventLog events, so a
+ *   borrow or return updates one row instead of rebuilding the view
  * - Integrated borrowing and return management
+ * - Catalog search by title, author, director, ISBN or issue
  * - Dynamic status updates for library items
+ * - Loans survive restarts through the LoanJournal in ./library-data
+ * - Items and members are bulk-loaded from ./library-data/items.csv and
+ *   members.csv (or .jsonl) when present, and can be exported there
  * 
+ * All business rules live behind CirculationService; this class only handles
+ * presentation and user input.
+ *
  * Requirements Addressed:
  * - Event Handling: Manages borrowing and return events
- * - Polymorphism: Uses LibraryItem's polymorphic methods for fee calculation
+ * - Polymorphism: LibraryItem subclasses report their ItemType, which selects
+ *   the FeeSchedule policy used for fee calculation
  * - User Interface: Provides GUI for system interaction
  */
 
 import javax.swing.*;
+import javax.swing.table.TableModel;
 import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 public class MainLMS {
-    private List<LibraryItem> items = new ArrayList<>();
-    private List<Member> members = new ArrayList<>();
-    private JTextArea outputArea;
+    private final CirculationService circulation;
+    private LoanJournal journal;
+    private JTable listingTable;
     private Member currentMember;
     private JFrame currentFrame;
-    private JPanel dashboardPanel;
+    private static final String DATA_DIR = "library-data";
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    // Models that follow loan events; null when not on screen
+    private PagedTableModel<LibraryItem> availableListing;
+    private ListingTableModel<CirculationSnapshots.ItemState> itemListing;
+    private ListingTableModel<LoanRow> loanListing;
+    private ListingTableModel<LoanRow> dashboardRows;
+    private JLabel totalFeesLabel;
+
+    // Loan events that arrive while a listing is loading are replayed afterwards
+    private int loadsInFlight;
+    private final List<LoanChange> pendingChanges = new ArrayList<>();
+
+    // One borrowed item of a loan, as shown in the loan listings
+    private static final class LoanRow {
+        final Member member;
+        final Loan loan;
+        final LibraryItem item;
+
+        LoanRow(Member member, Loan loan, LibraryItem item) {
+            this.member = member;
+            this.loan = loan;
+            this.item = item;
+        }
+    }
+
+    // A member and their loan count as of the snapshot the listing was read from
+    private static final class MemberRow {
+        final Member member;
+        final int loanCount;
+
+        MemberRow(Member member, int loanCount) {
+            this.member = member;
+            this.loanCount = loanCount;
+        }
+    }
+
+    // One search result; the zero-padded rank keeps the rows in rank order
+    private static final class SearchHit {
+        final String rank;
+        final LibraryItem item;
+
+        SearchHit(int rank, LibraryItem item) {
+            this.rank = String.format("%06d", rank);
+            this.item = item;
+        }
+    }
+
+    // Copy of a BORROW/RETURN event, since LoanEventLog reuses its Event objects
+    private static final class LoanChange {
+        final LoanEventLog.EventType type;
+        final String memberId;
+        final String itemId;
+
+        LoanChange(LoanEventLog.EventType type, String memberId, String itemId) {
+            this.type = type;
+            this.memberId = memberId;
+            this.itemId = itemId;
+        }
+    }
 
     public MainLMS() {
-        initializeLibrary();
-        showLoginDialog();
+        CirculationEngine engine = new CirculationEngine();
+        circulation = engine;
+        loadLibrary(engine);
     }
 
-    private void initializeLibrary() {
-        items.add(new Book("A Little Life", "B001", "Hanya Yanagihara", "978-0385539258"));
-        items.add(new Book("The Midnight Library", "B002", "Matt Haig", "978-0525559474"));
-        items.add(new Book("Project Hail Mary", "B003", "Andy Weir", "978-0593135204"));
-        items.add(new Magazine("Mastika", "M001", "January 2025"));
-        items.add(new DVD("The Hunger Games", "D001", "Gary Ross"));
+    /**
+     * Imports the library data, recovers the loan journal and opens the
+     * history archive on a SwingWorker, so a large import never freezes the
+     * EDT. A small window shows progress; problems are collected and shown
+     * once loading is done, followed by the login dialog.
+     */
+    private void loadLibrary(CirculationEngine engine) {
+        JFrame loadingFrame = new JFrame("Library System");
+        loadingFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        JLabel loadingLabel = new JLabel("Loading library data...", SwingConstants.CENTER);
+        loadingLabel.setBorder(BorderFactory.createEmptyBorder(20, 40, 20, 40));
+        loadingFrame.add(loadingLabel);
+        loadingFrame.pack();
+        loadingFrame.setLocationRelativeTo(null);
+        loadingFrame.setVisible(true);
+
+        new SwingWorker<List<String>, Void>() {
+            @Override
+            protected List<String> doInBackground() {
+                List<String> problems = new ArrayList<>();
+                initializeLibrary(engine, problems);
+                openJournal(engine, problems);
+                openArchive(engine, problems);
+                engine.getDueDateIndex().startPruning(1, TimeUnit.DAYS);
+                return problems;
+            }
 
-        // Initialize members
-        Member aleesya = new Member("A001", "Aleesya Najwa");
-        members.add(aleesya);
-        members.add(new Member("A002", "Amirul Danial"));
-        members.add(new Member("A003", "Alya Natasha"));
-        members.add(new Member("A004", "Arieq Danish"));
+            @Override
+            protected void done() {
+                loadingFrame.dispose();
+                List<String> problems;
+                try {
+                    problems = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    problems = List.of("Could not load the library: " + e.getMessage());
+                }
+                for (String problem : problems) {
+                    JOptionPane.showMessageDialog(null, problem);
+                }
+                LoanEventLog.global().subscribe(event -> {
+                        if (event.getType() != LoanEventLog.EventType.LATE_FEE) {
+                            LoanChange change = new LoanChange(event.getType(), event.getMemberId(),
+                                event.getItemId());
+                            SwingUtilities.invokeLater(() -> onLoanChange(change));
+                        }
+                    });
+                showLoginDialog();
+            }
+        }.execute();
+    }
+
+    // Loads items.csv/.jsonl and members.csv/.jsonl from ./library-data, or the sample data
+    private void initializeLibrary(CirculationEngine engine, List<String> problems) {
+        LibraryTransfer transfer = new LibraryTransfer();
+        try {
+            Path items = dataFile("items");
+            if (items != null) {
+                reportImport(items, transfer.importItems(items, engine.getCatalog()), problems);
+            } else {
+                addSampleItems();
+            }
+            Path members = dataFile("members");
+            if (members != null) {
+                reportImport(members, transfer.importMembers(members, engine.getMemberRegistry()), problems);
+            } else {
+                addSampleMembers();
+            }
+        } catch (IOException e) {
+            problems.add("Could not import library data: " + e.getMessage());
+        }
+    }
+
+    private static Path dataFile(String name) {
+        for (String extension : new String[] { ".csv", ".jsonl" }) {
+            Path file = Paths.get(DATA_DIR, name + extension);
+            if (Files.isRegularFile(file)) {
+                return file;
+            }
+        }
+        return null;
+    }
 
+    // Only imports that rejected lines are shown; a clean import needs no dialog
+    private static void reportImport(Path file, LibraryTransfer.Report report, List<String> problems) {
+        if (report.getRejected() > 0) {
+            problems.add(file + ": " + report + "\n" + String.join("\n", report.getErrors()));
+        }
+    }
+
+    private void addSampleItems() {
+        circulation.addItem(new Book("A Little Life", "B001", "Hanya Yanagihara", "978-0385539258"));
+        circulation.addItem(new Book("The Midnight Library", "B002", "Matt Haig", "978-0525559474"));
+        circulation.addItem(new Book("Project Hail Mary", "B003", "Andy Weir", "978-0593135204"));
+        circulation.addItem(new Magazine("Mastika", "M001", "January 2025"));
+        circulation.addItem(new DVD("The Hunger Games", "D001", "Gary Ross"));
+    }
+
+    private void addSampleMembers() {
+        circulation.addMember(new Member("A001", "Aleesya Najwa"));
+        circulation.addMember(new Member("A002", "Amirul Danial"));
+        circulation.addMember(new Member("A003", "Alya Natasha"));
+        circulation.addMember(new Member("A004", "Arieq Danish"));
+    }
+
+    // Restores saved loans, or seeds the sample loan on a fresh data directory
+    private void openJournal(CirculationEngine engine, List<String> problems) {
+        try {
+            journal = LoanJournal.open(Paths.get(DATA_DIR));
+            boolean fresh = journal.isEmpty();
+            journal.recover(engine);
+            engine.setJournal(journal);
+            if (fresh) {
+                seedSampleLoans(engine);
+            }
+            journal.startSnapshots(engine, 5, TimeUnit.MINUTES);
+        } catch (IOException e) {
+            problems.add("Could not open loan journal: " + e.getMessage() + "\nLoans will not be saved.");
+            seedSampleLoans(engine);
+        }
+    }
+
+    // Keeps returned loans in ./library-data/history; today's returns are logged as they happen
+    private void openArchive(CirculationEngine engine, List<String> problems) {
+        try {
+            LoanArchive archive = LoanArchive.open(Paths.get(DATA_DIR, "history"));
+            if (!archive.getLoadErrors().isEmpty()) {
+                problems.add("Some loan history could not be read and was set aside (*.corrupt):\n"
+                    + String.join("\n", archive.getLoadErrors()));
+            }
+            engine.setArchive(archive);
+            Runtime.getRuntime().addShutdownHook(new Thread(archive::close, "loan-archive-flush"));
+        } catch (IOException e) {
+            problems.add("Could not open loan history: " + e.getMessage() + "\nReturned loans will not be kept.");
+        }
+    }
+
+    private void seedSampleLoans(CirculationEngine engine) {
         // Create an overdue loan for Aleesya (a sample)
-        LibraryItem book = findItem("B001"); // A Little Life
-        if (book != null) {
-            Loan overdueLoan = new Loan(aleesya, book) {
-                    // Override getDueDate to simulate an overdue loan
-                    @Override
-                    public LocalDate getDueDate() {
-                        return LocalDate.now().minusDays(5); // 5 days overdue
-                    }
-                };
-            overdueLoan.onBorrow();
-            aleesya.addLoan(overdueLoan);
+        Member aleesya = circulation.findMember("A001");
+        LibraryItem book = circulation.findItem("B001"); // A Little Life
+        if (aleesya != null && book != null) {
+            // Borrowed 19 days ago, so the 2-week loan is 5 days overdue
+            Loan overdueLoan = new Loan(aleesya, book, LocalDate.now().minusDays(Loan.LOAN_PERIOD_DAYS + 5));
+            engine.restoreLoan(overdueLoan);
         }
     }
 
-    // Updates the dashboard display with current loans and fees
+    // Builds the dashboard once per member window; loan events keep it current
+    private JPanel createDashboard() {
+        dashboardRows = new ListingTableModel<LoanRow>(row -> row.item.getId())
+            .column("Title", row -> row.item.getTitle())
+            .column("Item ID", row -> row.item.getId())
+            .column("Due", row -> row.loan.getDueDate().format(DATE_FORMAT))
+            .column("Days Late", row -> daysLate(row))
+            .column("Late Fee", row -> Money.format(lateFeeCents(row)));
+        totalFeesLabel = new JLabel(" ");
+        dashboardRows.addTableModelListener(e -> updateTotalFees());
+
+        JTable dashboardTable = new JTable(dashboardRows);
+        dashboardTable.setPreferredScrollableViewportSize(new Dimension(560, 100));
+
+        JPanel statsPanel = new JPanel(new BorderLayout());
+        statsPanel.setBorder(BorderFactory.createTitledBorder("Dashboard - Current Loans"));
+        statsPanel.add(new JScrollPane(dashboardTable), BorderLayout.CENTER);
+        statsPanel.add(totalFeesLabel, BorderLayout.SOUTH);
+        return statsPanel;
+    }
+
+    // Reloads the dashboard rows for the current member in the background
     private void showDashboard() {
-        if (dashboardPanel != null) {
-            dashboardPanel.removeAll();
-        } else {
-            dashboardPanel = new JPanel(new BorderLayout());
+        Member member = currentMember;
+        load(dashboardRows, () -> loanRows(member));
+    }
+
+    private void updateTotalFees() {
+        long totalFees = 0;
+        for (LoanRow row : dashboardRows.getRows()) {
+            totalFees += lateFeeCents(row);
         }
+        totalFeesLabel.setText(totalFees > 0
+            ? "Total Outstanding Fees: " + Money.format(totalFees) : " ");
+    }
 
-        // Create dashboard content
-        JPanel statsPanel = new JPanel(new GridLayout(3, 1));
-        statsPanel.setBorder(BorderFactory.createTitledBorder("Dashboard"));
-
-        // Show borrowed items, due dates, and fees
-        StringBuilder dashboardText = new StringBuilder();
-        dashboardText.append("Current Loans:\n");
-        if (currentMember != null) {
-            double totalFees = 0;
-            for (Loan loan : currentMember.getLoans()) {
-                LocalDate dueDate = loan.getDueDate();
-                LocalDate now = LocalDate.now();
-                long daysLate = 0;
-                double fee = 0;
+    private long daysLate(LoanRow row) {
+        return circulation.daysLate(row.loan, LocalDate.now());
+    }
 
-                if (now.isAfter(dueDate)) {
-                    daysLate = ChronoUnit.DAYS.between(dueDate, now);
-                    fee = loan.getItem().calculateLateFee((int) daysLate);
-                    totalFees += fee;
+    private long lateFeeCents(LoanRow row) {
+        long daysLate = daysLate(row);
+        return daysLate > 0 ? row.item.calculateLateFeeCents((int) daysLate) : 0;
+    }
+
+    private static List<LoanRow> loanRows(Member member) {
+        List<LoanRow> rows = new ArrayList<>();
+        for (Loan loan : member.getLoans()) {
+            for (LibraryItem item : loan.getItems()) {
+                rows.add(new LoanRow(member, loan, item));
+            }
+        }
+        return rows;
+    }
+
+    // The open loan row for the item, or null if it was returned meanwhile
+    private LoanRow loanRow(String memberId, String itemId) {
+        Member member = circulation.findMember(memberId);
+        LibraryItem item = circulation.findItem(itemId);
+        Loan loan = member == null ? null : member.findLoan(itemId);
+        return loan == null || item == null ? null : new LoanRow(member, loan, item);
+    }
+
+    /**
+     * Computes the rows off the EDT with a SwingWorker, then hands them to the
+     * model. Loan events received while any load is running are held back and
+     * replayed afterwards; replaying is safe because upsert/remove are
+     * idempotent.
+     */
+    private <T> void load(ListingTableModel<T> model, Supplier<List<T>> query) {
+        loadsInFlight++;
+        new SwingWorker<List<T>, Void>() {
+            @Override
+            protected List<T> doInBackground() {
+                List<T> rows = query.get();
+                rows.sort(model.keyOrder());
+                return rows;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    model.setRows(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    showFeedbackMessage("Error", "Could not load the listing: " + e.getMessage());
                 }
+                loadFinished();
+            }
+        }.execute();
+    }
 
-                dashboardText.append(String.format("%s - Due: %s\n", 
-                        loan.getItem().getTitle(),
-                        dueDate.format(DateTimeFormatter.ofPattern("dd/MM/yyyy"))));
+    // Fetches the page after afterId off the EDT, held back from loan events
+    // the same way as load()
+    private void loadPage(PagedTableModel<LibraryItem> model, LibraryItem.ItemStatus status, String afterId) {
+        loadsInFlight++;
+        new SwingWorker<List<LibraryItem>, Void>() {
+            @Override
+            protected List<LibraryItem> doInBackground() {
+                return circulation.getCatalog().getPage(status, afterId, PagedTableModel.PAGE_ROWS);
+            }
 
-                if (daysLate > 0) {
-                    dashboardText.append(String.format("    Days Late: %d, Late Fee: $%.2f\n", 
-                            daysLate, fee));
+            @Override
+            protected void done() {
+                try {
+                    model.appendPage(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    showFeedbackMessage("Error", "Could not load the listing: " + e.getMessage());
                 }
+                loadFinished();
             }
+        }.execute();
+    }
 
-            if (totalFees > 0) {
-                dashboardText.append(String.format("\nTotal Outstanding Fees: $%.2f\n", totalFees));
+    private void loadFinished() {
+        loadsInFlight--;
+        if (loadsInFlight == 0) {
+            for (LoanChange change : pendingChanges) {
+                applyLoanChange(change);
             }
+            pendingChanges.clear();
         }
+    }
 
-        JTextArea dashboardArea = new JTextArea(dashboardText.toString());
-        dashboardArea.setEditable(false);
-        statsPanel.add(new JScrollPane(dashboardArea));
+    // Runs on the EDT for every BORROW/RETURN event
+    private void onLoanChange(LoanChange change) {
+        if (loadsInFlight > 0) {
+            pendingChanges.add(change);
+        } else {
+            applyLoanChange(change);
+        }
+    }
 
-        dashboardPanel.add(statsPanel, BorderLayout.NORTH);
-        currentFrame.add(dashboardPanel, BorderLayout.SOUTH);
-        currentFrame.revalidate();
-        currentFrame.repaint();
+    // Updates only the affected row of each model on screen
+    private void applyLoanChange(LoanChange change) {
+        boolean borrowed = change.type == LoanEventLog.EventType.BORROW;
+        if (availableListing != null) {
+            LibraryItem item = circulation.findItem(change.itemId);
+            if (!borrowed && item != null && item.getStatus() == LibraryItem.ItemStatus.AVAILABLE) {
+                availableListing.upsert(item);
+            } else {
+                availableListing.remove(change.itemId);
+            }
+        }
+        if (itemListing != null) {
+            LibraryItem item = circulation.findItem(change.itemId);
+            if (item != null) {
+                itemListing.upsert(new CirculationSnapshots.ItemState(item, item.getStatus(), null));
+            }
+        }
+        updateLoanRows(loanListing, change, borrowed);
+        if (currentMember != null && currentMember.getMemberId().equals(change.memberId)) {
+            updateLoanRows(dashboardRows, change, borrowed);
+        }
+    }
+
+    private void updateLoanRows(ListingTableModel<LoanRow> model, LoanChange change, boolean borrowed) {
+        if (model == null) {
+            return;
+        }
+        LoanRow row = borrowed ? loanRow(change.memberId, change.itemId) : null;
+        if (row != null) {
+            model.upsert(row);
+        } else {
+            model.remove(change.itemId);
+        }
     }
 
     private void showLoginDialog() {
@@ -139,13 +450,12 @@ public class MainLMS {
         memberBtn.addActionListener(e -> {
                     String memberId = JOptionPane.showInputDialog("Enter Member ID (A001-A004):");
                     if (memberId != null) {
-                        for (Member member : members) {
-                            if (member.getMemberId().equals(memberId)) {
-                                currentMember = member;
-                                loginFrame.dispose(); 
-                                showMemberInterface();
-                                return;
-                            }
+                        Member member = circulation.findMember(memberId);
+                        if (member != null) {
+                            currentMember = member;
+                            loginFrame.dispose(); 
+                            showMemberInterface();
+                            return;
                         }
                         JOptionPane.showMessageDialog(null, "Invalid Member ID");
                     }
@@ -163,34 +473,78 @@ public class MainLMS {
 
     // Handles the item borrow process with fee calculation
     private void borrowItem() {
-        String itemId = JOptionPane.showInputDialog("Enter Item ID to borrow:");
-        if (itemId != null) {
-            LibraryItem selectedItem = findItem(itemId);
-            if (selectedItem != null) {
-                if (selectedItem.getStatus() == LibraryItem.ItemStatus.AVAILABLE) {
-                    Loan loan = new Loan(currentMember, selectedItem);
-                    currentMember.addLoan(loan);
-                    loan.onBorrow();
-                    showFeedbackMessage("Borrowing Successful!", "Item borrowed successfully.");
-                    showDashboard(); // Refresh dashboard
-                } else {
-                    showFeedbackMessage("Item not available", "This item is currently borrowed.");
+        String input = JOptionPane.showInputDialog("Enter Item ID(s) to borrow (separate several with commas):");
+        if (input != null) {
+            // Several ids are checked out together: either all are borrowed or none
+            List<String> itemIds = new ArrayList<>();
+            for (String id : input.split(",")) {
+                if (!id.trim().isEmpty()) {
+                    itemIds.add(id.trim());
                 }
-            } else {
-                showFeedbackMessage("Error", "Item not found.");
             }
+            CirculationService.BorrowResult result = itemIds.size() == 1
+                ? circulation.borrow(currentMember, itemIds.get(0))
+                : circulation.borrowAll(currentMember, itemIds);
+            switch (result) {
+                case BORROWED:
+                    showFeedbackMessage("Borrowing Successful!", itemIds.size() == 1
+                        ? "Item borrowed successfully." : itemIds.size() + " items borrowed successfully.");
+                    break;
+                case UNAVAILABLE:
+                    if (itemIds.size() == 1) {
+                        offerHold(itemIds.get(0));
+                    } else {
+                        showFeedbackMessage("Item not available",
+                            "One or more items are currently borrowed. Nothing was borrowed.");
+                    }
+                    break;
+                default:
+                    showFeedbackMessage("Error", "Item not found.");
+            }
+        }
+    }
+
+    // Lets the member queue for a borrowed item; it is lent to them on return
+    private void offerHold(String itemId) {
+        int choice = JOptionPane.showConfirmDialog(currentFrame,
+            "This item is currently borrowed.\nPlace a hold? It will be lent to you as soon as it is returned.",
+            "Item not available", JOptionPane.YES_NO_OPTION);
+        if (choice != JOptionPane.YES_OPTION) {
+            return;
+        }
+        switch (circulation.placeHold(currentMember, itemId)) {
+            case HELD:
+                showFeedbackMessage("Hold Placed", "You are in the queue for this item.");
+                break;
+            case BORROWED:
+                showFeedbackMessage("Borrowing Successful!", "The item was just returned and is now lent to you.");
+                break;
+            case UNAVAILABLE:
+                if (currentMember.findLoan(itemId) != null) {
+                    showFeedbackMessage("Item not available", "You already have this item.");
+                } else if (JOptionPane.showConfirmDialog(currentFrame,
+                        "You are already waiting for this item. Cancel your hold?",
+                        "Hold", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION
+                    && circulation.cancelHold(currentMember, itemId)) {
+                    showFeedbackMessage("Hold Cancelled", "Your hold was cancelled.");
+                }
+                break;
+            default:
+                showFeedbackMessage("Error", "Item not found.");
         }
     }
 
     // Handles the item return process with fee calculation
     private void returnItem() {
-        if (currentMember.getLoans().isEmpty()) {
+        if (currentMember.getLoanCount() == 0) {
             showFeedbackMessage("No items to return", "You have no borrowed items.");
             return;
         }
 
+        // Items are returned one at a time, even from a multi-item loan
         String[] items = currentMember.getLoans().stream()
-            .map(loan -> loan.getItem().getId() + " - " + loan.getItem().getTitle())
+            .flatMap(loan -> loan.getItems().stream())
+            .map(item -> item.getId() + " - " + item.getTitle())
             .toArray(String[]::new);
 
         String selected = (String) JOptionPane.showInputDialog(
@@ -204,27 +558,19 @@ public class MainLMS {
 
         if (selected != null) {
             String itemId = selected.split(" - ")[0];
-            for (Loan loan : currentMember.getLoans()) {
-                if (loan.getItem().getId().equals(itemId)) {
-                    LocalDate now = LocalDate.now();
-                    LocalDate dueDate = loan.getDueDate();
-                    double fee = 0;
-
-                    if (now.isAfter(dueDate)) {
-                        long daysLate = ChronoUnit.DAYS.between(dueDate, now);
-                        fee = loan.getItem().calculateLateFee((int) daysLate);
-                        showFeedbackMessage("Late Return Fee", 
-                            String.format("Late fee charged: $%.2f\nDays late: %d", fee, daysLate));
-                    }
+            Loan loan = circulation.returnItem(currentMember, itemId);
+            if (loan != null) {
+                LocalDate now = LocalDate.now();
+                long fee = circulation.lateFeeCents(loan, now);
 
-                    loan.onReturn();
-                    currentMember.getLoans().remove(loan);
-                    showFeedbackMessage("Return Successful!", 
-                        fee > 0 ? "Item returned successfully. Please pay the late fee." 
-                        : "Item returned successfully.");
-                    showDashboard(); // Refresh dashboard
-                    return;
+                if (fee > 0) {
+                    showFeedbackMessage("Late Return Fee", 
+                        String.format("Late fee charged: %s\nDays late: %d", Money.format(fee), circulation.daysLate(loan, now)));
                 }
+
+                showFeedbackMessage("Return Successful!", 
+                    fee > 0 ? "Item returned successfully. Please pay the late fee." 
+                    : "Item returned successfully.");
             }
         }
     }
@@ -233,53 +579,50 @@ public class MainLMS {
         JOptionPane.showMessageDialog(currentFrame, message, title, JOptionPane.INFORMATION_MESSAGE);
     }
 
-    private LibraryItem findItem(String id) {
-        return items.stream()
-        .filter(item -> item.getId().equals(id))
-        .findFirst()
-        .orElse(null);
-    }
-
     private void showMemberInterface() {
         JFrame memberFrame = new JFrame("₊‧°𐐪♡𐑂°‧₊ Member Interface - " + currentMember.getName() + " ₊‧°𐐪♡𐑂°‧₊");
         currentFrame = memberFrame;
-        memberFrame.setSize(600, 500);
+        memberFrame.setSize(720, 500);
         memberFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
         JPanel mainPanel = new JPanel(new BorderLayout());
 
         // Button panel at the top
-        JPanel buttonPanel = new JPanel(new GridLayout(1, 5, 10, 10));
+        JPanel buttonPanel = new JPanel(new GridLayout(1, 6, 10, 10));
         buttonPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
         JButton viewItemsBtn = new JButton("View Available Items");
+        JButton searchBtn = new JButton("Search");
         JButton borrowBtn = new JButton("Borrow Item");
         JButton returnBtn = new JButton("Return Item");
         JButton viewLoansBtn = new JButton("View My Loans");
         JButton logoutBtn = new JButton("Logout");
 
         buttonPanel.add(viewItemsBtn);
+        buttonPanel.add(searchBtn);
         buttonPanel.add(borrowBtn);
         buttonPanel.add(returnBtn);
         buttonPanel.add(viewLoansBtn);
         buttonPanel.add(logoutBtn);
 
         // Main content area
-        outputArea = new JTextArea();
-        outputArea.setEditable(false);
-        JScrollPane scrollPane = new JScrollPane(outputArea);
+        listingTable = new JTable();
+        listingTable.setFillsViewportHeight(true);
+        JScrollPane scrollPane = new JScrollPane(listingTable);
 
         mainPanel.add(buttonPanel, BorderLayout.NORTH);
         mainPanel.add(scrollPane, BorderLayout.CENTER);
 
         // Add action listeners
         viewItemsBtn.addActionListener(e -> displayAvailableItems());
+        searchBtn.addActionListener(e -> searchItems());
         borrowBtn.addActionListener(e -> borrowItem());
         returnBtn.addActionListener(e -> returnItem());
         viewLoansBtn.addActionListener(e -> displayCurrentLoans());
         logoutBtn.addActionListener(e -> logout());
 
         memberFrame.add(mainPanel);
+        memberFrame.add(createDashboard(), BorderLayout.SOUTH);
         memberFrame.setLocationRelativeTo(null);
         memberFrame.setVisible(true);
 
@@ -290,25 +633,33 @@ public class MainLMS {
     private void showLibrarianInterface() {
         JFrame librarianFrame = new JFrame("₊‧°𐐪♡𐑂°‧₊ Librarian Interface ₊‧°𐐪♡𐑂°‧₊");
         currentFrame = librarianFrame;  // Store current frame for logout
-        librarianFrame.setSize(500, 400);
+        librarianFrame.setSize(900, 400);
         librarianFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-        JPanel buttonPanel = new JPanel(new GridLayout(1, 4, 10, 10)); 
+        JPanel buttonPanel = new JPanel(new GridLayout(1, 8, 10, 10)); 
         buttonPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
         JButton viewAllItemsBtn = new JButton("View All Items");
         JButton viewMembersBtn = new JButton("View All Members");
         JButton viewLoansBtn = new JButton("View Current Loans");
+        JButton overdueBtn = new JButton("Overdue Loans");
+        JButton metricsBtn = new JButton("View Metrics");
+        JButton historyBtn = new JButton("Loan History");
+        JButton exportBtn = new JButton("Export Data");
         JButton logoutBtn = new JButton("Logout");  // New logout button
 
         buttonPanel.add(viewAllItemsBtn);
         buttonPanel.add(viewMembersBtn);
         buttonPanel.add(viewLoansBtn);
+        buttonPanel.add(overdueBtn);
+        buttonPanel.add(metricsBtn);
+        buttonPanel.add(historyBtn);
+        buttonPanel.add(exportBtn);
         buttonPanel.add(logoutBtn);  // Add logout button
 
-        outputArea = new JTextArea();
-        outputArea.setEditable(false);
-        JScrollPane scrollPane = new JScrollPane(outputArea);
+        listingTable = new JTable();
+        listingTable.setFillsViewportHeight(true);
+        JScrollPane scrollPane = new JScrollPane(listingTable);
 
         librarianFrame.setLayout(new BorderLayout());
         librarianFrame.add(buttonPanel, BorderLayout.NORTH);
@@ -317,6 +668,10 @@ public class MainLMS {
         viewAllItemsBtn.addActionListener(e -> displayAllItems());
         viewMembersBtn.addActionListener(e -> displayAllMembers());
         viewLoansBtn.addActionListener(e -> displayCurrentLoans());
+        overdueBtn.addActionListener(e -> displayOverdueLoans());
+        metricsBtn.addActionListener(e -> displayMetrics());
+        historyBtn.addActionListener(e -> displayHistory());
+        exportBtn.addActionListener(e -> exportData());
         logoutBtn.addActionListener(e -> logout());  // Add logout action
 
         librarianFrame.setLocationRelativeTo(null);
@@ -326,45 +681,221 @@ public class MainLMS {
     private void logout() {
         currentFrame.dispose();  // Close current window
         currentMember = null;    // Reset current member
+        showListing(null);       // Stop following loan events
+        dashboardRows = null;
         showLoginDialog();       // Show login dialog again
     }
 
+    // Puts the model on screen; models no longer shown stop receiving loan events
+    private void showListing(TableModel model) {
+        availableListing = model == availableListing ? availableListing : null;
+        itemListing = model == itemListing ? itemListing : null;
+        loanListing = model == loanListing ? loanListing : null;
+        if (model != null) {
+            listingTable.setModel(model);
+        }
+    }
+
     private void displayAvailableItems() {
-        StringBuilder sb = new StringBuilder("Available Items:\n\n");
-        for (LibraryItem item : items) {
-            if (item.getStatus() == LibraryItem.ItemStatus.AVAILABLE) {
-                sb.append(String.format("ID: %s - %s\n", item.getId(), item.getTitle()));
-            }
+        // Paged straight from the catalog's id-ordered status index: only the
+        // rows scrolled into view are ever fetched
+        Catalog catalog = circulation.getCatalog();
+        PagedTableModel<LibraryItem> model = new PagedTableModel<LibraryItem>(LibraryItem::getId,
+                () -> catalog.countByStatus(LibraryItem.ItemStatus.AVAILABLE))
+            .column("ID", LibraryItem::getId)
+            .column("Title", LibraryItem::getTitle)
+            .column("Type", LibraryItem::getType);
+        model.onPageNeeded(afterId -> loadPage(model, LibraryItem.ItemStatus.AVAILABLE, afterId));
+        availableListing = model;
+        showListing(model);
+    }
+
+    private void searchItems() {
+        String query = JOptionPane.showInputDialog("Search by title, author, director, ISBN or issue:");
+        if (query == null || query.trim().isEmpty()) {
+            return;
         }
-        outputArea.setText(sb.toString());
+        ListingTableModel<SearchHit> results = new ListingTableModel<SearchHit>(hit -> hit.rank)
+            .column("ID", hit -> hit.item.getId())
+            .column("Title", hit -> hit.item.getTitle())
+            .column("Type", hit -> hit.item.getType())
+            .column("Status", hit -> hit.item.getStatus());
+        showListing(results);
+        load(results, () -> {
+                List<SearchHit> hits = new ArrayList<>();
+                for (LibraryItem item : circulation.search(query, SearchIndex.DEFAULT_LIMIT)) {
+                    hits.add(new SearchHit(hits.size(), item));
+                }
+                return hits;
+            });
     }
 
+    // The librarian listings read a snapshot, so each one shows a single
+    // consistent moment even while other desks keep lending
     private void displayAllItems() {
-        StringBuilder sb = new StringBuilder("All Items:\n\n");
-        for (LibraryItem item : items) {
-            sb.append(String.format("ID: %s - %s - Status: %s\n", 
-                    item.getId(), item.getTitle(), item.getStatus()));
-        }
-        outputArea.setText(sb.toString());
+        itemListing = new ListingTableModel<CirculationSnapshots.ItemState>(state -> state.getItem().getId())
+            .column("ID", state -> state.getItem().getId())
+            .column("Title", state -> state.getItem().getTitle())
+            .column("Type", state -> state.getItem().getType())
+            .column("Status", CirculationSnapshots.ItemState::getStatus);
+        showListing(itemListing);
+        load(itemListing, () -> {
+                try (CirculationSnapshots.Snapshot snapshot = circulation.openSnapshot()) {
+                    return snapshot.getItems();
+                }
+            });
     }
 
     private void displayAllMembers() {
-        StringBuilder sb = new StringBuilder("All Members:\n\n");
-        for (Member member : members) {
-            sb.append(String.format("ID: %s - %s\n", member.getMemberId(), member.getName()));
-        }
-        outputArea.setText(sb.toString());
+        ListingTableModel<MemberRow> memberListing = new ListingTableModel<MemberRow>(row -> row.member.getMemberId())
+            .column("ID", row -> row.member.getMemberId())
+            .column("Name", row -> row.member.getName())
+            .column("Loans", row -> row.loanCount);
+        showListing(memberListing);
+        load(memberListing, () -> {
+                List<MemberRow> rows = new ArrayList<>();
+                try (CirculationSnapshots.Snapshot snapshot = circulation.openSnapshot()) {
+                    for (Member member : snapshot.getMembers()) {
+                        rows.add(new MemberRow(member, snapshot.getLoanCount(member)));
+                    }
+                }
+                return rows;
+            });
     }
 
     private void displayCurrentLoans() {
-        StringBuilder sb = new StringBuilder("Current Loans:\n\n");
-        for (Member member : members) {
-            for (Loan loan : member.getLoans()) {
-                sb.append(String.format("Member: %s - Item: %s (ID: %s)\n",
-                        member.getName(), loan.getItem().getTitle(), loan.getItem().getId()));
+        loanListing = new ListingTableModel<LoanRow>(row -> row.item.getId())
+            .column("Member", row -> row.member.getName())
+            .column("Item", row -> row.item.getTitle())
+            .column("ID", row -> row.item.getId())
+            .column("Due", row -> row.loan.getDueDate().format(DATE_FORMAT));
+        showListing(loanListing);
+        load(loanListing, () -> {
+                List<LoanRow> rows = new ArrayList<>();
+                try (CirculationSnapshots.Snapshot snapshot = circulation.openSnapshot()) {
+                    for (CirculationSnapshots.ItemState loan : snapshot.getLoans()) {
+                        rows.add(new LoanRow(loan.getBorrower(), loan.getLoan(), loan.getItem()));
+                    }
+                }
+                return rows;
+            });
+    }
+
+    // Overdue items, longest overdue first
+    private void displayOverdueLoans() {
+        ListingTableModel<LoanRow> overdueListing = new ListingTableModel<LoanRow>(row ->
+                row.loan.getDueDate() + row.item.getId())
+            .column("Member", row -> row.member.getName())
+            .column("Member ID", row -> row.member.getMemberId())
+            .column("Item", row -> row.item.getTitle())
+            .column("ID", row -> row.item.getId())
+            .column("Due", row -> row.loan.getDueDate().format(DATE_FORMAT))
+            .column("Days Late", row -> daysLate(row))
+            .column("Late Fee", row -> Money.format(lateFeeCents(row)));
+        showListing(overdueListing);
+        load(overdueListing, () -> {
+                List<LoanRow> rows = new ArrayList<>();
+                for (Loan loan : circulation.getOverdueLoans(LocalDate.now())) {
+                    for (LibraryItem item : loan.getItems()) {
+                        rows.add(new LoanRow(loan.getMember(), loan, item));
+                    }
+                }
+                return rows;
+            });
+    }
+
+    // Operation counts and latency percentiles (microseconds) since start-up
+    private void displayMetrics() {
+        JTextArea metricsArea = new JTextArea(Metrics.global().dump());
+        metricsArea.setEditable(false);
+        metricsArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JOptionPane.showMessageDialog(currentFrame, new JScrollPane(metricsArea),
+            "Circulation Metrics", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    // Writes items.csv and members.csv to ./library-data in the background; they are loaded on the next start
+    private void exportData() {
+        JFrame frame = currentFrame;
+        new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() throws IOException {
+                LibraryTransfer transfer = new LibraryTransfer();
+                Files.createDirectories(Paths.get(DATA_DIR));
+                long items = transfer.exportItems(circulation.getCatalog().getItems(), Paths.get(DATA_DIR, "items.csv"));
+                long members = transfer.exportMembers(circulation.getMembers(), Paths.get(DATA_DIR, "members.csv"));
+                return "Exported " + items + " items and " + members + " members to " + DATA_DIR;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    JOptionPane.showMessageDialog(frame, get());
+                } catch (InterruptedException | ExecutionException e) {
+                    JOptionPane.showMessageDialog(frame, "Export failed: " + e.getCause());
+                }
             }
+        }.execute();
+    }
+
+    /**
+     * This month's most borrowed items and average lateness by type, or one
+     * member's returned loans if a member ID is entered. Queries run off the
+     * EDT over the loan archive only.
+     */
+    private void displayHistory() {
+        LoanArchive archive = circulation.getArchive();
+        if (archive == null) {
+            showFeedbackMessage("Loan History", "Loan history is not available.");
+            return;
+        }
+        String memberId = JOptionPane.showInputDialog(currentFrame,
+            "Member ID for a member's history (leave blank for this month's summary):");
+        if (memberId == null) {
+            return;
         }
-        outputArea.setText(sb.toString());
+        JFrame frame = currentFrame;
+        new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() {
+                LocalDate today = LocalDate.now();
+                StringBuilder report = new StringBuilder();
+                if (!memberId.trim().isEmpty()) {
+                    report.append("Returned loans of ").append(memberId.trim()).append(":\n");
+                    for (LoanArchive.Record record : archive.memberHistory(memberId.trim(), LocalDate.MIN, today)) {
+                        report.append(String.format("%-10s %-8s borrowed %s, returned %s, %d days late\n",
+                            record.getItemId(), record.getItemType(), record.getBorrowDate().format(DATE_FORMAT),
+                            record.getReturnDate().format(DATE_FORMAT), record.getDaysLate()));
+                    }
+                    return report.toString();
+                }
+                LocalDate monthStart = today.withDayOfMonth(1);
+                report.append("Most borrowed this month:\n");
+                for (Map.Entry<String, Long> entry : archive.mostBorrowed(monthStart, today, 10)) {
+                    LibraryItem item = circulation.findItem(entry.getKey());
+                    report.append(String.format("%6d  %-10s %s\n", entry.getValue(), entry.getKey(),
+                        item == null ? "" : item.getTitle()));
+                }
+                report.append("\nAverage days late this month:\n");
+                for (Map.Entry<LibraryItem.ItemType, Double> entry : archive.averageDaysLate(monthStart, today)
+                    .entrySet()) {
+                    report.append(String.format("%-10s %6.2f\n", entry.getKey(), entry.getValue()));
+                }
+                return report.toString();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    JTextArea historyArea = new JTextArea(get());
+                    historyArea.setEditable(false);
+                    historyArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+                    JOptionPane.showMessageDialog(frame, new JScrollPane(historyArea),
+                        "Loan History", JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException | ExecutionException e) {
+                    showFeedbackMessage("Error", "Could not load the loan history: " + e.getMessage());
+                }
+            }
+        }.execute();
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,395 @@
+/**
+ * MappedCatalog - Compact Memory-Mapped Catalog File
+ *
+ * This class stores Book, Magazine and DVD records in a columnar file that is
+ * opened with a MappedByteBuffer, so even a multi-million item catalog opens
+ * in milliseconds and costs almost no heap until records are actually read.
+ *
+ * Key Features:
+ * - Fixed-width columns: type and status bytes, int references for strings
+ * - String dictionary: every distinct title/author/ISBN/issue/director is
+ *   stored once as UTF-8 and shared by all rows that use it
+ * - On-disk hash table for O(1) lookup by item id
+ * - Flyweight ItemView for reading rows without creating LibraryItem objects
+ * - Converter from the in-memory model (write) and back (materialize/toCatalog)
+ *
+ * File Layout (all integers big-endian):
+ * - Header: long magic, int version, int rows, int hash slots, int strings,
+ *   int reserved
+ * - byte type[rows], byte status[rows], padding to a 4-byte boundary
+ * - int id[rows], int title[rows], int field1[rows], int field2[rows]
+ *   (field1/field2 = author/isbn for books, issue number for magazines,
+ *    director for DVDs; -1 when unused)
+ * - int hash[slots]: row + 1 for each id, 0 for an empty slot
+ * - int stringOffsets[strings + 1], then the UTF-8 string bytes
+ *
+ * A single mapping is limited to 2 GB, which holds roughly 20M items with
+ * typical metadata.
+ *
+ * open() checks the header counts and the section offsets they imply
+ * against the file size, and throws an IOException for a short or damaged
+ * file instead of failing later with an index error.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// MappedCatalog class to read and write the columnar catalog file
+public class MappedCatalog implements AutoCloseable {
+    private static final long MAGIC = 0x4C4D53434154414CL; // "LMSCATAL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 28;
+    private static final int NONE = -1;
+
+    private static final LibraryItem.ItemType[] TYPES = LibraryItem.ItemType.values();
+    private static final LibraryItem.ItemStatus[] STATUSES = LibraryItem.ItemStatus.values();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int rows;
+    private final int slots;
+    private final int typeOffset;
+    private final int statusOffset;
+    private final int idOffset;
+    private final int titleOffset;
+    private final int field1Offset;
+    private final int field2Offset;
+    private final int hashOffset;
+    private final int stringOffsetsOffset;
+    private final int stringDataOffset;
+
+    private MappedCatalog(FileChannel channel, boolean writable) throws IOException {
+        this.channel = channel;
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Catalog file larger than 2 GB");
+        }
+        if (size < HEADER_BYTES) {
+            throw new IOException("Not a catalog file: only " + size + " bytes");
+        }
+        this.buffer = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+            0, size);
+        if (buffer.getLong(0) != MAGIC || buffer.getInt(8) != VERSION) {
+            throw new IOException("Not a catalog file (version " + VERSION + ")");
+        }
+        this.rows = buffer.getInt(12);
+        this.slots = buffer.getInt(16);
+        int strings = buffer.getInt(20);
+        // The hash table must be a power of two with a free slot, or findRow() would never stop
+        if (rows < 0 || strings < 0 || slots < 2 || Integer.bitCount(slots) != 1 || slots <= rows) {
+            throw new IOException("Corrupt catalog header: " + rows + " rows, " + slots + " slots, "
+                + strings + " strings");
+        }
+
+        // Computed in longs so that huge counts cannot wrap around
+        long idStart = align4(HEADER_BYTES + 2L * rows);
+        long hashStart = idStart + 16L * rows;
+        long stringOffsetsStart = hashStart + 4L * slots;
+        long stringDataStart = stringOffsetsStart + 4L * (strings + 1L);
+        if (stringDataStart > size) {
+            throw new IOException("Catalog file truncated: " + size + " bytes, header needs " + stringDataStart);
+        }
+        this.typeOffset = HEADER_BYTES;
+        this.statusOffset = typeOffset + rows;
+        this.idOffset = (int) idStart;
+        this.titleOffset = idOffset + 4 * rows;
+        this.field1Offset = titleOffset + 4 * rows;
+        this.field2Offset = field1Offset + 4 * rows;
+        this.hashOffset = (int) hashStart;
+        this.stringOffsetsOffset = (int) stringOffsetsStart;
+        this.stringDataOffset = (int) stringDataStart;
+        long stringBytes = buffer.getInt(stringOffsetsOffset + 4 * strings);
+        if (stringBytes < 0 || stringDataOffset + stringBytes > size) {
+            throw new IOException("Catalog file truncated: string data ends at " + (stringDataOffset + stringBytes)
+                + " of " + size + " bytes");
+        }
+    }
+
+    // Opens read-only; only the pages that are touched are loaded from disk
+    public static MappedCatalog open(Path file) throws IOException {
+        return open(FileChannel.open(file, StandardOpenOption.READ), false);
+    }
+
+    // Opens read-write so setStatus() updates the status column in place
+    public static MappedCatalog openWritable(Path file) throws IOException {
+        return open(FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE), true);
+    }
+
+    // Closes the channel if the file is rejected, so a bad file never leaks it
+    private static MappedCatalog open(FileChannel channel, boolean writable) throws IOException {
+        try {
+            return new MappedCatalog(channel, writable);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    // Returns the row holding the item id, or -1 if it is not in the catalog
+    public int findRow(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int mask = slots - 1;
+        for (int slot = spread(id.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int entry = buffer.getInt(hashOffset + 4 * slot);
+            if (entry == 0) {
+                return -1;
+            }
+            int row = entry - 1;
+            if (stringEquals(buffer.getInt(idOffset + 4 * row), key)) {
+                return row;
+            }
+        }
+    }
+
+    public LibraryItem.ItemType getType(int row) {
+        return TYPES[buffer.get(typeOffset + row)];
+    }
+
+    public LibraryItem.ItemStatus getStatus(int row) {
+        return STATUSES[buffer.get(statusOffset + row)];
+    }
+
+    public void setStatus(int row, LibraryItem.ItemStatus status) {
+        buffer.put(statusOffset + row, (byte) status.ordinal());
+    }
+
+    public String getId(int row) {
+        return string(buffer.getInt(idOffset + 4 * row));
+    }
+
+    public String getTitle(int row) {
+        return string(buffer.getInt(titleOffset + 4 * row));
+    }
+
+    // Returns a reusable flyweight positioned on the given row
+    public ItemView view(int row) {
+        return new ItemView().moveTo(row);
+    }
+
+    // Builds a regular LibraryItem for one row
+    public LibraryItem materialize(int row) {
+        String id = getId(row);
+        String title = getTitle(row);
+        String field1 = string(buffer.getInt(field1Offset + 4 * row));
+        LibraryItem item;
+        switch (getType(row)) {
+            case BOOK:
+                item = new Book(title, id, field1, string(buffer.getInt(field2Offset + 4 * row)));
+                break;
+            case MAGAZINE:
+                item = new Magazine(title, id, field1);
+                break;
+            default:
+                item = new DVD(title, id, field1);
+        }
+        item.setStatus(getStatus(row));
+        return item;
+    }
+
+    // Loads every row into a heap Catalog
+    public Catalog toCatalog() {
+        Catalog catalog = new Catalog(rows);
+        for (int row = 0; row < rows; row++) {
+            catalog.add(materialize(row));
+        }
+        return catalog;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!buffer.isReadOnly()) {
+            buffer.force();
+        }
+        channel.close();
+    }
+
+    // Flyweight read view over one row; strings are decoded only when asked for
+    public class ItemView {
+        private int row;
+
+        public ItemView moveTo(int row) {
+            this.row = row;
+            return this;
+        }
+
+        public int getRow() { return row; }
+
+        public String getId() { return MappedCatalog.this.getId(row); }
+
+        public String getTitle() { return MappedCatalog.this.getTitle(row); }
+
+        public LibraryItem.ItemType getType() { return MappedCatalog.this.getType(row); }
+
+        public LibraryItem.ItemStatus getStatus() { return MappedCatalog.this.getStatus(row); }
+
+        // Author for books, issue number for magazines, director for DVDs
+        public String getCreator() { return string(buffer.getInt(field1Offset + 4 * row)); }
+
+        // ISBN for books, null otherwise
+        public String getIsbn() { return string(buffer.getInt(field2Offset + 4 * row)); }
+    }
+
+    /**
+     * Converts in-memory items into a catalog file. Item ids must be unique.
+     */
+    public static void write(Collection<? extends LibraryItem> items, Path file) throws IOException {
+        int rows = items.size();
+        int slots = Integer.highestOneBit(Math.max(2, rows * 2 - 1)) << 1;
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+
+        byte[] types = new byte[rows];
+        byte[] statuses = new byte[rows];
+        int[] ids = new int[rows];
+        int[] titles = new int[rows];
+        int[] field1 = new int[rows];
+        int[] field2 = new int[rows];
+        int[] hash = new int[slots];
+
+        int row = 0;
+        for (LibraryItem item : items) {
+            types[row] = (byte) item.getType().ordinal();
+            statuses[row] = (byte) item.getStatus().ordinal();
+            ids[row] = intern(item.getId(), dictionary, strings);
+            titles[row] = intern(item.getTitle(), dictionary, strings);
+            field2[row] = NONE;
+            if (item instanceof Book) {
+                field1[row] = intern(((Book) item).getAuthor(), dictionary, strings);
+                field2[row] = intern(((Book) item).getIsbn(), dictionary, strings);
+            } else if (item instanceof Magazine) {
+                field1[row] = intern(((Magazine) item).getIssueNumber(), dictionary, strings);
+            } else if (item instanceof DVD) {
+                field1[row] = intern(((DVD) item).getDirector(), dictionary, strings);
+            } else {
+                field1[row] = NONE;
+            }
+
+            int mask = slots - 1;
+            int slot = spread(item.getId().hashCode()) & mask;
+            while (hash[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            hash[slot] = row + 1;
+            row++;
+        }
+
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer chunk = ByteBuffer.allocate(1 << 20);
+            chunk.putLong(MAGIC).putInt(VERSION).putInt(rows).putInt(slots).putInt(strings.size()).putInt(0);
+            chunk = putBytes(out, chunk, types);
+            chunk = putBytes(out, chunk, statuses);
+            chunk = putBytes(out, chunk, new byte[align4(HEADER_BYTES + 2 * rows) - (HEADER_BYTES + 2 * rows)]);
+            for (int[] column : new int[][] {ids, titles, field1, field2, hash}) {
+                chunk = putInts(out, chunk, column);
+            }
+
+            int[] offsets = new int[strings.size() + 1];
+            for (int i = 0; i < strings.size(); i++) {
+                offsets[i + 1] = offsets[i] + strings.get(i).length;
+            }
+            chunk = putInts(out, chunk, offsets);
+            for (byte[] value : strings) {
+                chunk = putBytes(out, chunk, value);
+            }
+            drain(out, chunk);
+            out.force(true);
+        }
+    }
+
+    private static int intern(String value, Map<String, Integer> dictionary, List<byte[]> strings) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer index = dictionary.get(value);
+        if (index == null) {
+            index = strings.size();
+            dictionary.put(value, index);
+            strings.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return index;
+    }
+
+    private String string(int index) {
+        if (index == NONE) {
+            return null;
+        }
+        int start = buffer.getInt(stringOffsetsOffset + 4 * index);
+        int end = buffer.getInt(stringOffsetsOffset + 4 * (index + 1));
+        byte[] bytes = new byte[end - start];
+        buffer.get(stringDataOffset + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean stringEquals(int index, byte[] key) {
+        int start = buffer.getInt(stringOffsetsOffset + 4 * index);
+        int end = buffer.getInt(stringOffsetsOffset + 4 * (index + 1));
+        if (end - start != key.length) {
+            return false;
+        }
+        int base = stringDataOffset + start;
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(base + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int align4(int offset) {
+        return (offset + 3) & ~3;
+    }
+
+    private static long align4(long offset) {
+        return (offset + 3) & ~3L;
+    }
+
+    private static ByteBuffer putBytes(FileChannel out, ByteBuffer chunk, byte[] values) throws IOException {
+        int index = 0;
+        while (index < values.length) {
+            if (!chunk.hasRemaining()) {
+                drain(out, chunk);
+            }
+            int length = Math.min(chunk.remaining(), values.length - index);
+            chunk.put(values, index, length);
+            index += length;
+        }
+        return chunk;
+    }
+
+    private static ByteBuffer putInts(FileChannel out, ByteBuffer chunk, int[] values) throws IOException {
+        for (int value : values) {
+            if (chunk.remaining() < 4) {
+                drain(out, chunk);
+            }
+            chunk.putInt(value);
+        }
+        return chunk;
+    }
+
+    private static void drain(FileChannel out, ByteBuffer chunk) throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            out.write(chunk);
+        }
+        chunk.clear();
+    }
+}
@@ -8,30 +8,71 @@
  * - Manages member identification
  * - Tracks all loans associated with the member
  * - Supports multiple simultaneous loans
+ * - Loans are indexed by item id, so finding or closing the loan for an
+ *   item is O(1) even for members with hundreds of open loans
+ * - Loans are guarded by the member's monitor so concurrent desks can
+ *   add and remove loans safely
  */
 
-import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 // Member class to represent library members
 public class Member {
     private String memberId;
     private String name;
-    private List<Loan> loans;
+    private Set<Loan> loans;
+    private Map<String, Loan> loansByItem;
 
     public Member(String memberId, String name) {
         this.memberId = memberId;
         this.name = name;
-        this.loans = new ArrayList<>();
+        this.loans = new LinkedHashSet<>();
+        this.loansByItem = new HashMap<>();
     }
 
-    public void addLoan(Loan loan) {
+    public synchronized void addLoan(Loan loan) {
         loans.add(loan);
+        for (LibraryItem item : loan.getItems()) {
+            loansByItem.put(item.getId(), loan);
+        }
+    }
+
+    /**
+     * Takes the given item out of the member's loans and returns the loan to
+     * close for it, or null if the member does not hold the item. A
+     * single-item loan is removed whole; for a multi-item loan the item is
+     * split off into its own loan and the rest stays open.
+     */
+    public synchronized Loan removeLoan(String itemId) {
+        Loan loan = loansByItem.remove(itemId);
+        if (loan == null) {
+            return null;
+        }
+        if (loan.getItems().size() == 1) {
+            loans.remove(loan);
+            return loan;
+        }
+        return loan.split(itemId);
+    }
+
+    // The open loan holding the given item, or null
+    public synchronized Loan findLoan(String itemId) {
+        return loansByItem.get(itemId);
+    }
+
+    public synchronized int getLoanCount() {
+        return loans.size();
     }
 
     public String getMemberId() { return memberId; }
 
     public String getName() { return name; }
 
-    public List<Loan> getLoans() { return loans; }
+    // Returns a snapshot; use addLoan/removeLoan to change the member's loans
+    public synchronized List<Loan> getLoans() { return new ArrayList<>(loans); }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+/**
+ * MemberRegistry - Indexed Store of Library Members
+ *
+ * This class owns every Member in the system and replaces the linear scan
+ * over the member list that login and findMember() used to perform.
+ *
+ * Key Features:
+ * - O(1) lookup by member id (hash index)
+ * - Pre-sized index for bulk loads of millions of members
+ * - Safe for concurrent registration and lookup without a global lock
+ */
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// MemberRegistry class to index library members by id
+public class MemberRegistry {
+    private final Map<String, Member> membersById;
+
+    public MemberRegistry() {
+        this(16);
+    }
+
+    public MemberRegistry(int expectedSize) {
+        this.membersById = new ConcurrentHashMap<>(expectedSize);
+    }
+
+    // Registers a member; returns false if the id is already taken
+    public boolean add(Member member) {
+        return membersById.putIfAbsent(member.getMemberId(), member) == null;
+    }
+
+    public Member find(String memberId) {
+        return membersById.get(memberId);
+    }
+
+    public Collection<Member> getMembers() {
+        return Collections.unmodifiableCollection(membersById.values());
+    }
+
+    public int size() {
+        return membersById.size();
+    }
+}
@@ -0,0 +1,277 @@
+/**
+ * Metrics - Counters and Latency Histograms for Circulation Operations
+ *
+ * This class gives the hot paths (lookups, borrow/return, loan events and
+ * fee calculation) a cheap, always-on instrumentation surface.
+ *
+ * Key Features:
+ * - Named Timers: an operation count plus an HDR-style latency histogram
+ * - Log-linear buckets (8 per power of two), so every recorded latency is
+ *   reported within 12.5% of its true value from nanoseconds to minutes
+ * - LongAdder counts per bucket: recording is one nanoTime() pair and one
+ *   uncontended add, with no locks and no allocation
+ * - Each Timer is registered as an MXBean (library:type=Metrics,name=...)
+ *   so p50/p99/p999 can be read from JConsole or any JMX client
+ * - dump() renders every timer as a plain-text table
+ *
+ * A single fee lookup is cheaper than the timing itself, so fees are timed
+ * per batch run (BatchFeeEngine.run) and per return, never per lookup.
+ *
+ * Histograms accumulate since start-up (or the last reset()); percentiles
+ * are computed when a snapshot is taken, never on the recording path.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Metrics class to time circulation operations
+public class Metrics {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS * (64 - SUB_BUCKET_BITS);
+
+    private static final Metrics GLOBAL = new Metrics(true);
+
+    // Timers used by the library itself
+    public static final Timer FIND_ITEM = GLOBAL.timer("findItem");
+    public static final Timer BORROW = GLOBAL.timer("borrow");
+    public static final Timer BORROW_ALL = GLOBAL.timer("borrowAll");
+    public static final Timer RETURN = GLOBAL.timer("returnItem");
+    public static final Timer ON_BORROW = GLOBAL.timer("Loan.onBorrow");
+    public static final Timer ON_RETURN = GLOBAL.timer("Loan.onReturn");
+    public static final Timer BATCH_FEES = GLOBAL.timer("BatchFeeEngine.run");
+
+    private final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private final boolean registerMBeans;
+
+    public Metrics() {
+        this(false);
+    }
+
+    private Metrics(boolean registerMBeans) {
+        this.registerMBeans = registerMBeans;
+    }
+
+    // The process-wide metrics, exported over JMX
+    public static Metrics global() {
+        return GLOBAL;
+    }
+
+    // Returns the timer with the given name, creating it on first use
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, key -> {
+                Timer timer = new Timer(key);
+                if (registerMBeans) {
+                    register(timer);
+                }
+                return timer;
+            });
+    }
+
+    // Plain-text table of every timer, latencies in microseconds
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-20s %12s %10s %10s %10s %10s %10s %10s\n",
+                "operation", "count", "mean", "p50", "p90", "p99", "p999", "max"));
+        for (Timer timer : timers.values()) {
+            Snapshot s = timer.snapshot();
+            sb.append(String.format("%-20s %12d %10.2f %10.2f %10.2f %10.2f %10.2f %10.2f\n",
+                    timer.name, s.count, s.meanNanos / 1000.0, s.p50Nanos / 1000.0, s.p90Nanos / 1000.0,
+                    s.p99Nanos / 1000.0, s.p999Nanos / 1000.0, s.maxNanos / 1000.0));
+        }
+        return sb.toString();
+    }
+
+    public void reset() {
+        for (Timer timer : timers.values()) {
+            timer.reset();
+        }
+    }
+
+    private static void register(Timer timer) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("library:type=Metrics,name=" + ObjectName.quote(timer.name));
+            if (!server.isRegistered(name)) {
+                server.registerMBean(timer, name);
+            }
+        } catch (JMException | SecurityException e) {
+            System.err.println("Could not register metrics MXBean " + timer.name + ": " + e);
+        }
+    }
+
+    // JMX view of one Timer; latencies in nanoseconds
+    public interface TimerMXBean {
+        long getCount();
+
+        double getMeanNanos();
+
+        long getP50Nanos();
+
+        long getP90Nanos();
+
+        long getP99Nanos();
+
+        long getP999Nanos();
+
+        long getMaxNanos();
+
+        void reset();
+    }
+
+    // Point-in-time view of a Timer
+    public static final class Snapshot {
+        public final long count;
+        public final double meanNanos;
+        public final long p50Nanos;
+        public final long p90Nanos;
+        public final long p99Nanos;
+        public final long p999Nanos;
+        public final long maxNanos;
+
+        Snapshot(long count, double meanNanos, long p50Nanos, long p90Nanos, long p99Nanos,
+        long p999Nanos, long maxNanos) {
+            this.count = count;
+            this.meanNanos = meanNanos;
+            this.p50Nanos = p50Nanos;
+            this.p90Nanos = p90Nanos;
+            this.p99Nanos = p99Nanos;
+            this.p999Nanos = p999Nanos;
+            this.maxNanos = maxNanos;
+        }
+    }
+
+    /**
+     * Operation counter plus latency histogram. Typical use:
+     *   long start = System.nanoTime();
+     *   ...
+     *   Metrics.BORROW.record(start);
+     */
+    public static final class Timer implements TimerMXBean {
+        private final String name;
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        Timer(String name) {
+            this.name = name;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Records the time elapsed since startNanos (a System.nanoTime() value)
+        public void record(long startNanos) {
+            recordNanos(System.nanoTime() - startNanos);
+        }
+
+        public void recordNanos(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            buckets[bucketOf(nanos)].increment();
+            totalNanos.add(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        public Snapshot snapshot() {
+            long[] counts = new long[BUCKETS];
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets[i].sum();
+                count += counts[i];
+            }
+            long max = maxNanos.get();
+            double mean = count == 0 ? 0 : (double) totalNanos.sum() / count;
+            return new Snapshot(count, mean, percentile(counts, count, 0.50, max),
+                percentile(counts, count, 0.90, max), percentile(counts, count, 0.99, max),
+                percentile(counts, count, 0.999, max), max);
+        }
+
+        @Override
+        public long getCount() {
+            long count = 0;
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+
+        @Override
+        public double getMeanNanos() { return snapshot().meanNanos; }
+
+        @Override
+        public long getP50Nanos() { return snapshot().p50Nanos; }
+
+        @Override
+        public long getP90Nanos() { return snapshot().p90Nanos; }
+
+        @Override
+        public long getP99Nanos() { return snapshot().p99Nanos; }
+
+        @Override
+        public long getP999Nanos() { return snapshot().p999Nanos; }
+
+        @Override
+        public long getMaxNanos() { return maxNanos.get(); }
+
+        @Override
+        public void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            totalNanos.reset();
+            maxNanos.set(0);
+        }
+
+        // Highest value in the bucket holding the given quantile, capped at the max seen
+        private static long percentile(long[] counts, long count, double quantile, long max) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+    }
+
+    // Values below SUB_BUCKETS get their own bucket; above that, each power
+    // of two is split into SUB_BUCKETS equal sub-ranges
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long lower = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * Money - Formatting Helpers for Amounts Held in Cents
+ *
+ * Fees are stored as long cents everywhere; this class converts them to
+ * dollar strings only at the edges (screens, messages and reports).
+ */
+
+// Money class to format cent amounts as dollars
+public final class Money {
+
+    private Money() {
+    }
+
+    // Formats cents as "$12.34"
+    public static String format(long cents) {
+        return appendTo(new StringBuilder(12).append('$'), cents).toString();
+    }
+
+    // Appends cents as "12.34" without the currency sign or String.format
+    public static StringBuilder appendTo(StringBuilder out, long cents) {
+        if (cents < 0) {
+            out.append('-');
+            cents = -cents;
+        }
+        out.append(cents / 100).append('.');
+        long fraction = cents % 100;
+        if (fraction < 10) {
+            out.append('0');
+        }
+        return out.append(fraction);
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * PagedTableModel - Lazily Paged Table Model for Very Large Swing Listings
+ *
+ * This class backs JTable listings whose rows come from a key-ordered source
+ * that can be read a page at a time, such as Catalog.getPage(). Unlike
+ * ListingTableModel it never copies or sorts the whole listing: rows are
+ * fetched page by page, only as far as the table has been scrolled.
+ *
+ * Key Features:
+ * - The row count comes from a cheap size function (e.g. a Catalog status
+ *   counter), so the scrollbar covers the whole listing from the start
+ * - Rows past the loaded prefix show a placeholder; asking for one requests
+ *   the next page after the last loaded key, one page at a time
+ * - Pages are fetched by whoever is registered with onPageNeeded(), normally
+ *   a SwingWorker, and handed back with appendPage()
+ * - Incremental updates: upsert() and remove() touch the loaded prefix by
+ *   binary search; changes past it only adjust the row count
+ *
+ * All methods must be called on the Event Dispatch Thread.
+ */
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+
+// PagedTableModel class to show a key-ordered listing one page at a time
+public class PagedTableModel<T> extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    public static final int PAGE_ROWS = 1000;
+    private static final String LOADING = "...";
+
+    private final Function<T, String> keyOf;
+    private final IntSupplier sizeOf;
+    private final List<String> columnNames = new ArrayList<>();
+    private final List<Function<T, Object>> columnValues = new ArrayList<>();
+    private final List<T> rows = new ArrayList<>();
+    private Consumer<String> pageLoader;
+    private int size;
+    private boolean complete;
+    private boolean pageRequested;
+
+    public PagedTableModel(Function<T, String> keyOf, IntSupplier sizeOf) {
+        this.keyOf = keyOf;
+        this.sizeOf = sizeOf;
+        this.size = sizeOf.getAsInt();
+    }
+
+    // Declares the next column; call before the model is attached to a table
+    public PagedTableModel<T> column(String name, Function<T, Object> value) {
+        columnNames.add(name);
+        columnValues.add(value);
+        return this;
+    }
+
+    // Registers the page fetcher: it is given the last loaded key (null for
+    // the first page) and must eventually call appendPage() on the EDT
+    public PagedTableModel<T> onPageNeeded(Consumer<String> pageLoader) {
+        this.pageLoader = pageLoader;
+        return this;
+    }
+
+    // The last loaded key, or null before the first page
+    public String lastLoadedKey() {
+        return rows.isEmpty() ? null : keyOf.apply(rows.get(rows.size() - 1));
+    }
+
+    // Appends the page that follows lastLoadedKey(); a short page ends the listing
+    public void appendPage(List<T> page) {
+        int oldCount = getRowCount();
+        int from = rows.size();
+        rows.addAll(page);
+        complete = page.size() < PAGE_ROWS;
+        pageRequested = false;
+        size = sizeOf.getAsInt();
+        int loaded = Math.min(rows.size(), oldCount);
+        if (loaded > from) {
+            fireTableRowsUpdated(from, loaded - 1);
+        }
+        resized(oldCount);
+    }
+
+    // Inserts the row at its sorted position if it falls in the loaded prefix,
+    // or replaces the row with its key
+    public void upsert(T row) {
+        String key = keyOf.apply(row);
+        int oldCount = getRowCount();
+        if (!isLoaded(key)) {
+            size = sizeOf.getAsInt();
+            resized(oldCount);
+            return;
+        }
+        int index = indexOf(key);
+        if (index >= 0) {
+            rows.set(index, row);
+            size = sizeOf.getAsInt();
+            fireTableRowsUpdated(index, index);
+            resized(oldCount);
+        } else {
+            index = -(index + 1);
+            rows.add(index, row);
+            size = sizeOf.getAsInt();
+            fireTableRowsInserted(index, index);
+            resized(oldCount + 1);
+        }
+    }
+
+    // Removes the row with the given key from the loaded prefix, if present
+    public void remove(String key) {
+        int oldCount = getRowCount();
+        int index = isLoaded(key) ? indexOf(key) : -1;
+        size = sizeOf.getAsInt();
+        if (index >= 0) {
+            rows.remove(index);
+            fireTableRowsDeleted(index, index);
+            resized(oldCount - 1);
+        } else {
+            resized(oldCount);
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return complete ? rows.size() : Math.max(rows.size(), size);
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.size();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames.get(column);
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (row < rows.size()) {
+            return columnValues.get(column).apply(rows.get(row));
+        }
+        requestNextPage();
+        return LOADING;
+    }
+
+    private void requestNextPage() {
+        if (complete || pageRequested || pageLoader == null) {
+            return;
+        }
+        pageRequested = true;
+        pageLoader.accept(lastLoadedKey());
+    }
+
+    // Keys up to the last loaded one have their rows in memory
+    private boolean isLoaded(String key) {
+        return complete || (!rows.isEmpty() && key.compareTo(lastLoadedKey()) <= 0);
+    }
+
+    // Rows past the loaded prefix are placeholders, so a change in the
+    // listing's size is reported at its end
+    private void resized(int expectedCount) {
+        int count = getRowCount();
+        if (count > expectedCount) {
+            fireTableRowsInserted(expectedCount, count - 1);
+        } else if (count < expectedCount) {
+            fireTableRowsDeleted(count, expectedCount - 1);
+        }
+    }
+
+    // Binary search by key; returns -(insertion point + 1) if absent
+    private int indexOf(String key) {
+        int low = 0;
+        int high = rows.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int order = keyOf.apply(rows.get(middle)).compareTo(key);
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+}
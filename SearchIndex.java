@@ -0,0 +1,528 @@
+/**
+ * SearchIndex - In-Process Full-Text Search over the Catalog
+ *
+ * This class keeps an inverted index from lowercase tokens to the items that
+ * contain them, so members can find items by title, author, director, ISBN
+ * or issue instead of typing an exact item id.
+ *
+ * Indexed Fields (weight):
+ * - title (3)
+ * - Book author, DVD director, Magazine issue (2)
+ * - item id and Book ISBN, with and without hyphens (1)
+ *
+ * Query Semantics:
+ * - The query is split into tokens the same way as the indexed text
+ * - Every token must match (AND); a token matches any indexed term that
+ *   starts with it, so "hung gam" finds "The Hunger Games"
+ * - Score per token is the best field weight it matched, doubled for an
+ *   exact term; an item's score is the sum over the query tokens
+ * - Results are ordered by score, then by the order items were added
+ *
+ * Cost Bounds:
+ * - Postings are int arrays of item ordinals, sorted because ordinals are
+ *   assigned in insertion order
+ * - A single token is scanned in tiers of decreasing score (exact title
+ *   term first) and stops once no remaining term can reach the weakest
+ *   result kept; a term that ties it on score is still checked, since an
+ *   item added earlier wins the tie
+ * - With several tokens, the one with the fewest postings gives the
+ *   candidate list; each other token, smallest first, is intersected with
+ *   it by galloping over the sorted lists, so a rare token costs
+ *   O(rare log common). A token with more terms than there are candidates
+ *   is checked against the candidates' own fields instead.
+ * - Every matching item is found, however many share a common token and
+ *   however many terms a prefix expands to; the limit only caps how many
+ *   of them are ranked and returned
+ *
+ * Measured (SearchBenchmark, 1 CPU, 4.4 GB heap; p50 / p99 in us at 1M, 2M, 4M items):
+ * - one token, common or rare, and prefix: 2-5 / 5-50 at every size
+ * - ISBN: 2.0-2.8 / 5.4-8.8 at every size
+ * - author: 15.6 / 91, 15.7 / 45, 25.4 / 68
+ * - two common title words: 42 / 331, 74 / 498, 160 / 1288; the
+ *   intersection grows linearly with the smaller token's postings
+ * - 10M items did not fit in that heap; extrapolating, single tokens and
+ *   ISBNs stay far under 1 ms, while two common words reach ~400 us p50
+ *   and ~3 ms p99, so the under-1 ms target holds only at p50 there
+ * - Build time is ~13 us per item (54 s for 4M); large pauses (max) are GC
+ *
+ * Items are added incrementally (Catalog calls add() for every new item);
+ * queries run under a read lock and only wait while an item is being added.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// SearchIndex class to find catalog items by words in their fields
+public class SearchIndex {
+    public static final int DEFAULT_LIMIT = 20;
+
+    private static final int TITLE = 0;
+    private static final int CREATOR = 1;
+    private static final int CODE = 2;
+    private static final int[] FIELD_WEIGHTS = { 3, 2, 1 };
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private LibraryItem[] items = new LibraryItem[1024];
+    private int size;
+
+    // Ordinals of the items containing one term, one sorted array per field
+    private static final class Postings {
+        private final int[][] ordinals = new int[FIELD_WEIGHTS.length][];
+        private final int[] counts = new int[FIELD_WEIGHTS.length];
+
+        void add(int field, int ordinal) {
+            int count = counts[field];
+            int[] list = ordinals[field];
+            if (list == null) {
+                list = ordinals[field] = new int[2];
+            } else if (list[count - 1] == ordinal) {
+                return; // term repeated within the same field
+            } else if (count == list.length) {
+                list = ordinals[field] = Arrays.copyOf(list, count * 2);
+            }
+            list[count] = ordinal;
+            counts[field] = count + 1;
+        }
+
+        int size() {
+            int total = 0;
+            for (int count : counts) {
+                total += count;
+            }
+            return total;
+        }
+    }
+
+    public void add(LibraryItem item) {
+        lock.writeLock().lock();
+        try {
+            int ordinal = size;
+            if (ordinal == items.length) {
+                items = Arrays.copyOf(items, ordinal * 2);
+            }
+            items[ordinal] = item;
+            size = ordinal + 1;
+
+            String[][] fields = fieldTexts(item);
+            for (int field = 0; field < fields.length; field++) {
+                for (String text : fields[field]) {
+                    index(field, text, ordinal);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<LibraryItem> search(String query) {
+        return search(query, DEFAULT_LIMIT);
+    }
+
+    // Returns up to limit items matching every token of the query, best first
+    public List<LibraryItem> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            if (tokens.size() == 1) {
+                return searchToken(tokens.get(0), limit);
+            }
+            // Expand each token to the indexed terms it is a prefix of, longest
+            // (usually rarest) token first. A token stops expanding once it
+            // has more postings than the smallest token so far: it cannot be
+            // the driver, and is checked against the candidates instead.
+            int n = tokens.size();
+            Integer[] order = new Integer[n];
+            for (int t = 0; t < n; t++) {
+                order[t] = t;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(tokens.get(b).length(), tokens.get(a).length()));
+            List<List<Map.Entry<String, Postings>>> matches = new ArrayList<>();
+            long[] sizes = new long[n];
+            boolean[] partial = new boolean[n];
+            int driver = -1;
+            for (int t = 0; t < n; t++) {
+                matches.add(null);
+            }
+            for (int t : order) {
+                String token = tokens.get(t);
+                List<Map.Entry<String, Postings>> tokenTerms = new ArrayList<>();
+                for (Map.Entry<String, Postings> term : terms.tailMap(token, true).entrySet()) {
+                    if (!term.getKey().startsWith(token)) {
+                        break;
+                    }
+                    tokenTerms.add(term);
+                    sizes[t] += term.getValue().size();
+                    if (driver >= 0 && sizes[t] > sizes[driver]) {
+                        partial[t] = true;
+                        break;
+                    }
+                }
+                if (tokenTerms.isEmpty()) {
+                    return new ArrayList<>();
+                }
+                matches.set(t, tokenTerms);
+                if (!partial[t] && (driver < 0 || sizes[t] < sizes[driver])) {
+                    driver = t;
+                }
+            }
+
+            // Candidates: every item the driver token matches, in ordinal order
+            long[] hits = tokenHits(tokens.get(driver), matches.get(driver));
+            int count = hits.length;
+            int[] candidates = new int[count];
+            int[] scores = new int[count];
+            for (int i = 0; i < count; i++) {
+                candidates[i] = (int) (hits[i] >>> 32);
+                scores[i] = (int) hits[i];
+            }
+            // Intersect with the other tokens, smallest first, so the list only shrinks
+            Arrays.sort(order, (a, b) -> partial[a] != partial[b] ? Boolean.compare(partial[a], partial[b])
+                : Long.compare(sizes[a], sizes[b]));
+            for (int t : order) {
+                if (t == driver || count == 0) {
+                    continue;
+                }
+                String token = tokens.get(t);
+                List<Map.Entry<String, Postings>> tokenTerms = matches.get(t);
+                if (partial[t] && tokenTerms.size() <= count) {
+                    // Finish the expansion, unless it outgrows the candidates
+                    String last = tokenTerms.get(tokenTerms.size() - 1).getKey();
+                    partial[t] = false;
+                    for (Map.Entry<String, Postings> term : terms.tailMap(last, false).entrySet()) {
+                        if (!term.getKey().startsWith(token)) {
+                            break;
+                        }
+                        tokenTerms.add(term);
+                        if (tokenTerms.size() > count) {
+                            partial[t] = true;
+                            break;
+                        }
+                    }
+                }
+                int[] tokenScores = new int[count];
+                if (partial[t] || tokenTerms.size() > count) {
+                    // Fewer candidates than terms: read the candidates' own fields
+                    for (int i = 0; i < count; i++) {
+                        tokenScores[i] = fieldScore(token, items[candidates[i]]);
+                    }
+                } else {
+                    for (Map.Entry<String, Postings> term : tokenTerms) {
+                        int exact = term.getKey().length() == token.length() ? 2 : 1;
+                        Postings postings = term.getValue();
+                        for (int field = 0; field < FIELD_WEIGHTS.length; field++) {
+                            intersect(candidates, count, postings.ordinals[field], postings.counts[field],
+                                FIELD_WEIGHTS[field] * exact, tokenScores);
+                        }
+                    }
+                }
+                int kept = 0;
+                for (int i = 0; i < count; i++) {
+                    if (tokenScores[i] > 0) {
+                        candidates[kept] = candidates[i];
+                        scores[kept] = scores[i] + tokenScores[i];
+                        kept++;
+                    }
+                }
+                count = kept;
+            }
+
+            // Min-heap of (score, ordinal); the weakest result is on top
+            PriorityQueue<long[]> best = newResultHeap();
+            for (int i = 0; i < count; i++) {
+                if (best.size() < limit) {
+                    best.add(new long[] { scores[i], candidates[i] });
+                } else if (scores[i] > best.peek()[0]) {
+                    // Candidates ascend by ordinal, so an equal score never wins the tie
+                    best.poll();
+                    best.add(new long[] { scores[i], candidates[i] });
+                }
+            }
+            return ranked(best);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A single-token query needs no intersection, so its postings are
+     * scanned in tiers of decreasing score (exact term first, title field
+     * first) and the scan stops as soon as no remaining tier can reach the
+     * weakest result kept. The terms of a prefix are walked lazily per tier;
+     * within a tier that ties the weakest result, each term is read only
+     * until its ordinals pass the weakest one, as they can no longer win.
+     */
+    private List<LibraryItem> searchToken(String token, int limit) {
+        Map.Entry<String, Postings> first = terms.ceilingEntry(token);
+        if (first == null || !first.getKey().startsWith(token)) {
+            return new ArrayList<>();
+        }
+        boolean hasExact = first.getKey().equals(token);
+        List<int[]> tiers = new ArrayList<>();
+        for (int field = 0; field < FIELD_WEIGHTS.length; field++) {
+            if (hasExact) {
+                tiers.add(new int[] { 2 * FIELD_WEIGHTS[field], field, 1 });
+            }
+            tiers.add(new int[] { FIELD_WEIGHTS[field], field, 0 });
+        }
+        tiers.sort((a, b) -> Integer.compare(b[0], a[0]));
+
+        PriorityQueue<long[]> best = newResultHeap();
+        // An item matching several terms or tiers is ranked once, by its first
+        // (best) match; later matches never score higher
+        OrdinalSet ranked = new OrdinalSet();
+        for (int[] tier : tiers) {
+            int tierScore = tier[0];
+            int field = tier[1];
+            if (best.size() == limit && best.peek()[0] > tierScore) {
+                break;
+            }
+            Iterable<Map.Entry<String, Postings>> tierTerms = tier[2] == 1
+                ? Collections.singletonList(first)
+                : terms.tailMap(token, !hasExact).entrySet();
+            for (Map.Entry<String, Postings> term : tierTerms) {
+                if (!term.getKey().startsWith(token)) {
+                    break;
+                }
+                Postings postings = term.getValue();
+                int[] ordinals = postings.ordinals[field];
+                for (int i = 0; i < postings.counts[field]; i++) {
+                    int ordinal = ordinals[i];
+                    // Postings ascend, so once one ordinal loses the tie the
+                    // rest of this term does too; the next term may not
+                    if (best.size() == limit && !beats(tierScore, ordinal, best.peek())) {
+                        break;
+                    }
+                    if (!ranked.add(ordinal)) {
+                        continue;
+                    }
+                    best.add(new long[] { tierScore, ordinal });
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+        return ranked(best);
+    }
+
+    // Whether (score, ordinal) would displace the weakest result kept
+    private static boolean beats(int score, int ordinal, long[] weakest) {
+        return score > weakest[0] || (score == weakest[0] && ordinal < weakest[1]);
+    }
+
+    // Open-addressing set of item ordinals, so deduplicating hits boxes nothing
+    private static final class OrdinalSet {
+        private int[] slots = emptySlots(16);
+        private int count;
+
+        // Returns false if the ordinal was already in the set
+        boolean add(int ordinal) {
+            if (2 * (count + 1) > slots.length) {
+                int[] old = slots;
+                slots = emptySlots(old.length * 2);
+                for (int kept : old) {
+                    if (kept >= 0) {
+                        insert(kept);
+                    }
+                }
+            }
+            if (!insert(ordinal)) {
+                return false;
+            }
+            count++;
+            return true;
+        }
+
+        private boolean insert(int ordinal) {
+            int mask = slots.length - 1;
+            int hash = ordinal * 0x9E3779B9;
+            for (int i = (hash ^ (hash >>> 16)) & mask; ; i = (i + 1) & mask) {
+                if (slots[i] == ordinal) {
+                    return false;
+                }
+                if (slots[i] < 0) {
+                    slots[i] = ordinal;
+                    return true;
+                }
+            }
+        }
+
+        private static int[] emptySlots(int length) {
+            int[] slots = new int[length];
+            Arrays.fill(slots, -1);
+            return slots;
+        }
+    }
+
+    // Min-heap of (score, ordinal); the weakest result, lowest score and then
+    // latest added, is on top
+    private static PriorityQueue<long[]> newResultHeap() {
+        return new PriorityQueue<>((a, b) -> a[0] != b[0]
+            ? Long.compare(a[0], b[0]) : Long.compare(b[1], a[1]));
+    }
+
+    private List<LibraryItem> ranked(PriorityQueue<long[]> best) {
+        LibraryItem[] ranked = new LibraryItem[best.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = items[(int) best.poll()[1]];
+        }
+        return new ArrayList<>(Arrays.asList(ranked));
+    }
+
+    // The token's score for one item, read from the item's own fields
+    // (0 if no word in them starts with the token)
+    private static int fieldScore(String token, LibraryItem item) {
+        String[][] fields = fieldTexts(item);
+        int score = 0;
+        for (int field = 0; field < fields.length; field++) {
+            for (String text : fields[field]) {
+                for (String word : tokenize(text)) {
+                    if (word.startsWith(token)) {
+                        score = Math.max(score, FIELD_WEIGHTS[field] * (word.length() == token.length() ? 2 : 1));
+                    }
+                }
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Every item a token matches as (ordinal << 32 | score), ascending by
+     * ordinal with one entry per item, scored by its best (term, field) match.
+     */
+    private static long[] tokenHits(String token, List<Map.Entry<String, Postings>> matches) {
+        int total = 0;
+        for (Map.Entry<String, Postings> term : matches) {
+            total += term.getValue().size();
+        }
+        long[] hits = new long[total];
+        int n = 0;
+        for (Map.Entry<String, Postings> term : matches) {
+            int exact = term.getKey().length() == token.length() ? 2 : 1;
+            Postings postings = term.getValue();
+            for (int field = 0; field < FIELD_WEIGHTS.length; field++) {
+                for (int i = 0; i < postings.counts[field]; i++) {
+                    hits[n++] = (long) postings.ordinals[field][i] << 32 | FIELD_WEIGHTS[field] * exact;
+                }
+            }
+        }
+        Arrays.sort(hits);
+        // The last entry of each ordinal carries its highest score
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            if (i + 1 == n || hits[i + 1] >>> 32 != hits[i] >>> 32) {
+                hits[kept++] = hits[i];
+            }
+        }
+        return Arrays.copyOf(hits, kept);
+    }
+
+    /**
+     * Raises scores[i] to score for every candidate also in the postings
+     * list. Both lists are sorted; the shorter one is walked and the longer
+     * one searched by galloping, so a short list costs O(short log long).
+     */
+    private static void intersect(int[] candidates, int count, int[] postings, int length, int score,
+    int[] scores) {
+        if (length == 0) {
+            return;
+        }
+        if (length < count) {
+            int at = 0;
+            for (int p = 0; p < length && at < count; p++) {
+                at = gallop(candidates, at, count, postings[p]);
+                if (at < count && candidates[at] == postings[p] && scores[at] < score) {
+                    scores[at] = score;
+                }
+            }
+        } else {
+            int at = 0;
+            for (int i = 0; i < count && at < length; i++) {
+                at = gallop(postings, at, length, candidates[i]);
+                if (at < length && postings[at] == candidates[i] && scores[i] < score) {
+                    scores[i] = score;
+                }
+            }
+        }
+    }
+
+    // First index in sorted[from, to) holding a value >= key, or to if none
+    private static int gallop(int[] sorted, int from, int to, int key) {
+        int low = from;
+        int high = from;
+        int step = 1;
+        while (high < to && sorted[high] < key) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        int index = Arrays.binarySearch(sorted, low, Math.min(high + 1, to), key);
+        return index >= 0 ? index : -(index + 1);
+    }
+
+    // The indexed text of an item, per field (TITLE, CREATOR, CODE)
+    private static String[][] fieldTexts(LibraryItem item) {
+        String creator = null;
+        String isbn = null;
+        if (item instanceof Book) {
+            Book book = (Book) item;
+            creator = book.getAuthor();
+            isbn = book.getIsbn();
+        } else if (item instanceof DVD) {
+            creator = ((DVD) item).getDirector();
+        } else if (item instanceof Magazine) {
+            creator = ((Magazine) item).getIssueNumber();
+        }
+        return new String[][] {
+            { item.getTitle() },
+            { creator },
+            { item.getId(), isbn, isbn == null ? null : isbn.replace("-", "") }
+        };
+    }
+
+    private void index(int field, String text, int ordinal) {
+        for (String token : tokenize(text)) {
+            terms.computeIfAbsent(token, key -> new Postings()).add(field, ordinal);
+        }
+    }
+
+    // Lowercase runs of letters and digits
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
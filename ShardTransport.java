@@ -0,0 +1,22 @@
+/**
+ * ShardTransport - How a BranchRouter Reaches the Branches
+ *
+ * This interface delivers a BranchShard.Request to one branch and returns
+ * its reply asynchronously. LoopbackTransport runs every branch in the
+ * current JVM; a networked transport would encode the request fields and
+ * send them to the JVM hosting the branch.
+ */
+
+import java.util.concurrent.CompletableFuture;
+
+// ShardTransport interface to send requests to branch shards
+public interface ShardTransport extends AutoCloseable {
+
+    // Number of branches, numbered 0..shardCount()-1
+    int shardCount();
+
+    CompletableFuture<BranchShard.Reply> send(int shard, BranchShard.Request request);
+
+    @Override
+    void close();
+}
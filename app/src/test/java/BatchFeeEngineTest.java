@@ -0,0 +1,137 @@
+/**
+ * BatchFeeEngineTest - Unit Tests for the Batch Late-Fee Run
+ *
+ * Covers per-member totals, the per-type breakdown, the streamed CSV rows,
+ * and a run large enough to be split across fork-join tasks, checked
+ * against the one-member-at-a-time fee query.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchFeeEngineTest {
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 30);
+
+    private CirculationEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        LoanEventLog.setGlobal(new LoanEventLog());
+        engine = new CirculationEngine(new Catalog(16));
+    }
+
+    // Opens a loan that is the given number of days late as of TODAY
+    private void lend(Member member, int daysLate, LibraryItem... items) {
+        for (LibraryItem item : items) {
+            engine.addItem(item);
+        }
+        LocalDate borrowed = TODAY.minusDays(Loan.LOAN_PERIOD_DAYS + daysLate);
+        engine.restoreLoan(new Loan(member, List.of(items), borrowed, borrowed.plusDays(Loan.LOAN_PERIOD_DAYS)));
+    }
+
+    private Member member(String id) {
+        Member member = new Member(id, "Member " + id);
+        engine.addMember(member);
+        return member;
+    }
+
+    @Test
+    void sumsEachMembersFeesByItemType() throws IOException {
+        Member alice = member("A1");
+        Member bob = member("A2");
+        Member carol = member("A3");
+        // Alice: book 3 days late ($3.00) and a magazine + DVD stack 2 days late ($1.00 + $4.00)
+        lend(alice, 3, new Book("Dune", "B1", "Frank Herbert", null));
+        lend(alice, 2, new Magazine("Wired", "M1", "Issue 7"), new DVD("Alien", "D1", "Ridley Scott"));
+        // Bob: one DVD 1 day late ($2.00) and one loan not due yet
+        lend(bob, 1, new DVD("Heat", "D2", "Michael Mann"));
+        lend(bob, -5, new Book("Emma", "B2", "Jane Austen", null));
+        // Carol: nothing overdue, so no CSV row
+        lend(carol, 0, new Book("Ulysses", "B3", "James Joyce", null));
+
+        StringWriter csv = new StringWriter();
+        BatchFeeEngine.Report report = new BatchFeeEngine().run(engine.getMembers(), TODAY, csv);
+
+        assertEquals(3, report.getMembers());
+        assertEquals(2, report.getMembersWithFees());
+        assertEquals(3, report.getOverdueLoans());
+        assertEquals(1000, report.getTotalFeesCents());
+        assertEquals(300, report.getFeesByTypeCents(LibraryItem.ItemType.BOOK));
+        assertEquals(100, report.getFeesByTypeCents(LibraryItem.ItemType.MAGAZINE));
+        assertEquals(600, report.getFeesByTypeCents(LibraryItem.ItemType.DVD));
+
+        String[] lines = csv.toString().split("\n");
+        assertEquals("memberId,overdueLoans,totalFee,bookFee,magazineFee,dvdFee", lines[0]);
+        assertEquals(3, lines.length);
+        Map<String, String> rows = new HashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            rows.put(lines[i].substring(0, lines[i].indexOf(',')), lines[i]);
+        }
+        assertEquals("A1,2,8.00,3.00,1.00,4.00", rows.get("A1"));
+        assertEquals("A2,1,2.00,0.00,0.00,2.00", rows.get("A2"));
+    }
+
+    @Test
+    void matchesPerMemberQueriesAcrossManyTasks() throws IOException {
+        // More members than one leaf task takes, so the run is split and merged
+        int members = 10_000;
+        long expected = 0;
+        int lines = 1;
+        for (int i = 0; i < members; i++) {
+            Member member = member("M" + i);
+            if (i % 4 == 0) {
+                continue;
+            }
+            lend(member, i % 7 - 2, new Book("Title", "B" + i, "Author", null), new DVD("Film", "D" + i, "Director"));
+            expected += engine.outstandingFeesCents(member, TODAY);
+            lines += i % 7 - 2 > 0 ? 1 : 0;
+        }
+
+        StringWriter csv = new StringWriter();
+        BatchFeeEngine.Report report = new BatchFeeEngine().run(engine.getMembers(), TODAY, csv);
+        assertEquals(members, report.getMembers());
+        assertEquals(expected, report.getTotalFeesCents());
+        assertEquals(report.getTotalFeesCents(), report.getFeesByTypeCents(LibraryItem.ItemType.BOOK)
+            + report.getFeesByTypeCents(LibraryItem.ItemType.DVD));
+        assertEquals(lines, csv.toString().split("\n").length);
+        assertEquals(lines - 1, report.getMembersWithFees());
+    }
+
+    @Test
+    void reportsAFailingWriterAsAnIOException() {
+        Member alice = member("A1");
+        lend(alice, 3, new Book("Dune", "B1", "Frank Herbert", null));
+        // Takes the header, then fails on the rows written from inside the fork-join tasks
+        Writer broken = new Writer() {
+            private boolean headerWritten;
+
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                if (headerWritten) {
+                    throw new IOException("disk full");
+                }
+                headerWritten = true;
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertThrows(IOException.class, () -> new BatchFeeEngine().run(engine.getMembers(), TODAY, broken));
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * BranchRouterTest - Unit Tests for Multi-Branch Routing
+ *
+ * Runs three BranchShards over the in-process LoopbackTransport and covers
+ * item transfers, a stale router following MOVED replies, the rollback when
+ * the target branch refuses a transfer, and a member's loans and fees
+ * gathered from every branch.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BranchRouterTest {
+    private LoopbackTransport transport;
+    private BranchRouter router;
+
+    @BeforeEach
+    void setUp() {
+        LoanEventLog.setGlobal(new LoanEventLog());
+        transport = new LoopbackTransport(3, 16);
+        router = newRouter();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+    }
+
+    // A router with the prefix routes every front desk shares
+    private BranchRouter newRouter() {
+        BranchRouter desk = new BranchRouter(transport);
+        desk.routePrefix("N-", 0);
+        desk.routePrefix("E-", 1);
+        desk.routePrefix("W-", 2);
+        return desk;
+    }
+
+    private LibraryItem.ItemStatus statusAt(int shard, String itemId) {
+        return transport.getShard(shard).getEngine().findItem(itemId).getStatus();
+    }
+
+    @Test
+    void transfersAnItemAndLendsItFromTheNewBranch() {
+        Member alice = new Member("A1", "Alice");
+        router.addMember(alice);
+        assertTrue(router.addItem(new Book("Dune", "N-1", "Frank Herbert", null)));
+        assertFalse(router.addItem(new Book("Dune again", "N-1", "Someone", null)));
+
+        assertTrue(router.transfer("N-1", 2));
+        assertEquals(2, router.shardOfItem("N-1"));
+        assertEquals(LibraryItem.ItemStatus.TRANSFERRED, statusAt(0, "N-1"));
+        assertEquals(LibraryItem.ItemStatus.AVAILABLE, statusAt(2, "N-1"));
+        assertFalse(router.transfer("N-1", 2), "already there");
+
+        assertEquals(CirculationService.BorrowResult.BORROWED, router.borrow(alice, "N-1"));
+        assertEquals(LibraryItem.ItemStatus.BORROWED, statusAt(2, "N-1"));
+        // A lent item stays where it is
+        assertFalse(router.transfer("N-1", 0));
+    }
+
+    @Test
+    void staleRouterFollowsMovedRepliesAcrossSeveralHops() {
+        Member bob = new Member("B1", "Bob");
+        router.addItem(new DVD("Alien", "N-2", "Ridley Scott"));
+        BranchRouter stale = newRouter();
+        assertEquals(0, stale.shardOfItem("N-2"));
+
+        assertTrue(router.transfer("N-2", 1));
+        assertTrue(router.transfer("N-2", 2));
+        // Branch 0 answers MOVED to 1, branch 1 answers MOVED to 2
+        assertEquals("Alien", stale.findItem("N-2").getTitle());
+        assertEquals(2, stale.shardOfItem("N-2"));
+        assertEquals(CirculationService.BorrowResult.BORROWED, stale.borrow(bob, "N-2"));
+
+        Loan loan = router.returnItem(bob, "N-2");
+        assertEquals("N-2", loan.getItem().getId());
+        assertEquals(LibraryItem.ItemStatus.AVAILABLE, statusAt(2, "N-2"));
+    }
+
+    @Test
+    void rollsBackWhenTheTargetRefusesTheItem() {
+        Member carol = new Member("C1", "Carol");
+        router.addItem(new Book("Emma", "N-3", "Jane Austen", null));
+        // Branch 1 already shelves a different item under the same id
+        LibraryItem squatter = new Magazine("Emma Monthly", "N-3", "Issue 1");
+        transport.getShard(1).getEngine().getCatalog().add(squatter);
+
+        assertFalse(router.transfer("N-3", 1));
+        assertEquals(0, router.shardOfItem("N-3"));
+        assertEquals(LibraryItem.ItemStatus.AVAILABLE, statusAt(0, "N-3"));
+        assertSame(squatter, transport.getShard(1).getEngine().findItem("N-3"));
+        // The source still serves the item rather than redirecting
+        assertEquals(CirculationService.BorrowResult.BORROWED, router.borrow(carol, "N-3"));
+        assertEquals(LibraryItem.ItemStatus.BORROWED, statusAt(0, "N-3"));
+        assertEquals(LibraryItem.ItemStatus.AVAILABLE, squatter.getStatus());
+    }
+
+    @Test
+    void gathersLoansAndFeesFromEveryBranch() {
+        Member dana = new Member("D1", "Dana");
+        Member eve = new Member("E1", "Eve");
+        router.addMember(dana);
+        router.addMember(eve);
+        router.addItem(new Book("Dune", "N-4", "Frank Herbert", null));
+        router.addItem(new DVD("Heat", "E-4", "Michael Mann"));
+        router.addItem(new Book("Ulysses", "W-4", "James Joyce", null));
+        router.addItem(new Magazine("Wired", "W-5", "Issue 7"));
+
+        assertEquals(CirculationService.BorrowResult.BORROWED, router.borrow(dana, "N-4"));
+        assertEquals(CirculationService.BorrowResult.BORROWED, router.borrow(eve, "W-5"));
+        // Overdue loans restored directly at branches 1 and 2: a DVD 2 days late, a book 3 days late
+        LocalDate today = LocalDate.now();
+        restoreOverdue(1, dana, "E-4", today.minusDays(Loan.LOAN_PERIOD_DAYS + 2));
+        restoreOverdue(2, dana, "W-4", today.minusDays(Loan.LOAN_PERIOD_DAYS + 3));
+
+        List<Loan> loans = router.getLoans(dana);
+        Set<String> itemIds = loans.stream().map(loan -> loan.getItem().getId()).collect(Collectors.toSet());
+        assertEquals(Set.of("N-4", "E-4", "W-4"), itemIds);
+        assertEquals(400 + 300, router.outstandingFeesCents(dana));
+        assertEquals(1, router.getLoans(eve).size());
+        assertEquals(0, router.outstandingFeesCents(eve));
+
+        // Returning at the remote branch closes the loan there only
+        assertEquals("E-4", router.returnItem(dana, "E-4").getItem().getId());
+        assertNull(router.returnItem(dana, "E-4"));
+        assertEquals(300, router.outstandingFeesCents(dana));
+        assertEquals(2, router.getLoans(dana).size());
+    }
+
+    // Opens an overdue loan at a branch, registering the member there as a visitor would be
+    private void restoreOverdue(int shard, Member member, String itemId, LocalDate borrowed) {
+        CirculationEngine engine = transport.getShard(shard).getEngine();
+        engine.getMemberRegistry().add(new Member(member.getMemberId(), member.getName()));
+        Member visitor = engine.findMember(member.getMemberId());
+        assertTrue(engine.restoreLoan(new Loan(visitor, engine.findItem(itemId), borrowed)));
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * CatalogTest - Unit Tests for the Indexed Catalog
+ *
+ * Covers id lookup (also while other threads add items), duplicate ids,
+ * the id-ordered status index behind the paged listings, and the
+ * paused/rebuilt status index used by recovery.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class CatalogTest {
+
+    private static Catalog catalogOf(int size) {
+        Catalog catalog = new Catalog(size);
+        for (int i = 0; i < size; i++) {
+            catalog.add(new Book("Title " + i, String.format("B%03d", i), "Author", null));
+        }
+        return catalog;
+    }
+
+    private static List<String> ids(List<LibraryItem> items) {
+        List<String> ids = new ArrayList<>();
+        for (LibraryItem item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    void findsItemsByIdAndRejectsDuplicateIds() {
+        Catalog catalog = catalogOf(3);
+        LibraryItem item = catalog.findItem("B001");
+        assertEquals("Title 1", item.getTitle());
+        assertFalse(catalog.add(new DVD("Other", "B001", "Director")));
+        assertSame(item, catalog.findItem("B001"));
+        assertNull(catalog.findItem("missing"));
+        assertEquals(3, catalog.size());
+    }
+
+    @Test
+    void bulkLoadsSkipDuplicatesAndIndexEveryItem() {
+        Catalog catalog = catalogOf(2);
+        List<LibraryItem> items = List.of(new Book("Dune", "B001", "Frank Herbert", null),
+            new Magazine("Wired", "M001", "Issue 7"), new DVD("Alien", "D001", "Ridley Scott"));
+        assertEquals(2, catalog.addAll(items));
+        assertEquals(4, catalog.size());
+        assertEquals("Title 1", catalog.findItem("B001").getTitle());
+        assertEquals(1, catalog.getItemsByType(LibraryItem.ItemType.DVD).size());
+        assertEquals(4, catalog.countByStatus(LibraryItem.ItemStatus.AVAILABLE));
+    }
+
+    @Test
+    void findsEveryItemWhileOtherThreadsAddItems() throws InterruptedException {
+        int threads = 4;
+        int perThread = 5000;
+        Catalog catalog = new Catalog(16);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger missing = new AtomicInteger();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread writer = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        String id = "T" + thread + "-" + i;
+                        catalog.add(new Book("Title", id, "Author", null));
+                        // An item is found as soon as add() has returned, even while the index grows
+                        if (catalog.findItem(id) == null) {
+                            missing.incrementAndGet();
+                        }
+                    }
+                });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(0, missing.get());
+        assertEquals(threads * perThread, catalog.size());
+        assertEquals(threads * perThread, catalog.getPage(LibraryItem.ItemStatus.AVAILABLE, null,
+            threads * perThread).size());
+    }
+
+    @Test
+    void pagesAvailableItemsInIdOrder() {
+        Catalog catalog = catalogOf(10);
+        catalog.findItem("B002").setStatus(LibraryItem.ItemStatus.BORROWED);
+
+        List<LibraryItem> first = catalog.getAvailablePage(null, 4);
+        assertEquals(List.of("B000", "B001", "B003", "B004"), ids(first));
+        List<LibraryItem> second = catalog.getAvailablePage("B004", 4);
+        assertEquals(List.of("B005", "B006", "B007", "B008"), ids(second));
+        assertEquals(List.of("B009"), ids(catalog.getAvailablePage("B008", 4)));
+        assertEquals(List.of("B002"), ids(catalog.getPage(LibraryItem.ItemStatus.BORROWED, null, 4)));
+    }
+
+    @Test
+    void statusIndexFollowsStatusChanges() {
+        Catalog catalog = catalogOf(5);
+        LibraryItem item = catalog.findItem("B003");
+        assertTrue(item.compareAndSetStatus(LibraryItem.ItemStatus.AVAILABLE, LibraryItem.ItemStatus.BORROWED));
+        assertFalse(item.compareAndSetStatus(LibraryItem.ItemStatus.AVAILABLE, LibraryItem.ItemStatus.BORROWED));
+        assertEquals(4, catalog.getItemsByStatus(LibraryItem.ItemStatus.AVAILABLE).size());
+        assertEquals(1, catalog.getItemsByStatus(LibraryItem.ItemStatus.BORROWED).size());
+        assertEquals(4, catalog.countByStatus(LibraryItem.ItemStatus.AVAILABLE));
+        assertEquals(1, catalog.countByStatus(LibraryItem.ItemStatus.BORROWED));
+
+        item.setStatus(LibraryItem.ItemStatus.AVAILABLE);
+        assertEquals(5, catalog.getItemsByStatus(LibraryItem.ItemStatus.AVAILABLE).size());
+        assertTrue(catalog.getItemsByStatus(LibraryItem.ItemStatus.BORROWED).isEmpty());
+        assertEquals(5, catalog.countByStatus(LibraryItem.ItemStatus.AVAILABLE));
+        assertEquals(0, catalog.countByStatus(LibraryItem.ItemStatus.BORROWED));
+    }
+
+    @Test
+    void rebuildsThePausedStatusIndexInIdOrder() {
+        Catalog catalog = catalogOf(50);
+        catalog.findItem("B010").setStatus(LibraryItem.ItemStatus.TRANSFERRED);
+
+        catalog.pauseStatusIndex();
+        for (int i = 0; i < 50; i += 3) {
+            catalog.findItem(String.format("B%03d", i)).setStatus(LibraryItem.ItemStatus.BORROWED);
+        }
+        catalog.findItem("B010").setStatus(LibraryItem.ItemStatus.AVAILABLE);
+        catalog.add(new Book("Late", "B999", "Author", null));
+        catalog.rebuildStatusIndex();
+
+        List<String> borrowed = ids(catalog.getPage(LibraryItem.ItemStatus.BORROWED, null, 100));
+        List<String> available = ids(catalog.getPage(LibraryItem.ItemStatus.AVAILABLE, null, 100));
+        assertEquals(17, borrowed.size());
+        assertEquals(34, available.size());
+        assertEquals(17, catalog.countByStatus(LibraryItem.ItemStatus.BORROWED));
+        assertEquals(34, catalog.countByStatus(LibraryItem.ItemStatus.AVAILABLE));
+        assertEquals(0, catalog.countByStatus(LibraryItem.ItemStatus.TRANSFERRED));
+        assertTrue(available.contains("B010") && available.contains("B999"));
+        assertTrue(catalog.getItemsByStatus(LibraryItem.ItemStatus.TRANSFERRED).isEmpty());
+        List<String> sorted = new ArrayList<>(available);
+        sorted.sort(null);
+        assertEquals(sorted, available);
+
+        // Per-change maintenance is back on
+        catalog.findItem("B001").setStatus(LibraryItem.ItemStatus.BORROWED);
+        assertEquals(18, catalog.getItemsByStatus(LibraryItem.ItemStatus.BORROWED).size());
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * CirculationConcurrencyTest - Concurrent Borrow/Return Consistency
+ *
+ * Many desks share one CirculationEngine. After the run every BORROWED item
+ * must be held by exactly one loan, every AVAILABLE item by none, and the
+ * successful borrows minus returns must equal the open loans, so a double
+ * lend or a lost update fails the build. CirculationStress runs the same
+ * checks with holds and snapshots at a much larger scale.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CirculationConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final int ITEMS = 32;
+
+    private CirculationEngine engine;
+    private final List<Member> members = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        LoanEventLog.setGlobal(new LoanEventLog());
+        engine = new CirculationEngine(new Catalog(ITEMS));
+        for (int i = 0; i < ITEMS; i++) {
+            engine.addItem(new Book("Title " + i, "B" + i, "Author", null));
+        }
+        for (int i = 0; i < THREADS * 2; i++) {
+            Member member = new Member("S" + i, "Member " + i);
+            members.add(member);
+            engine.addMember(member);
+        }
+    }
+
+    // Starts every desk at once and waits for all of them
+    private static void runDesks(int desks, Runnable desk) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < desks; i++) {
+            Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    desk.run();
+                });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    @Test
+    void lendsAContestedItemToExactlyOneDesk() throws InterruptedException {
+        for (int round = 0; round < 50; round++) {
+            String itemId = "B" + (round % ITEMS);
+            AtomicInteger winners = new AtomicInteger();
+            AtomicInteger next = new AtomicInteger();
+            runDesks(THREADS, () -> {
+                    Member member = members.get(next.getAndIncrement());
+                    if (engine.borrow(member, itemId) == CirculationService.BorrowResult.BORROWED) {
+                        winners.incrementAndGet();
+                    }
+                });
+            assertEquals(1, winners.get(), "winners for " + itemId);
+
+            // Every desk tries to return it; only the borrower can
+            AtomicInteger returned = new AtomicInteger();
+            AtomicInteger again = new AtomicInteger();
+            runDesks(THREADS, () -> {
+                    if (engine.returnItem(members.get(again.getAndIncrement()), itemId) != null) {
+                        returned.incrementAndGet();
+                    }
+                });
+            assertEquals(1, returned.get(), "returns for " + itemId);
+            assertEquals(LibraryItem.ItemStatus.AVAILABLE, engine.findItem(itemId).getStatus());
+        }
+    }
+
+    @Test
+    void keepsLoansAndStatusesConsistentUnderRandomTraffic() throws InterruptedException {
+        AtomicLong borrows = new AtomicLong();
+        AtomicLong returns = new AtomicLong();
+        runDesks(THREADS, () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int op = 0; op < 5000; op++) {
+                    Member member = members.get(random.nextInt(members.size()));
+                    String itemId = "B" + random.nextInt(ITEMS);
+                    if (random.nextBoolean()) {
+                        if (engine.borrow(member, itemId) == CirculationService.BorrowResult.BORROWED) {
+                            borrows.incrementAndGet();
+                        }
+                    } else if (random.nextInt(4) == 0) {
+                        Set<String> stack = new HashSet<>(List.of(itemId, "B" + random.nextInt(ITEMS)));
+                        if (engine.borrowAll(member, stack) == CirculationService.BorrowResult.BORROWED) {
+                            borrows.addAndGet(stack.size());
+                        }
+                    } else if (engine.returnItem(member, itemId) != null) {
+                        returns.incrementAndGet();
+                    }
+                }
+            });
+
+        // Counted per item: a two-item checkout is two items lent
+        Map<String, Integer> holders = new HashMap<>();
+        long lentItems = 0;
+        for (Member member : members) {
+            for (Loan loan : member.getLoans()) {
+                for (LibraryItem item : loan.getItems()) {
+                    holders.merge(item.getId(), 1, Integer::sum);
+                    lentItems++;
+                }
+            }
+        }
+        assertEquals(borrows.get() - returns.get(), lentItems, "lost update: items lent vs. borrows - returns");
+        for (LibraryItem item : engine.getCatalog().getItems()) {
+            int count = holders.getOrDefault(item.getId(), 0);
+            if (item.getStatus() == LibraryItem.ItemStatus.BORROWED) {
+                assertEquals(1, count, item.getId() + " is BORROWED");
+            } else {
+                assertEquals(0, count, item.getId() + " is AVAILABLE");
+            }
+        }
+        assertEquals(holders.size(), engine.getCatalog().countByStatus(LibraryItem.ItemStatus.BORROWED));
+        assertEquals(ITEMS - holders.size(), engine.getCatalog().countByStatus(LibraryItem.ItemStatus.AVAILABLE));
+    }
+}
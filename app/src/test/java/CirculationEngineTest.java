@@ -0,0 +1,173 @@
+/**
+ * CirculationEngineTest - Unit Tests for Borrow, Return, Holds and Fees
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CirculationEngineTest {
+    private CirculationEngine engine;
+    private Member alice;
+    private Member bob;
+
+    @BeforeEach
+    void setUp() {
+        LoanEventLog.setGlobal(new LoanEventLog());
+        engine = new CirculationEngine();
+        engine.addItem(new Book("Dune", "B1", "Frank Herbert", "978-0441013593"));
+        engine.addItem(new Magazine("Wired", "M1", "Issue 7"));
+        engine.addItem(new DVD("Alien", "D1", "Ridley Scott"));
+        alice = new Member("A1", "Alice");
+        bob = new Member("A2", "Bob");
+        engine.addMember(alice);
+        engine.addMember(bob);
+    }
+
+    @Test
+    void lendsAnItemOnceAndTakesItBack() {
+        assertEquals(CirculationService.BorrowResult.BORROWED, engine.borrow(alice, "B1"));
+        assertEquals(CirculationService.BorrowResult.UNAVAILABLE, engine.borrow(bob, "B1"));
+        assertEquals(CirculationService.BorrowResult.NOT_FOUND, engine.borrow(bob, "nope"));
+        assertEquals(LibraryItem.ItemStatus.BORROWED, engine.findItem("B1").getStatus());
+
+        assertNull(engine.returnItem(bob, "B1"));
+        Loan loan = engine.returnItem(alice, "B1");
+        assertNotNull(loan);
+        assertEquals(LocalDate.now(), loan.getReturnDate());
+        assertEquals(LibraryItem.ItemStatus.AVAILABLE, engine.findItem("B1").getStatus());
+        assertEquals(0, alice.getLoanCount());
+    }
+
+    @Test
+    void borrowsAStackAllOrNothingAndReturnsItemsOneByOne() {
+        engine.borrow(bob, "D1");
+        assertEquals(CirculationService.BorrowResult.UNAVAILABLE, engine.borrowAll(alice, List.of("B1", "M1", "D1")));
+        assertEquals(LibraryItem.ItemStatus.AVAILABLE, engine.findItem("B1").getStatus());
+        assertEquals(LibraryItem.ItemStatus.AVAILABLE, engine.findItem("M1").getStatus());
+
+        assertEquals(CirculationService.BorrowResult.BORROWED, engine.borrowAll(alice, List.of("B1", "M1")));
+        assertEquals(1, alice.getLoanCount());
+        engine.returnItem(alice, "M1");
+        assertEquals(LibraryItem.ItemStatus.AVAILABLE, engine.findItem("M1").getStatus());
+        assertEquals(LibraryItem.ItemStatus.BORROWED, engine.findItem("B1").getStatus());
+        assertEquals(1, alice.getLoanCount());
+    }
+
+    @Test
+    void rejectsAStackWithAnUnknownItemWithoutClaimingAny() {
+        assertEquals(CirculationService.BorrowResult.NOT_FOUND, engine.borrowAll(alice, List.of("B1", "nope")));
+        assertEquals(CirculationService.BorrowResult.NOT_FOUND, engine.borrowAll(alice, List.of()));
+        assertEquals(LibraryItem.ItemStatus.AVAILABLE, engine.findItem("B1").getStatus());
+        assertEquals(0, alice.getLoanCount());
+
+        // A repeated id is checked out once
+        assertEquals(CirculationService.BorrowResult.BORROWED, engine.borrowAll(alice, List.of("B1", "M1", "B1")));
+        assertEquals(1, alice.getLoanCount());
+        assertEquals(2, alice.findLoan("B1").getItems().size());
+    }
+
+    @Test
+    void splitsAPartialReturnOffTheOpenLoan() {
+        engine.borrowAll(alice, List.of("B1", "M1", "D1"));
+        Loan stack = alice.findLoan("B1");
+        DueDateIndex dueDates = engine.getDueDateIndex();
+
+        Loan returned = engine.returnItem(alice, "M1");
+        assertEquals(List.of(engine.findItem("M1")), returned.getItems());
+        assertEquals(stack.getDueDate(), returned.getDueDate());
+        assertEquals(LocalDate.now(), returned.getReturnDate());
+        assertNull(stack.getReturnDate());
+        assertEquals(List.of(engine.findItem("B1"), engine.findItem("D1")), stack.getItems());
+        assertSame(stack, alice.findLoan("D1"));
+        assertEquals(Set.of(stack), dueDates.dueOn(stack.getDueDate()));
+
+        engine.returnItem(alice, "B1");
+        engine.returnItem(alice, "D1");
+        assertEquals(0, alice.getLoanCount());
+        assertTrue(dueDates.dueOn(stack.getDueDate()).isEmpty());
+        for (LibraryItem item : engine.getCatalog().getItems()) {
+            assertEquals(LibraryItem.ItemStatus.AVAILABLE, item.getStatus());
+        }
+    }
+
+    @Test
+    void handsAReturnedItemStraightToTheNextHold() {
+        engine.borrow(alice, "B1");
+        assertEquals(CirculationService.BorrowResult.HELD, engine.placeHold(bob, "B1"));
+        assertEquals(CirculationService.BorrowResult.UNAVAILABLE, engine.placeHold(bob, "B1"));
+
+        engine.returnItem(alice, "B1");
+        assertEquals(LibraryItem.ItemStatus.BORROWED, engine.findItem("B1").getStatus());
+        assertSame(bob, bob.findLoan("B1").getMember());
+        assertEquals(CirculationService.BorrowResult.UNAVAILABLE, engine.borrow(alice, "B1"));
+    }
+
+    @Test
+    void dropsAHoldQueuedWhileTheItemWasTransferredOut() {
+        engine.borrow(bob, "M1");
+        engine.returnItem(bob, "M1");
+        // Transfers the item out between placeHold's status check and its
+        // hold being queued, the window the re-check closes
+        Member carol = new Member("A3", "Carol") {
+            private boolean transferred;
+
+            @Override
+            public synchronized Loan findLoan(String itemId) {
+                if (!transferred) {
+                    transferred = true;
+                    assertTrue(engine.transferOut(itemId));
+                }
+                return super.findLoan(itemId);
+            }
+        };
+        engine.addMember(carol);
+
+        assertEquals(CirculationService.BorrowResult.NOT_FOUND, engine.placeHold(carol, "M1"));
+        assertEquals(LibraryItem.ItemStatus.TRANSFERRED, engine.findItem("M1").getStatus());
+        assertFalse(engine.getHolds().hasWaiting("M1"));
+        assertEquals(0, engine.getHolds().queuedItems());
+
+        // Once it is back, a hold works as usual
+        assertTrue(engine.transferIn(engine.findItem("M1")));
+        engine.borrow(alice, "M1");
+        assertEquals(CirculationService.BorrowResult.HELD, engine.placeHold(carol, "M1"));
+    }
+
+    @Test
+    void sumsLateFeesInCentsPerItemType() {
+        LocalDate borrowed = LocalDate.now().minusDays(Loan.LOAN_PERIOD_DAYS + 3);
+        engine.restoreLoan(new Loan(alice, engine.findItem("B1"), borrowed));
+        engine.restoreLoan(new Loan(alice, engine.findItem("M1"), borrowed));
+        engine.restoreLoan(new Loan(alice, engine.findItem("D1"), LocalDate.now()));
+
+        // 3 days late: book 3 x $1.00, magazine 3 x $0.50, DVD not due yet
+        assertEquals(450, engine.outstandingFeesCents(alice, LocalDate.now()));
+        assertEquals(0, engine.outstandingFeesCents(bob, LocalDate.now()));
+    }
+
+    @Test
+    void listsOverdueLoansLongestOverdueFirst() {
+        LocalDate today = LocalDate.now();
+        Loan book = new Loan(alice, engine.findItem("B1"), today.minusDays(Loan.LOAN_PERIOD_DAYS + 1));
+        Loan magazine = new Loan(bob, engine.findItem("M1"), today.minusDays(Loan.LOAN_PERIOD_DAYS + 5));
+        engine.restoreLoan(book);
+        engine.restoreLoan(magazine);
+        engine.restoreLoan(new Loan(alice, engine.findItem("D1"), today));
+
+        assertEquals(List.of(magazine, book), engine.getOverdueLoans(today));
+        assertEquals(List.of(magazine), engine.getOverdueLoans(today.minusDays(2)));
+        engine.returnItem(bob, "M1");
+        assertEquals(List.of(book), engine.getOverdueLoans(today));
+    }
+}
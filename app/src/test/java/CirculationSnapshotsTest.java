@@ -0,0 +1,153 @@
+/**
+ * CirculationSnapshotsTest - Unit Tests for Point-in-Time Circulation Views
+ *
+ * Covers what a snapshot sees (transactions committed before it opened,
+ * nothing after, a multi-item checkout whole or not at all), reclamation
+ * of old versions once no open snapshot needs them, and snapshots opened
+ * while desks keep lending.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CirculationSnapshotsTest {
+    private static final int ITEMS = 32;
+
+    private CirculationEngine engine;
+    private final List<Member> members = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        LoanEventLog.setGlobal(new LoanEventLog());
+        engine = new CirculationEngine(new Catalog(ITEMS));
+        for (int i = 0; i < ITEMS; i++) {
+            engine.addItem(new Book("Title " + i, "B" + i, "Author", null));
+        }
+        for (int i = 0; i < 8; i++) {
+            Member member = new Member("A" + i, "Member " + i);
+            members.add(member);
+            engine.addMember(member);
+        }
+    }
+
+    @Test
+    void seesOnlyTransactionsCommittedBeforeItOpened() {
+        Member alice = members.get(0);
+        Member bob = members.get(1);
+        engine.borrow(alice, "B1");
+        try (CirculationSnapshots.Snapshot before = engine.openSnapshot()) {
+            engine.borrowAll(bob, List.of("B2", "B3"));
+            engine.returnItem(alice, "B1");
+            try (CirculationSnapshots.Snapshot after = engine.openSnapshot()) {
+                assertSame(alice, before.getItem("B1").getBorrower());
+                assertEquals(LibraryItem.ItemStatus.AVAILABLE, before.getItem("B2").getStatus());
+                assertEquals(1, before.getLoans().size());
+                assertEquals(0, before.getLoanCount(bob));
+
+                assertEquals(LibraryItem.ItemStatus.AVAILABLE, after.getItem("B1").getStatus());
+                assertNull(after.getItem("B1").getLoan());
+                assertSame(after.getItem("B2").getLoan(), after.getItem("B3").getLoan());
+                assertEquals(2, after.getLoanCount(bob));
+                assertEquals(0, after.getLoanCount(alice));
+                assertTrue(after.getVersion() > before.getVersion());
+            }
+        }
+    }
+
+    @Test
+    void reclaimsVersionsOnceNoSnapshotNeedsThem() {
+        Member alice = members.get(0);
+        CirculationSnapshots snapshots = engine.getSnapshots();
+        for (int round = 0; round < 3; round++) {
+            engine.borrow(alice, "B1");
+            engine.returnItem(alice, "B1");
+        }
+        assertEquals(0, snapshots.getRetainedVersionCount());
+
+        CirculationSnapshots.Snapshot first = engine.openSnapshot();
+        engine.borrow(alice, "B1");
+        CirculationSnapshots.Snapshot second = engine.openSnapshot();
+        engine.returnItem(alice, "B1");
+        engine.borrow(alice, "B1");
+        assertEquals(2, snapshots.getOpenSnapshotCount());
+        // B1: the entries first and second read are kept under the head
+        assertEquals(2, snapshots.getRetainedVersionCount());
+
+        first.close();
+        first.close();
+        assertEquals(1, snapshots.getOpenSnapshotCount());
+        assertEquals(1, snapshots.getRetainedVersionCount());
+        assertSame(alice, second.getItem("B1").getBorrower());
+
+        second.close();
+        assertEquals(0, snapshots.getOpenSnapshotCount());
+        assertEquals(0, snapshots.getRetainedVersionCount());
+        engine.returnItem(alice, "B1");
+        assertEquals(0, snapshots.getRetainedVersionCount());
+    }
+
+    @Test
+    void showsEachCheckoutWholeWhileDesksKeepLending() throws InterruptedException {
+        AtomicBoolean done = new AtomicBoolean();
+        List<Thread> desks = new ArrayList<>();
+        for (Member member : members) {
+            Thread desk = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (!done.get()) {
+                        int pair = random.nextInt(ITEMS / 2);
+                        String low = "B" + 2 * pair;
+                        String high = "B" + (2 * pair + 1);
+                        if (engine.borrowAll(member, List.of(low, high)) == CirculationService.BorrowResult.BORROWED) {
+                            // Always the low item first, so no moment has only the low one out
+                            engine.returnItem(member, low);
+                            engine.returnItem(member, high);
+                        }
+                    }
+                });
+            desk.start();
+            desks.add(desk);
+        }
+        try {
+            for (int round = 0; round < 200; round++) {
+                try (CirculationSnapshots.Snapshot snapshot = engine.openSnapshot()) {
+                    Map<String, Loan> loans = loansByItem(snapshot);
+                    for (int pair = 0; pair < ITEMS / 2; pair++) {
+                        Loan low = loans.get("B" + 2 * pair);
+                        if (low != null) {
+                            assertSame(low, loans.get("B" + (2 * pair + 1)), "half a checkout of pair " + pair);
+                        }
+                    }
+                    Thread.yield();
+                    assertEquals(loans, loansByItem(snapshot), "snapshot changed while open");
+                }
+            }
+        } finally {
+            done.set(true);
+            for (Thread desk : desks) {
+                desk.join();
+            }
+        }
+        assertEquals(0, engine.getSnapshots().getOpenSnapshotCount());
+        assertEquals(0, engine.getSnapshots().getRetainedVersionCount());
+    }
+
+    private static Map<String, Loan> loansByItem(CirculationSnapshots.Snapshot snapshot) {
+        Map<String, Loan> loans = new HashMap<>();
+        for (CirculationSnapshots.ItemState state : snapshot.getLoans()) {
+            loans.put(state.getItem().getId(), state.getLoan());
+        }
+        return loans;
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * CompactLoanStoreTest - Unit Tests for the Struct-of-Arrays Loan Store
+ *
+ * Covers adding and returning rows, the one-open-row-per-item rule,
+ * fee scans over the columns, growth past one column chunk and toLoan().
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CompactLoanStoreTest {
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 30);
+    private static final int DAY = (int) TODAY.toEpochDay();
+
+    private final CompactLoanStore store = new CompactLoanStore();
+
+    @Test
+    void addsAndReturnsRowsByItem() {
+        int row = store.add("A1", "B1", LibraryItem.ItemType.BOOK, DAY - 20, DAY - 6, CompactLoanStore.NO_DAY);
+        store.add("A2", "D1", LibraryItem.ItemType.DVD, DAY - 30, DAY - 16, DAY - 10);
+
+        assertEquals(2, store.size());
+        assertEquals(1, store.openCount());
+        assertEquals(row, store.findOpenRow("B1"));
+        assertEquals(CompactLoanStore.NO_ROW, store.findOpenRow("D1"));
+        assertEquals("A1", store.getMemberId(row));
+        assertEquals(LibraryItem.ItemType.BOOK, store.getItemType(row));
+        assertEquals(DAY - 6, store.getDueDay(row));
+        assertTrue(store.isOpen(row));
+
+        assertEquals(row, store.markReturned("B1", TODAY));
+        assertFalse(store.isOpen(row));
+        assertEquals(DAY, store.getReturnDay(row));
+        assertEquals(0, store.openCount());
+        assertEquals(CompactLoanStore.NO_ROW, store.markReturned("B1", TODAY));
+        assertEquals(CompactLoanStore.NO_ROW, store.markReturned("missing", TODAY));
+    }
+
+    @Test
+    void rejectsASecondOpenRowForTheSameItem() {
+        Member alice = new Member("A1", "Alice");
+        Book book = new Book("Dune", "B1", "Frank Herbert", null);
+        Magazine magazine = new Magazine("Wired", "M1", "Issue 7");
+        store.add("A2", "M1", LibraryItem.ItemType.MAGAZINE, DAY - 3, DAY + 11, CompactLoanStore.NO_DAY);
+
+        assertThrows(IllegalArgumentException.class, () ->
+            store.add("A1", "M1", LibraryItem.ItemType.MAGAZINE, DAY, DAY + 14, CompactLoanStore.NO_DAY));
+        // The whole loan is rejected, not just the item that is still out
+        assertThrows(IllegalArgumentException.class, () -> store.add(new Loan(alice, List.of(book, magazine),
+            TODAY, TODAY.plusDays(Loan.LOAN_PERIOD_DAYS))));
+        assertEquals(1, store.size());
+        assertEquals(CompactLoanStore.NO_ROW, store.findOpenRow("B1"));
+
+        // A returned row may be followed by a new open one
+        store.add("A1", "M1", LibraryItem.ItemType.MAGAZINE, DAY - 40, DAY - 26, DAY - 30);
+        store.markReturned("M1", TODAY);
+        int first = store.add(new Loan(alice, List.of(book, magazine), TODAY, TODAY.plusDays(Loan.LOAN_PERIOD_DAYS)));
+        assertEquals(first, store.findOpenRow("B1"));
+        assertEquals(first + 1, store.findOpenRow("M1"));
+        assertEquals(2, store.openCount());
+    }
+
+    @Test
+    void sumsLateFeesOverOpenRowsOnly() {
+        // Book 3 days late ($3.00), DVD 2 days late ($4.00), magazine not due yet
+        store.add("A1", "B1", LibraryItem.ItemType.BOOK, DAY - 17, DAY - 3, CompactLoanStore.NO_DAY);
+        store.add("A1", "D1", LibraryItem.ItemType.DVD, DAY - 16, DAY - 2, CompactLoanStore.NO_DAY);
+        store.add("A2", "M1", LibraryItem.ItemType.MAGAZINE, DAY, DAY + 14, CompactLoanStore.NO_DAY);
+        // Returned 5 days late: owed on the row, not outstanding
+        int returned = store.add("A2", "B2", LibraryItem.ItemType.BOOK, DAY - 30, DAY - 16, DAY - 11);
+
+        assertEquals(700, store.outstandingFeesCents(TODAY));
+        assertEquals(500, store.lateFeeCents(returned, TODAY));
+        assertEquals(0, store.lateFeeCents(store.findOpenRow("M1"), TODAY));
+    }
+
+    @Test
+    void growsPastOneColumnChunk() {
+        int rows = 70_000;
+        for (int i = 0; i < rows; i++) {
+            store.add("A" + i % 100, "I" + i, LibraryItem.ItemType.BOOK, DAY - i % 30, DAY - i % 30 + 14,
+                i % 2 == 0 ? CompactLoanStore.NO_DAY : DAY);
+        }
+        assertEquals(rows, store.size());
+        assertEquals(rows / 2, store.openCount());
+        int last = store.findOpenRow("I" + (rows - 2));
+        assertEquals(rows - 2, last);
+        assertEquals("A" + (rows - 2) % 100, store.getMemberId(last));
+        assertEquals("I" + (rows - 1), store.getItemId(rows - 1));
+    }
+
+    @Test
+    void materializesARowAsALoan() {
+        LoanEventLog.setGlobal(new LoanEventLog());
+        CirculationEngine engine = new CirculationEngine(new Catalog(4));
+        Member alice = new Member("A1", "Alice");
+        engine.addMember(alice);
+        engine.addItem(new Book("Dune", "B1", "Frank Herbert", null));
+        int open = store.add("A1", "B1", LibraryItem.ItemType.BOOK, DAY - 20, DAY - 6, CompactLoanStore.NO_DAY);
+        int returned = store.add("A1", "B1", LibraryItem.ItemType.BOOK, DAY - 50, DAY - 36, DAY - 40);
+        int unknown = store.add("A9", "X1", LibraryItem.ItemType.DVD, DAY, DAY + 14, CompactLoanStore.NO_DAY);
+
+        Loan loan = store.toLoan(open, engine);
+        assertSame(alice, loan.getMember());
+        assertSame(engine.findItem("B1"), loan.getItem());
+        assertEquals(TODAY.minusDays(20), loan.getBorrowDate());
+        assertEquals(TODAY.minusDays(6), loan.getDueDate());
+        assertNull(loan.getReturnDate());
+        assertEquals(TODAY.minusDays(40), store.toLoan(returned, engine).getReturnDate());
+        assertNull(store.toLoan(unknown, engine));
+    }
+}
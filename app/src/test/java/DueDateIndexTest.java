@@ -0,0 +1,128 @@
+/**
+ * DueDateIndexTest - Unit Tests for the Due-Date Index of Open Loans
+ *
+ * Covers the due-on and overdue queries, the engine keeping the index in
+ * step with borrows and returns, prune() dropping only emptied past days,
+ * and adds racing prune() without a loan landing in an unlinked bucket.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class DueDateIndexTest {
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 30);
+
+    private final Member member = new Member("A1", "Member A1");
+    private int items;
+
+    // A one-book loan due the given number of days after TODAY (negative: overdue)
+    private Loan loanDueIn(int days) {
+        LocalDate due = TODAY.plusDays(days);
+        Book book = new Book("Title", "B" + items++, "Author", null);
+        return new Loan(member, List.of(book), due.minusDays(Loan.LOAN_PERIOD_DAYS), due);
+    }
+
+    @Test
+    void findsLoansDueOnADayAndOverdueByADayCount() {
+        DueDateIndex index = new DueDateIndex();
+        Loan dueToday = loanDueIn(0);
+        Loan dueYesterday = loanDueIn(-1);
+        Loan weekLate = loanDueIn(-7);
+        Loan notDue = loanDueIn(3);
+        for (Loan loan : List.of(dueToday, dueYesterday, weekLate, notDue)) {
+            index.add(loan);
+        }
+
+        assertEquals(Set.of(dueToday), index.dueOn(TODAY));
+        assertEquals(Set.of(dueYesterday), index.becameOverdueOn(TODAY));
+        assertEquals(Set.of(dueYesterday, weekLate), new HashSet<>(index.overdue(TODAY)));
+        assertEquals(List.of(weekLate), index.overdueBy(5, TODAY));
+        assertTrue(index.overdueBy(7, TODAY).isEmpty());
+
+        index.remove(weekLate);
+        assertEquals(List.of(dueYesterday), index.overdue(TODAY));
+    }
+
+    @Test
+    void followsBorrowsAndReturnsThroughTheEngine() {
+        LoanEventLog.setGlobal(new LoanEventLog());
+        CirculationEngine engine = new CirculationEngine(new Catalog(4));
+        engine.addMember(member);
+        Loan late = loanDueIn(-2);
+        engine.addItem(late.getItem());
+        engine.restoreLoan(late);
+        engine.addItem(new Book("Emma", "E1", "Jane Austen", null));
+        assertEquals(CirculationService.BorrowResult.BORROWED, engine.borrow(member, "E1"));
+
+        DueDateIndex index = engine.getDueDateIndex();
+        LocalDate today = LocalDate.now();
+        assertEquals(1, index.dueOn(today.plusDays(Loan.LOAN_PERIOD_DAYS)).size());
+        assertEquals(List.of(late), index.overdue(TODAY));
+
+        engine.returnItem(member, late.getItem().getId());
+        assertTrue(index.overdue(TODAY).isEmpty());
+    }
+
+    @Test
+    void prunesOnlyEmptiedPastDays() {
+        DueDateIndex index = new DueDateIndex();
+        Loan returned = loanDueIn(-3);
+        Loan stillOut = loanDueIn(-2);
+        Loan future = loanDueIn(4);
+        index.add(returned);
+        index.add(stillOut);
+        index.add(future);
+        index.remove(returned);
+        index.remove(future);
+
+        assertEquals(1, index.prune(TODAY));
+        assertEquals(2, index.bucketCount());
+        assertEquals(List.of(stillOut), index.overdue(TODAY));
+
+        // A pruned day can be used again
+        index.add(returned);
+        assertEquals(Set.of(returned), index.dueOn(returned.getDueDate()));
+    }
+
+    @Test
+    void keepsEveryLoanAddedWhilePruneRuns() throws InterruptedException {
+        DueDateIndex index = new DueDateIndex();
+        List<Loan> kept = new ArrayList<>();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread pruner = new Thread(() -> {
+                while (!done.get()) {
+                    index.prune(TODAY);
+                }
+            });
+        pruner.start();
+        // Each round leaves one loan in a day that was just emptied, so a
+        // bucket unlinked after the add would lose it
+        for (int round = 0; round < 20_000; round++) {
+            int day = -1 - round % 5;
+            Loan churn = loanDueIn(day);
+            index.add(churn);
+            index.remove(churn);
+            Loan loan = loanDueIn(day);
+            index.add(loan);
+            kept.add(loan);
+            if (round % 2 == 0) {
+                index.remove(loan);
+                kept.remove(kept.size() - 1);
+            }
+        }
+        done.set(true);
+        pruner.join();
+
+        assertEquals(new HashSet<>(kept), new HashSet<>(index.overdue(TODAY)));
+        assertEquals(kept.size(), index.overdue(TODAY).size());
+    }
+}
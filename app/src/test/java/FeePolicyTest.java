@@ -0,0 +1,76 @@
+/**
+ * FeePolicyTest - Unit Tests for Late Fee Policies and the Fee Schedule
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class FeePolicyTest {
+
+    @AfterEach
+    void restoreDefaultSchedule() {
+        FeeSchedule.install(FeeSchedule.DEFAULT);
+    }
+
+    @Test
+    void chargesTheDailyRatePerDayLate() {
+        FeePolicy policy = FeePolicy.daily(35);
+        assertEquals(0, policy.lateFeeCents(0));
+        assertEquals(0, policy.lateFeeCents(-2));
+        assertEquals(35, policy.lateFeeCents(1));
+        assertEquals(350, policy.lateFeeCents(10));
+    }
+
+    @Test
+    void appliesGraceDaysTiersAndCap() {
+        FeePolicy policy = FeePolicy.daily(25).withTier(7, 50).withGraceDays(2).withCap(400);
+        assertEquals(0, policy.lateFeeCents(2));
+        assertEquals(25, policy.lateFeeCents(3));
+        assertEquals(7 * 25, policy.lateFeeCents(9));
+        assertEquals(7 * 25 + 3 * 50, policy.lateFeeCents(12));
+        assertEquals(400, policy.lateFeeCents(30));
+        assertThrows(IllegalArgumentException.class, () -> FeePolicy.daily(10).withTier(0, 20));
+    }
+
+    @Test
+    void itemsUseTheInstalledSchedule() {
+        Book book = new Book("Dune", "B1", "Frank Herbert", null);
+        Magazine magazine = new Magazine("Wired", "M1", "Issue 7");
+        DVD dvd = new DVD("Alien", "D1", "Ridley Scott");
+        assertEquals(300, book.calculateLateFeeCents(3));
+        assertEquals(150, magazine.calculateLateFeeCents(3));
+        assertEquals(600, dvd.calculateLateFeeCents(3));
+        assertEquals(3.0, book.calculateLateFee(3));
+
+        FeeSchedule.install(FeeSchedule.DEFAULT.withPolicy(LibraryItem.ItemType.BOOK, FeePolicy.daily(10)));
+        assertEquals(30, book.calculateLateFeeCents(3));
+        assertEquals(150, magazine.calculateLateFeeCents(3));
+    }
+
+    @Test
+    void fractionalRatesSumExactlyInCents() {
+        Book book = new Book("Dune", "B1", "Frank Herbert", null);
+        FeeSchedule.install(FeeSchedule.DEFAULT.withPolicy(LibraryItem.ItemType.BOOK, FeePolicy.daily(10)));
+        long total = 0;
+        for (int i = 0; i < 1000; i++) {
+            total += book.calculateLateFeeCents(3);
+        }
+        assertEquals(30000, total);
+    }
+
+    @Test
+    void withPolicyCopiesTheSchedule() {
+        FeePolicy dvdPolicy = FeePolicy.daily(150).withCap(1000);
+        FeeSchedule schedule = FeeSchedule.DEFAULT.withPolicy(LibraryItem.ItemType.DVD, dvdPolicy);
+        assertSame(dvdPolicy, schedule.policyFor(LibraryItem.ItemType.DVD));
+        assertEquals(1000, schedule.lateFeeCents(LibraryItem.ItemType.DVD, 30));
+        assertEquals(300, schedule.lateFeeCents(LibraryItem.ItemType.BOOK, 3));
+        // DEFAULT and the installed schedule are untouched until install()
+        assertEquals(6000, FeeSchedule.DEFAULT.lateFeeCents(LibraryItem.ItemType.DVD, 30));
+        assertSame(FeeSchedule.DEFAULT, FeeSchedule.current());
+    }
+}
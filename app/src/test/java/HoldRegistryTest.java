@@ -0,0 +1,60 @@
+/**
+ * HoldRegistryTest - Unit Tests for the Per-Item Hold Queues
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class HoldRegistryTest {
+    private final HoldRegistry holds = new HoldRegistry();
+    private final Member alice = new Member("A1", "Alice");
+    private final Member bob = new Member("A2", "Bob");
+
+    @Test
+    void fillsHoldsInOrderAndSkipsCancelledOnes() {
+        HoldRegistry.Hold first = holds.place(alice, "B1");
+        HoldRegistry.Hold second = holds.place(bob, "B1");
+        assertNull(holds.place(alice, "B1"));
+        assertEquals(1, holds.position(bob, "B1"));
+
+        assertTrue(holds.cancel(alice, "B1"));
+        assertFalse(holds.cancel(alice, "B1"));
+        assertEquals(HoldRegistry.HoldState.CANCELLED, first.getState());
+        assertEquals(0, holds.position(bob, "B1"));
+
+        assertSame(second, holds.fillNext("B1"));
+        assertEquals(HoldRegistry.HoldState.FILLED, second.getState());
+        assertNull(holds.fillNext("B1"));
+    }
+
+    @Test
+    void dropsAnItemsQueueOnceItIsEmpty() {
+        holds.place(alice, "B1");
+        holds.place(bob, "B2");
+        holds.place(alice, "B2");
+        assertEquals(2, holds.queuedItems());
+
+        // Emptied by a hand-off
+        holds.fillNext("B1");
+        assertEquals(1, holds.queuedItems());
+        assertFalse(holds.hasWaiting("B1"));
+
+        // Emptied by cancelling every waiting hold
+        holds.cancel(alice, "B2");
+        assertEquals(1, holds.queuedItems());
+        holds.cancel(bob, "B2");
+        assertEquals(0, holds.queuedItems());
+        assertFalse(holds.hasWaiting("B2"));
+
+        // A new hold gets a fresh queue
+        HoldRegistry.Hold again = holds.place(bob, "B1");
+        assertTrue(holds.hasWaiting("B1"));
+        assertSame(again, holds.fillNext("B1"));
+        assertEquals(0, holds.queuedItems());
+    }
+}
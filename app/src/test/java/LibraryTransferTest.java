@@ -0,0 +1,165 @@
+/**
+ * LibraryTransferTest - Unit Tests for Bulk Import and Export
+ *
+ * Round-trips items and members through CSV and JSON lines, including
+ * titles with commas, quotes and line breaks, and checks how the import
+ * treats bad lines, stray quotes, a runaway quoted field and a failing
+ * parser thread.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LibraryTransferTest {
+    private static final List<LibraryItem> ITEMS = List.of(
+        new Book("Dune", "B1", "Frank Herbert", "978-0441172719"),
+        new Book("Eats, Shoots & Leaves", "B2", "Lynne Truss", null),
+        new Book("The \"Quoted\" Title", "B3", "Anon", null),
+        new Book("\"Leading\" quote", "B4", "Anon, Jr.", null),
+        new Book("A 6\" ruler", "B5", "Anon", null),
+        new Magazine("Two\nLines", "M1", "Issue \"7\""),
+        new Magazine("Windows\r\nLine", "M2", "Spring, 2025"),
+        new DVD("Tab\there", "D1", "Ridley Scott"));
+
+    @TempDir
+    Path directory;
+
+    private static void assertSameItems(Catalog catalog) {
+        assertEquals(ITEMS.size(), catalog.size());
+        for (LibraryItem expected : ITEMS) {
+            LibraryItem actual = catalog.findItem(expected.getId());
+            assertNotNull(actual, expected.getId());
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getTitle(), actual.getTitle());
+            if (expected instanceof Book) {
+                assertEquals(((Book) expected).getAuthor(), ((Book) actual).getAuthor());
+                assertEquals(((Book) expected).getIsbn(), ((Book) actual).getIsbn());
+            } else if (expected instanceof Magazine) {
+                assertEquals(((Magazine) expected).getIssueNumber(), ((Magazine) actual).getIssueNumber());
+            } else {
+                assertEquals(((DVD) expected).getDirector(), ((DVD) actual).getDirector());
+            }
+        }
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    void roundTripsItemsThroughCsvAndJsonLines() throws IOException {
+        for (String name : new String[] { "items.csv", "items.jsonl" }) {
+            Path file = directory.resolve(name);
+            assertEquals(ITEMS.size(), new LibraryTransfer(2).exportItems(ITEMS, file));
+
+            Catalog catalog = new Catalog(16);
+            LibraryTransfer.Report report = new LibraryTransfer(2).importItems(file, catalog);
+            assertEquals(ITEMS.size(), report.getImported(), name);
+            assertEquals(0, report.getRejected(), name + ": " + report.getErrors());
+            assertSameItems(catalog);
+        }
+    }
+
+    @Test
+    void roundTripsMembersAndCountsDuplicates() throws IOException {
+        List<Member> members = List.of(new Member("A1", "Najwa, Aleesya"), new Member("A2", "\"Dan\" Amirul"),
+            new Member("A1", "Duplicate"));
+        for (String name : new String[] { "members.csv", "members.jsonl" }) {
+            Path file = directory.resolve(name);
+            new LibraryTransfer().exportMembers(members, file);
+
+            MemberRegistry registry = new MemberRegistry();
+            LibraryTransfer.Report report = new LibraryTransfer(1).importMembers(file, registry);
+            assertEquals(2, report.getImported(), name);
+            assertEquals(1, report.getDuplicates(), name);
+            assertEquals("Najwa, Aleesya", registry.find("A1").getName());
+            assertEquals("\"Dan\" Amirul", registry.find("A2").getName());
+        }
+    }
+
+    @Test
+    void treatsAQuoteInsideAnUnquotedFieldAsText() throws IOException {
+        // The 6" on line 2 must not open a quoted field that swallows line 3
+        Path file = write("items.csv", "type,id,title,creator,isbn\n"
+            + "BOOK,B1,A 6\" ruler,Anon,\n"
+            + "BOOK,B2,\"Say \"\"hi\"\",\nthen go\",Anon,\n"
+            + "BOOK,B3,Plain,Anon,\n");
+        Catalog catalog = new Catalog(16);
+        LibraryTransfer.Report report = new LibraryTransfer(1).importItems(file, catalog);
+
+        assertEquals(0, report.getRejected(), report.getErrors().toString());
+        assertEquals(3, report.getImported());
+        assertEquals(5, report.getLines());
+        assertEquals("A 6\" ruler", catalog.findItem("B1").getTitle());
+        assertEquals("Say \"hi\",\nthen go", catalog.findItem("B2").getTitle());
+        assertEquals("Plain", catalog.findItem("B3").getTitle());
+    }
+
+    @Test
+    void rejectsBadLinesWithTheirLineNumbers() throws IOException {
+        Path csv = write("items.csv", "id,type,title\n"
+            + "B1,BOOK,Dune\n"
+            + "B2,SCROLL,Dead Sea\n"
+            + ",BOOK,No Id\n"
+            + "B3,BOOK,\"Two\nLines\"x\n"
+            + "B4,DVD,Alien\n");
+        LibraryTransfer.Report report = new LibraryTransfer(2).importItems(csv, new Catalog(16));
+        assertEquals(2, report.getImported());
+        assertEquals(3, report.getRejected());
+        assertEquals(List.of("line 3: unknown item type SCROLL", "line 4: missing id",
+            "line 5: text after closing quote"), report.getErrors().stream().sorted().toList());
+
+        Path json = write("items.jsonl", "{\"type\":\"BOOK\",\"id\":\"B1\",\"title\":\"Dune\"}\n"
+            + "{\"type\":\"BOOK\",\"id\":\"B2\",\"title\":\"Broken\"\n"
+            + "\n"
+            + "{\"type\":\"DVD\",\"id\":\"D1\",\"title\":\"Alien\",\"director\":\"Ridley Scott\"}\n");
+        report = new LibraryTransfer(2).importItems(json, new Catalog(16));
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getRejected());
+        assertTrue(report.getErrors().get(0).startsWith("line 2: "), report.getErrors().toString());
+    }
+
+    @Test
+    void failsOnARunawayQuotedField() throws IOException {
+        // An unterminated quote would otherwise make the rest of the file one record
+        StringBuilder content = new StringBuilder("type,id,title\nBOOK,B1,\"Never closed\n");
+        while (content.length() <= LibraryTransfer.MAX_RECORD_CHARS) {
+            content.append("BOOK,B2,Filler title that keeps the record growing\n");
+        }
+        Path file = write("items.csv", content.toString());
+        IOException failure = assertThrows(IOException.class,
+            () -> new LibraryTransfer(1).importItems(file, new Catalog(16)));
+        assertTrue(failure.getMessage().contains("line 2"), failure.getMessage());
+    }
+
+    @Test
+    void failsTheImportWhenAParserThreadFails() throws IOException {
+        StringBuilder content = new StringBuilder("type,id,title\n");
+        for (int i = 0; i < 5 * LibraryTransfer.BATCH_LINES; i++) {
+            content.append("BOOK,B").append(i).append(",Title ").append(i).append('\n');
+        }
+        Path file = write("items.csv", content.toString());
+        Catalog broken = new Catalog(16) {
+            @Override
+            public int addAll(Collection<? extends LibraryItem> items) {
+                throw new IllegalStateException("catalog is read-only");
+            }
+        };
+        IOException failure = assertThrows(IOException.class, () -> new LibraryTransfer(2).importItems(file, broken));
+        assertTrue(failure.getCause() instanceof IllegalStateException, String.valueOf(failure.getCause()));
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * LoanArchiveTest - Unit Tests for the Returned-Loan History
+ *
+ * Covers the segment encoding (read back before and after sealing), the
+ * three history queries, reloading stored segments and the current day's
+ * log after a simulated crash, and setting corrupt files aside.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LoanArchiveTest {
+    private static final LocalDate DAY1 = LocalDate.of(2025, 6, 1);
+    private static final LocalDate DAY2 = LocalDate.of(2025, 6, 2);
+    private static final LocalDate ALL_FROM = LocalDate.of(2000, 1, 1);
+    private static final LocalDate ALL_TO = LocalDate.of(2100, 1, 1);
+
+    private final Member alice = new Member("A1", "Alice");
+    private final Member bob = new Member("B1", "Bob");
+    private final LibraryItem dune = new Book("Dune", "B001", "Frank Herbert", null);
+    private final LibraryItem emma = new Book("Emma", "B002", "Jane Austen", null);
+    private final LibraryItem wired = new Magazine("Wired", "M001", "Issue 7");
+    private final LibraryItem alien = new DVD("Alien", "D001", "Ridley Scott");
+
+    @TempDir
+    Path directory;
+
+    // A loan of the items borrowed daysBefore the return day and due after the usual period
+    private static Loan returned(Member member, LocalDate returnDay, int daysBefore, LibraryItem... items) {
+        LocalDate borrowed = returnDay.minusDays(daysBefore);
+        Loan loan = new Loan(member, List.of(items), borrowed, borrowed.plusDays(Loan.LOAN_PERIOD_DAYS));
+        loan.setReturnDate(returnDay);
+        return loan;
+    }
+
+    private static String describe(LoanArchive.Record record) {
+        return record.getItemId() + "/" + record.getItemType() + "/" + record.getMemberId() + "/"
+            + record.getBorrowDate() + "/" + record.getDueDate() + "/" + record.getReturnDate();
+    }
+
+    private static List<String> history(LoanArchive archive, String memberId) {
+        return archive.memberHistory(memberId, ALL_FROM, ALL_TO).stream().map(LoanArchiveTest::describe)
+            .collect(Collectors.toList());
+    }
+
+    private List<String> files(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).filter(name -> name.endsWith(suffix)).sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void readsBackEveryFieldBeforeAndAfterSealing() {
+        LoanArchive archive = new LoanArchive();
+        LibraryItem unicode = new Book("Über", "Ü-1", "Anon", null);
+        archive.record(returned(alice, DAY1, 3, wired, alien));
+        // Borrowed more than a year earlier, so the day delta takes several varint bytes
+        archive.record(returned(alice, DAY1, 400, unicode));
+        List<String> expected = List.of(
+            "M001/MAGAZINE/A1/2025-05-29/2025-06-12/2025-06-01",
+            "D001/DVD/A1/2025-05-29/2025-06-12/2025-06-01",
+            "Ü-1/BOOK/A1/2024-04-27/2024-05-11/2025-06-01");
+
+        List<String> open = history(archive, "A1");
+        assertEquals(expected.stream().sorted().collect(Collectors.toList()), open.stream().sorted().collect(Collectors.toList()));
+        assertEquals(1, archive.segmentCount());
+
+        // The next day seals DAY1
+        archive.record(returned(bob, DAY2, 1, dune));
+        assertEquals(open, history(archive, "A1"));
+        assertEquals(4, archive.size());
+        assertEquals(List.of("B001/BOOK/B1/2025-06-01/2025-06-15/2025-06-02"), history(archive, "B1"));
+        // The oldest borrow sorts first among the same day's returns
+        assertEquals(386, archive.memberHistory("A1", DAY1, DAY1).get(0).getDaysLate());
+    }
+
+    @Test
+    void answersHistoryQueries() {
+        LoanArchive archive = new LoanArchive();
+        // DAY1: dune 0 late, emma 2 late, wired 1 late; DAY2: dune 6 late, alien 3 late, emma on time
+        archive.record(returned(alice, DAY1, 10, dune));
+        archive.record(returned(bob, DAY1, Loan.LOAN_PERIOD_DAYS + 2, emma));
+        archive.record(returned(bob, DAY1, Loan.LOAN_PERIOD_DAYS + 1, wired));
+        archive.record(returned(alice, DAY2, Loan.LOAN_PERIOD_DAYS + 6, dune));
+        archive.record(returned(alice, DAY2, Loan.LOAN_PERIOD_DAYS + 3, alien));
+        archive.record(returned(bob, DAY2, 5, emma));
+
+        List<Map.Entry<String, Long>> ranked = archive.mostBorrowed(DAY1, DAY2, 3);
+        assertEquals(List.of(Map.entry("B001", 2L), Map.entry("B002", 2L), Map.entry("D001", 1L)), ranked);
+        assertEquals(List.of(Map.entry("B001", 1L)), archive.mostBorrowed(DAY1, DAY1, 1));
+        assertTrue(archive.mostBorrowed(DAY2.plusDays(1), ALL_TO, 5).isEmpty());
+
+        Map<LibraryItem.ItemType, Double> late = archive.averageDaysLate(DAY1, DAY2);
+        assertEquals((0 + 2 + 6 + 0) / 4.0, late.get(LibraryItem.ItemType.BOOK), 1e-9);
+        assertEquals(1.0, late.get(LibraryItem.ItemType.MAGAZINE), 1e-9);
+        assertEquals(3.0, late.get(LibraryItem.ItemType.DVD), 1e-9);
+        assertFalse(archive.averageDaysLate(DAY2, DAY2).containsKey(LibraryItem.ItemType.MAGAZINE));
+
+        // Oldest return first, then oldest borrow
+        List<LoanArchive.Record> history = archive.memberHistory("A1", DAY1, DAY2);
+        assertEquals(List.of("B001", "B001", "D001"),
+            history.stream().map(LoanArchive.Record::getItemId).collect(Collectors.toList()));
+        assertEquals(DAY2.minusDays(Loan.LOAN_PERIOD_DAYS + 6), history.get(1).getBorrowDate());
+        assertEquals(6, history.get(1).getDaysLate());
+        assertEquals(1, archive.memberHistory("B1", DAY2, DAY2).size());
+    }
+
+    @Test
+    void reloadsStoredDaysAndTheLoggedCurrentDayAfterACrash() throws IOException {
+        LoanArchive archive = LoanArchive.open(directory);
+        archive.record(returned(alice, DAY1, 3, dune, wired));
+        archive.record(returned(bob, DAY2, 4, emma));
+        List<String> aliceHistory = history(archive, "A1");
+        assertEquals(List.of("2025-06-01.loans"), files(".loans"));
+        assertEquals(List.of("2025-06-02.loans.log"), files(".log"));
+
+        // No close(): DAY2 only exists in its log
+        LoanArchive reloaded = LoanArchive.open(directory);
+        assertEquals(3, reloaded.size());
+        assertEquals(aliceHistory, history(reloaded, "A1"));
+        assertEquals(history(archive, "B1"), history(reloaded, "B1"));
+        assertTrue(reloaded.getLoadErrors().isEmpty());
+        // Replay stored DAY2 and dropped its log
+        assertEquals(List.of("2025-06-01.loans", "2025-06-02.loans"), files(".loans"));
+        assertTrue(files(".log").isEmpty());
+
+        // A late return for the stored DAY1 and another DAY2 return, then another crash
+        reloaded.record(returned(bob, DAY1, 2, alien));
+        reloaded.record(returned(alice, DAY2, 1, emma));
+        LoanArchive again = LoanArchive.open(directory);
+        assertEquals(5, again.size());
+        assertEquals(history(reloaded, "A1"), history(again, "A1"));
+        assertEquals(history(reloaded, "B1"), history(again, "B1"));
+
+        again.close();
+        assertTrue(files(".log").isEmpty());
+        assertEquals(5, LoanArchive.open(directory).size());
+    }
+
+    @Test
+    void skipsLogRowsTheSegmentFileAlreadyHolds() throws IOException {
+        LoanArchive archive = LoanArchive.open(directory);
+        archive.record(returned(alice, DAY1, 3, dune, wired));
+        Path log = directory.resolve("2025-06-01.loans.log");
+        Path saved = directory.resolve("saved.bak");
+        Files.copy(log, saved);
+        // A crash after the segment file replaced the log but before the log was deleted
+        archive.flush();
+        assertFalse(Files.exists(log));
+        Files.move(saved, log);
+        // plus half a record torn off at the end
+        Files.write(log, new byte[] { 0, 0, 0, 40, 1, 2 }, StandardOpenOption.APPEND);
+
+        LoanArchive reloaded = LoanArchive.open(directory);
+        assertEquals(2, reloaded.size());
+        assertEquals(history(archive, "A1"), history(reloaded, "A1"));
+        assertTrue(reloaded.getLoadErrors().isEmpty());
+    }
+
+    @Test
+    void setsCorruptFilesAsideAndLoadsTheRest() throws IOException {
+        LoanArchive archive = LoanArchive.open(directory);
+        archive.record(returned(alice, DAY1, 3, dune));
+        archive.record(returned(bob, DAY2, 4, emma, alien));
+        archive.close();
+        byte[] good = Files.readAllBytes(directory.resolve("2025-06-01.loans"));
+
+        // Flipped bytes in DAY2, a truncated copy as DAY3, and a log that is not a log
+        byte[] flipped = Files.readAllBytes(directory.resolve("2025-06-02.loans"));
+        for (int i = 2; i < flipped.length; i += 3) {
+            flipped[i] ^= 0x5A;
+        }
+        Files.write(directory.resolve("2025-06-02.loans"), flipped);
+        Files.write(directory.resolve("2025-06-03.loans"), Arrays.copyOf(good, good.length / 2));
+        Files.write(directory.resolve("2025-06-04.loans.log"), "not a log".getBytes());
+
+        LoanArchive reloaded = LoanArchive.open(directory);
+        assertEquals(3, reloaded.getLoadErrors().size(), reloaded.getLoadErrors().toString());
+        assertEquals(1, reloaded.size());
+        assertEquals(history(archive, "A1"), history(reloaded, "A1"));
+        assertTrue(reloaded.memberHistory("B1", ALL_FROM, ALL_TO).isEmpty());
+        assertEquals(List.of("2025-06-02.loans.corrupt", "2025-06-03.loans.corrupt", "2025-06-04.loans.log.corrupt"),
+            files(".corrupt"));
+
+        // Set aside once, so the next start is clean
+        assertTrue(LoanArchive.open(directory).getLoadErrors().isEmpty());
+        List<String> remaining = new ArrayList<>(files(".loans"));
+        assertEquals(List.of("2025-06-01.loans"), remaining);
+        Files.copy(directory.resolve("2025-06-01.loans"), directory.resolve("copy.loans"),
+            StandardCopyOption.REPLACE_EXISTING);
+        // A file whose name is not a date is not history and is left alone
+        assertTrue(LoanArchive.open(directory).getLoadErrors().isEmpty());
+    }
+}
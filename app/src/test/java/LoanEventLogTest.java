@@ -0,0 +1,203 @@
+/**
+ * LoanEventLogTest - Unit Tests for the Asynchronous Loan Event Pipeline
+ *
+ * Covers in-order delivery from several producers, onBatchEnd() after each
+ * batch, producers waiting on a full ring instead of dropping events, the
+ * parked consumer waking for a late event, and close(): remaining events
+ * are delivered, and later publishes, or publishes to a log whose consumer
+ * has died, are dropped and counted instead of spinning or failing the loan.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class LoanEventLogTest {
+
+    // Records what the consumer delivers; only the consumer thread writes
+    private static final class Recorder implements LoanEventLog.Subscriber {
+        final List<Long> sequences = Collections.synchronizedList(new ArrayList<>());
+        final List<String> items = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger batchEnds = new AtomicInteger();
+        volatile boolean eventSinceBatchEnd;
+        volatile boolean emptyBatchEnd;
+
+        @Override
+        public void onEvent(LoanEventLog.Event event) {
+            sequences.add(event.getSequence());
+            items.add(event.getItemId());
+            eventSinceBatchEnd = true;
+        }
+
+        @Override
+        public void onBatchEnd() {
+            if (!eventSinceBatchEnd) {
+                emptyBatchEnd = true;
+            }
+            eventSinceBatchEnd = false;
+            batchEnds.incrementAndGet();
+        }
+    }
+
+    private static void publish(LoanEventLog log, String memberId, String itemId) {
+        log.publish(LoanEventLog.EventType.BORROW, memberId, itemId, "Title", 20000, 0, 0);
+    }
+
+    @Test
+    void deliversEveryEventInOrderAndEndsEachBatch() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        try (LoanEventLog log = new LoanEventLog(64)) {
+            log.subscribe(recorder);
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                String memberId = "P" + p;
+                Thread producer = new Thread(() -> {
+                        for (int i = 0; i < 5000; i++) {
+                            publish(log, memberId, memberId + ":" + i);
+                        }
+                    });
+                producer.start();
+                producers.add(producer);
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            log.flush();
+        }
+
+        assertEquals(20_000, recorder.sequences.size());
+        for (int i = 0; i < recorder.sequences.size(); i++) {
+            assertEquals(i, recorder.sequences.get(i).longValue());
+        }
+        // Each producer's events arrive in the order it published them
+        int[] next = new int[4];
+        for (String item : recorder.items) {
+            int producer = item.charAt(1) - '0';
+            assertEquals("P" + producer + ":" + next[producer]++, item);
+        }
+        assertTrue(recorder.batchEnds.get() >= 1);
+        assertTrue(recorder.batchEnds.get() <= 20_000);
+        assertFalse(recorder.emptyBatchEnd, "batch end without events");
+        assertFalse(recorder.eventSinceBatchEnd, "last batch not ended");
+    }
+
+    @Test
+    void waitsOnAFullRingInsteadOfDroppingEvents() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger delivered = new AtomicInteger();
+        try (LoanEventLog log = new LoanEventLog(4)) {
+            log.subscribe(event -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    delivered.incrementAndGet();
+                });
+            Thread producer = new Thread(() -> {
+                    for (int i = 0; i < 20; i++) {
+                        publish(log, "A1", "B" + i);
+                    }
+                });
+            producer.start();
+            producer.join(200);
+            assertTrue(producer.isAlive(), "producer should wait while the ring is full");
+            assertEquals(0, delivered.get());
+
+            release.countDown();
+            producer.join();
+            log.flush();
+            assertEquals(20, delivered.get());
+        }
+    }
+
+    @Test
+    void wakesTheParkedConsumerForEachLateEvent() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        try (LoanEventLog log = new LoanEventLog(8)) {
+            log.subscribe(recorder);
+            for (int i = 0; i < 5; i++) {
+                // Long enough for the consumer to find nothing and park
+                TimeUnit.MILLISECONDS.sleep(20);
+                publish(log, "A1", "B" + i);
+                log.flush();
+                assertEquals(i + 1, recorder.sequences.size());
+            }
+        }
+    }
+
+    @Test
+    void deliversTheRemainingEventsOnCloseAndDropsLaterOnes() {
+        Recorder recorder = new Recorder();
+        LoanEventLog log = new LoanEventLog(4);
+        log.subscribe(recorder);
+        for (int i = 0; i < 3; i++) {
+            publish(log, "A1", "B" + i);
+        }
+        log.close();
+        assertEquals(3, recorder.sequences.size());
+
+        // Used to spin forever once the ring filled up
+        for (int i = 0; i < 5; i++) {
+            publish(log, "A1", "late");
+        }
+        assertEquals(5, log.getDroppedCount());
+        assertEquals(3, recorder.sequences.size());
+        log.close();
+    }
+
+    @Test
+    void dropsEventsOnceTheConsumerHasDied() {
+        LoanEventLog log = new LoanEventLog(4);
+        log.subscribe(event -> {
+                // Errors are not caught by the consumer loop, so this stops it
+                throw new AssertionError("expected: stops the consumer");
+            });
+        // The consumer dies on the first event, so the ring fills after four
+        for (int i = 0; i < 10; i++) {
+            publish(log, "A1", "B" + i);
+        }
+        long dropped = log.getDroppedCount();
+        assertTrue(dropped >= 6 && dropped <= 10, "dropped " + dropped);
+        publish(log, "A1", "late");
+        assertEquals(dropped + 1, log.getDroppedCount());
+        log.close();
+    }
+
+    @Test
+    void keepsLendingAfterTheGlobalLogIsClosed() {
+        LoanEventLog closed = new LoanEventLog(4);
+        LoanEventLog.setGlobal(closed);
+        closed.close();
+        Member member = new Member("A1", "Alice");
+        LibraryItem item = new Book("Dune", "B1", "Frank Herbert", null);
+
+        Loan loan = new Loan(member, item, LocalDate.now().minusDays(Loan.LOAN_PERIOD_DAYS + 2));
+        loan.onBorrow();
+        loan.onReturn();
+        assertEquals(LibraryItem.ItemStatus.AVAILABLE, item.getStatus());
+        // BORROW, then LATE_FEE and RETURN
+        assertEquals(3, closed.getDroppedCount());
+        LoanEventLog.setGlobal(new LoanEventLog());
+    }
+
+    @Test
+    void closesTheGlobalLogItReplaces() {
+        LoanEventLog replaced = new LoanEventLog(4);
+        LoanEventLog.setGlobal(replaced);
+        LoanEventLog.setGlobal(new LoanEventLog(4));
+        publish(replaced, "A1", "B1");
+        assertEquals(1, replaced.getDroppedCount());
+        assertTrue(LoanEventLog.global() != replaced);
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * MappedCatalogTest - Unit Tests for the Memory-Mapped Catalog File
+ *
+ * Covers the converter round trip (write, open, read rows and convert back
+ * to a heap Catalog), status updates in place, and the IOException thrown
+ * for short, foreign or truncated files.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedCatalogTest {
+
+    @TempDir
+    Path directory;
+
+    private Path writeSample() throws IOException {
+        Book dune = new Book("Dune", "B1", "Frank Herbert", "978-0441013593");
+        Book untitled = new Book("Ünïcødé — Title", "B2", "Frank Herbert", null);
+        untitled.setStatus(LibraryItem.ItemStatus.BORROWED);
+        Path file = directory.resolve("catalog.lms");
+        MappedCatalog.write(List.of(dune, untitled, new Magazine("Wired", "M1", "Issue 7"),
+            new DVD("Alien", "D1", "Ridley Scott")), file);
+        return file;
+    }
+
+    @Test
+    void readsBackEveryRowAndConvertsToACatalog() throws IOException {
+        try (MappedCatalog mapped = MappedCatalog.open(writeSample())) {
+            assertEquals(4, mapped.size());
+            int row = mapped.findRow("B2");
+            assertEquals("Ünïcødé — Title", mapped.getTitle(row));
+            assertEquals(LibraryItem.ItemStatus.BORROWED, mapped.getStatus(row));
+            assertNull(mapped.view(row).getIsbn());
+            assertEquals("Frank Herbert", mapped.view(row).getCreator());
+            assertEquals(-1, mapped.findRow("missing"));
+
+            MappedCatalog.ItemView dvd = mapped.view(mapped.findRow("D1"));
+            assertEquals(LibraryItem.ItemType.DVD, dvd.getType());
+            assertEquals("Ridley Scott", dvd.getCreator());
+
+            Catalog catalog = mapped.toCatalog();
+            assertEquals(4, catalog.size());
+            Book dune = (Book) catalog.findItem("B1");
+            assertEquals("978-0441013593", dune.getIsbn());
+            assertEquals("Issue 7", ((Magazine) catalog.findItem("M1")).getIssueNumber());
+            assertEquals(1, catalog.countByStatus(LibraryItem.ItemStatus.BORROWED));
+        }
+    }
+
+    @Test
+    void writesStatusChangesInPlace() throws IOException {
+        Path file = writeSample();
+        try (MappedCatalog mapped = MappedCatalog.openWritable(file)) {
+            mapped.setStatus(mapped.findRow("M1"), LibraryItem.ItemStatus.TRANSFERRED);
+        }
+        try (MappedCatalog mapped = MappedCatalog.open(file)) {
+            assertEquals(LibraryItem.ItemStatus.TRANSFERRED, mapped.getStatus(mapped.findRow("M1")));
+        }
+    }
+
+    @Test
+    void opensAnEmptyCatalog() throws IOException {
+        Path file = directory.resolve("empty.lms");
+        MappedCatalog.write(List.of(), file);
+        try (MappedCatalog mapped = MappedCatalog.open(file)) {
+            assertEquals(0, mapped.size());
+            assertEquals(-1, mapped.findRow("B1"));
+        }
+    }
+
+    @Test
+    void rejectsShortForeignAndTruncatedFiles() throws IOException {
+        Path tiny = directory.resolve("tiny.lms");
+        Files.write(tiny, new byte[] {1, 2, 3});
+        assertThrows(IOException.class, () -> MappedCatalog.open(tiny));
+
+        Path foreign = directory.resolve("foreign.lms");
+        Files.write(foreign, new byte[64]);
+        assertThrows(IOException.class, () -> MappedCatalog.open(foreign));
+
+        byte[] bytes = Files.readAllBytes(writeSample());
+        Path truncated = directory.resolve("truncated.lms");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 3));
+        assertThrows(IOException.class, () -> MappedCatalog.open(truncated));
+        Files.write(truncated, Arrays.copyOf(bytes, 40));
+        assertThrows(IOException.class, () -> MappedCatalog.open(truncated));
+
+        // Counts so large the offsets they imply would overflow an int
+        byte[] huge = bytes.clone();
+        ByteBuffer.wrap(huge).putInt(12, Integer.MAX_VALUE / 2).putInt(16, 1 << 30);
+        Path corrupt = directory.resolve("corrupt.lms");
+        Files.write(corrupt, huge);
+        assertThrows(IOException.class, () -> MappedCatalog.open(corrupt));
+        ByteBuffer.wrap(huge).putInt(12, 4).putInt(16, 3);
+        Files.write(corrupt, huge);
+        assertThrows(IOException.class, () -> MappedCatalog.open(corrupt));
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * MetricsTest - Unit Tests for the Latency Histogram and Timers
+ *
+ * Covers the log-linear bucket boundaries, the "within 12.5%" bound on
+ * reported latencies, and the percentiles a Timer reports from them.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class MetricsTest {
+
+    @Test
+    void bucketsSmallValuesExactly() {
+        for (long value = 0; value < 16; value++) {
+            assertEquals(value, Metrics.bucketOf(value));
+            assertEquals(value, Metrics.bucketUpperBound((int) value));
+        }
+    }
+
+    @Test
+    void bucketBoundariesMeetWithoutGapsOrOverlaps() {
+        int last = Metrics.bucketOf(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, Metrics.bucketUpperBound(last));
+        for (int bucket = 0; bucket < last; bucket++) {
+            long upper = Metrics.bucketUpperBound(bucket);
+            assertEquals(bucket, Metrics.bucketOf(upper), "upper bound of bucket " + bucket);
+            assertEquals(bucket + 1, Metrics.bucketOf(upper + 1), "first value after bucket " + bucket);
+        }
+        // Each power of two from 8 on starts a new group of 8 sub-buckets
+        for (int exponent = 3; exponent < 63; exponent++) {
+            assertEquals(0, Metrics.bucketOf(1L << exponent) % 8, "2^" + exponent);
+        }
+    }
+
+    @Test
+    void reportsEveryValueWithinAnEighthAbove() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            assertWithinAnEighth(value);
+        }
+        for (int exponent = 0; exponent < 63; exponent++) {
+            long power = 1L << exponent;
+            assertWithinAnEighth(power - 1);
+            assertWithinAnEighth(power);
+            assertWithinAnEighth(power + 1);
+        }
+        assertWithinAnEighth(Long.MAX_VALUE);
+    }
+
+    private static void assertWithinAnEighth(long value) {
+        long reported = Metrics.bucketUpperBound(Metrics.bucketOf(value));
+        assertTrue(reported >= value, value + " reported as " + reported);
+        assertTrue(reported - value <= value / 8, value + " reported as " + reported);
+    }
+
+    @Test
+    void computesPercentilesFromTheBuckets() {
+        Metrics.Timer timer = new Metrics().timer("test");
+        for (long nanos = 1; nanos <= 1000; nanos++) {
+            timer.recordNanos(nanos);
+        }
+        Metrics.Snapshot snapshot = timer.snapshot();
+        assertEquals(1000, snapshot.count);
+        assertEquals(500.5, snapshot.meanNanos, 1e-9);
+        // 500 falls in [480, 511], 900 in [896, 959], 990 in [960, 1023]
+        assertEquals(511, snapshot.p50Nanos);
+        assertEquals(959, snapshot.p90Nanos);
+        assertEquals(1000, snapshot.p99Nanos); // capped at the largest value seen
+        assertEquals(1000, snapshot.p999Nanos);
+        assertEquals(1000, snapshot.maxNanos);
+    }
+
+    @Test
+    void keepsPercentilesWithinAnEighthOfTheExactOnes() {
+        Metrics.Timer timer = new Metrics().timer("test");
+        Random random = new Random(3);
+        long[] values = new long[50_000];
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal-ish latencies from ~100 ns to ~10 ms
+            values[i] = (long) Math.exp(4.6 + random.nextGaussian() * 2.5);
+            timer.recordNanos(values[i]);
+        }
+        Arrays.sort(values);
+        Metrics.Snapshot snapshot = timer.snapshot();
+        long[] reported = {snapshot.p50Nanos, snapshot.p90Nanos, snapshot.p99Nanos, snapshot.p999Nanos};
+        double[] quantiles = {0.50, 0.90, 0.99, 0.999};
+        for (int i = 0; i < quantiles.length; i++) {
+            long exact = values[(int) Math.ceil(quantiles[i] * values.length) - 1];
+            assertTrue(reported[i] >= exact && reported[i] - exact <= exact / 8,
+                "p" + quantiles[i] + ": exact " + exact + ", reported " + reported[i]);
+        }
+        assertEquals(values[values.length - 1], snapshot.maxNanos);
+    }
+
+    @Test
+    void handlesEmptyNegativeAndResetTimers() {
+        Metrics metrics = new Metrics();
+        Metrics.Timer timer = metrics.timer("test");
+        assertSame(timer, metrics.timer("test"));
+        assertEquals(0, timer.snapshot().p99Nanos);
+        assertEquals(0, timer.snapshot().meanNanos);
+
+        // A clock step backwards counts as zero, not as a negative latency
+        timer.recordNanos(-5);
+        assertEquals(1, timer.getCount());
+        assertEquals(0, timer.getP50Nanos());
+
+        timer.recordNanos(7);
+        assertEquals(7, timer.getP99Nanos());
+        timer.reset();
+        assertEquals(0, timer.getCount());
+        assertEquals(0, timer.getMaxNanos());
+        assertTrue(metrics.dump().contains("test"));
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * PagedTableModelTest - Unit Tests for the Lazily Paged Table Model
+ *
+ * Drives the model the way MainLMS does for the available-items listing,
+ * with pages fetched synchronously from a Catalog instead of a SwingWorker.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class PagedTableModelTest {
+    private static final LibraryItem.ItemStatus AVAILABLE = LibraryItem.ItemStatus.AVAILABLE;
+
+    private final Catalog catalog = new Catalog();
+    private final List<String> requests = new ArrayList<>();
+
+    private PagedTableModel<LibraryItem> modelOf(int items) {
+        for (int i = 0; i < items; i++) {
+            catalog.add(new Book("Title " + i, String.format("B%05d", i), "Author", null));
+        }
+        return new PagedTableModel<LibraryItem>(LibraryItem::getId, () -> catalog.countByStatus(AVAILABLE))
+            .column("ID", LibraryItem::getId)
+            .onPageNeeded(requests::add);
+    }
+
+    private void deliver(PagedTableModel<LibraryItem> model) {
+        String afterId = requests.remove(requests.size() - 1);
+        model.appendPage(catalog.getPage(AVAILABLE, afterId, PagedTableModel.PAGE_ROWS));
+    }
+
+    @Test
+    void fetchesOnlyThePagesThatAreRead() {
+        int items = PagedTableModel.PAGE_ROWS * 5 / 2;
+        PagedTableModel<LibraryItem> model = modelOf(items);
+        assertEquals(items, model.getRowCount());
+        assertEquals(List.of(), requests);
+
+        // A row past the loaded prefix asks for the next page once
+        assertEquals("...", model.getValueAt(10, 0));
+        model.getValueAt(11, 0);
+        assertEquals(1, requests.size());
+        assertEquals(null, requests.get(0));
+        deliver(model);
+        assertEquals("B00010", model.getValueAt(10, 0));
+        assertEquals(List.of(), requests);
+
+        model.getValueAt(PagedTableModel.PAGE_ROWS, 0);
+        assertEquals(String.format("B%05d", PagedTableModel.PAGE_ROWS - 1), requests.get(0));
+        deliver(model);
+        model.getValueAt(items - 1, 0);
+        deliver(model);
+        assertEquals(String.format("B%05d", items - 1), model.getValueAt(items - 1, 0));
+        assertEquals(items, model.getRowCount());
+        model.getValueAt(items, 0);
+        assertEquals(List.of(), requests);
+    }
+
+    @Test
+    void followsStatusChangesInAndPastTheLoadedPrefix() {
+        int items = PagedTableModel.PAGE_ROWS * 2;
+        PagedTableModel<LibraryItem> model = modelOf(items);
+        model.getValueAt(0, 0);
+        deliver(model);
+
+        // Inside the loaded prefix: the row itself moves
+        catalog.findItem("B00005").setStatus(LibraryItem.ItemStatus.BORROWED);
+        model.remove("B00005");
+        assertEquals("B00006", model.getValueAt(5, 0));
+        assertEquals(items - 1, model.getRowCount());
+        catalog.findItem("B00005").setStatus(AVAILABLE);
+        model.upsert(catalog.findItem("B00005"));
+        assertEquals("B00005", model.getValueAt(5, 0));
+        assertEquals(items, model.getRowCount());
+
+        // Past it: only the count changes, and the row shows up when its page loads
+        LibraryItem late = catalog.findItem(String.format("B%05d", items - 1));
+        late.setStatus(LibraryItem.ItemStatus.BORROWED);
+        model.remove(late.getId());
+        assertEquals(items - 1, model.getRowCount());
+        model.getValueAt(items - 2, 0);
+        deliver(model);
+        assertEquals(items - 1, model.getRowCount());
+        assertEquals(String.format("B%05d", items - 2), model.getValueAt(items - 2, 0));
+
+        // Once the last page is in, new rows are inserted in order
+        late.setStatus(AVAILABLE);
+        model.upsert(late);
+        assertEquals(late.getId(), model.getValueAt(items - 1, 0));
+        assertEquals(items, model.getRowCount());
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * SearchIndexTest - Unit Tests for the Full-Text Search Index
+ *
+ * Covers AND matching, prefix matching, ranking, equal scores ordered by
+ * insertion across the terms of a prefix, and matches hidden behind many
+ * items that share a common token or a prefix with many terms.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SearchIndexTest {
+
+    private static List<String> ids(List<LibraryItem> items) {
+        List<String> ids = new ArrayList<>();
+        for (LibraryItem item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    void matchesEveryTokenByPrefixAndRanksTitlesFirst() {
+        SearchIndex index = new SearchIndex();
+        index.add(new Book("The Hunger Games", "B1", "Suzanne Collins", "978-0-439-02348-1"));
+        index.add(new Book("Games People Play", "B2", "Eric Berne", null));
+        index.add(new DVD("Hunger", "D1", "Steve McQueen"));
+        index.add(new Magazine("Game Informer", "M1", "Hunger special"));
+
+        assertEquals(List.of("B1", "M1"), ids(index.search("hung gam")));
+        assertEquals(List.of("B1", "D1", "M1"), ids(index.search("hunger")));
+        assertEquals(List.of("B1"), ids(index.search("9780439023481")));
+        assertTrue(index.search("hunger zebra").isEmpty());
+        assertEquals(List.of("B1"), ids(index.search("hunger", 1)));
+    }
+
+    @Test
+    void findsTheOnlyMatchBehindThousandsOfPartialMatches() {
+        SearchIndex index = new SearchIndex();
+        for (int i = 0; i < 5000; i++) {
+            index.add(new Book("red apple", "A" + i, "Author", null));
+        }
+        for (int i = 0; i < 5000; i++) {
+            index.add(new Book("green pear", "P" + i, "Author", null));
+        }
+        index.add(new Book("red pear", "RP", "Author", null));
+
+        assertEquals(List.of("RP"), ids(index.search("red pear")));
+        assertEquals(List.of("RP"), ids(index.search("pear red")));
+        assertEquals(20, index.search("red").size());
+    }
+
+    @Test
+    void findsMatchesBehindAPrefixWithManyTerms() {
+        SearchIndex index = new SearchIndex();
+        for (int i = 0; i < 100; i++) {
+            index.add(new Book("star" + (char) ('a' + i % 26) + i + " atlas", "S" + i, "Author", null));
+        }
+        index.add(new Book("starzz voyage", "V", "Author", null));
+
+        assertEquals(List.of("V"), ids(index.search("star voyage")));
+        assertEquals(100, index.search("star atlas", 1000).size());
+    }
+
+    @Test
+    void breaksEqualScoresByInsertionOrderAcrossPrefixTerms() {
+        SearchIndex index = new SearchIndex();
+        // Added in the reverse of their terms' order, and "stark" twice in one title
+        index.add(new Book("Starz", "S1", "Author", null));
+        index.add(new Book("Stary", "S2", "Author", null));
+        index.add(new Book("Stark stark", "S3", "Author", null));
+        index.add(new Book("Stara", "S4", "Author", null));
+        index.add(new Book("Other", "S5", "Starbuck", null));
+
+        assertEquals(List.of("S1"), ids(index.search("sta", 1)));
+        assertEquals(List.of("S1", "S2", "S3"), ids(index.search("sta", 3)));
+        assertEquals(List.of("S1", "S2", "S3", "S4", "S5"), ids(index.search("sta")));
+        // An exact title term still outranks every prefix match
+        index.add(new Book("Sta", "S6", "Author", null));
+        assertEquals(List.of("S6", "S1"), ids(index.search("sta", 2)));
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * BatchFeeWorkload - Members and Loans for BatchFeeBenchmark
+ *
+ * This class builds the requested number of members, each with the same
+ * number of open loans (a third of them overdue, over a mix of books,
+ * magazines and DVDs), and runs the BatchFeeEngine over all of them.
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+
+import benchmarks.BatchFeeOperations;
+
+// BatchFeeWorkload class to run batch fee passes for the benchmarks
+public class BatchFeeWorkload implements BatchFeeOperations {
+    private Collection<Member> members;
+    private BatchFeeEngine engine;
+    private ForkJoinPool pool;
+    private LocalDate today;
+
+    @Override
+    public void setUp(int memberCount, int loansPerMember, int parallelism) {
+        int itemCount = memberCount * loansPerMember;
+        CirculationEngine circulation = new CirculationEngine(new Catalog(itemCount), new MemberRegistry(memberCount));
+        today = LocalDate.now();
+        int item = 0;
+        for (int m = 0; m < memberCount; m++) {
+            Member member = new Member("A" + m, "Member " + m);
+            circulation.addMember(member);
+            for (int l = 0; l < loansPerMember; l++, item++) {
+                LibraryItem libraryItem;
+                switch (item % 3) {
+                    case 0:
+                        libraryItem = new Book("Title", "I" + item, "Author", null);
+                        break;
+                    case 1:
+                        libraryItem = new Magazine("Title", "I" + item, "Issue");
+                        break;
+                    default:
+                        libraryItem = new DVD("Title", "I" + item, "Director");
+                }
+                circulation.addItem(libraryItem);
+                int daysAgo = item % 3 == 0 ? Loan.LOAN_PERIOD_DAYS + 1 + item % 30 : item % Loan.LOAN_PERIOD_DAYS;
+                circulation.restoreLoan(new Loan(member, libraryItem, today.minusDays(daysAgo)));
+            }
+        }
+        members = circulation.getMembers();
+        pool = parallelism == 0 ? null : new ForkJoinPool(parallelism);
+        engine = pool == null ? new BatchFeeEngine() : new BatchFeeEngine(pool);
+    }
+
+    @Override
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Override
+    public long run(boolean csv) throws IOException {
+        return engine.run(members, today, csv ? Writer.nullWriter() : null).getTotalFeesCents();
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * CatalogBenchmark - Lookup Latency of the Catalog Index
+ *
+ * Measures Catalog.findItem() latency across catalog sizes to show that
+ * lookups stay flat as the catalog grows (1k up to 10M items by default).
+ *
+ * Usage:
+ *   java -Xmx8g -cp benchmarks/target/benchmarks.jar CatalogBenchmark [size ...]
+ *
+ * Each size is filled with synthetic books, warmed up, then timed over a
+ * fixed number of random lookups. Results are reported in ns per lookup.
+ */
+
+import java.util.Random;
+
+public class CatalogBenchmark {
+    private static final int WARMUP_LOOKUPS = 2_000_000;
+    private static final int MEASURED_LOOKUPS = 5_000_000;
+    private static final int[] DEFAULT_SIZES = {1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+
+    // Keeps the JIT from discarding lookup results
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.println(String.format("%12s %14s", "items", "ns/lookup"));
+        for (int size : sizes) {
+            String[] ids = new String[size];
+            Catalog catalog = new Catalog(size);
+            for (int i = 0; i < size; i++) {
+                ids[i] = "B" + i;
+                catalog.add(new Book("Benchmark Title", ids[i], "Benchmark Author", "000-0000000000"));
+            }
+
+            Random random = new Random(42);
+            runLookups(catalog, ids, random, WARMUP_LOOKUPS);
+            long start = System.nanoTime();
+            runLookups(catalog, ids, random, MEASURED_LOOKUPS);
+            long elapsed = System.nanoTime() - start;
+
+            System.out.println(String.format("%12d %14.1f", size, (double) elapsed / MEASURED_LOOKUPS));
+        }
+    }
+
+    private static void runLookups(Catalog catalog, String[] ids, Random random, int count) {
+        Object last = null;
+        for (int i = 0; i < count; i++) {
+            last = catalog.findItem(ids[random.nextInt(ids.length)]);
+        }
+        sink = last;
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * CirculationStress - Concurrent Borrow/Return Consistency Check
+ *
+ * Hammers a shared CirculationEngine from many threads (64 by default) with a
+ * random mix of borrows, returns, holds and hold cancellations, then
+ * verifies that no update was lost:
+ * - every BORROWED item is held by exactly one member loan
+ * - every AVAILABLE item is held by nobody
+ * - BORROW events minus RETURN events equals the open loan count (returns
+ *   handed to a waiting hold open a loan without a borrow() call)
+ * - no hold is left waiting on an AVAILABLE item
+ * - the catalog status index agrees with each item's status
+ * - a reporter thread reading snapshots during the run always gets the same
+ *   answer twice from one snapshot, and a final snapshot matches the live
+ *   state with every old version reclaimed
+ * - the loan history archive holds one entry per return event
+ *
+ * Usage:
+ *   java -cp benchmarks/target/benchmarks.jar CirculationStress [threads] [items] [opsPerThread]
+ *
+ * Exits with status 1 if any invariant is violated.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CirculationStress {
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int itemCount = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int opsPerThread = args.length > 2 ? Integer.parseInt(args[2]) : 50_000;
+
+        Catalog catalog = new Catalog(itemCount);
+        String[] ids = new String[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            ids[i] = "B" + i;
+            catalog.add(new Book("Stress Title", ids[i], "Stress Author", "000-0000000000"));
+        }
+        CirculationEngine engine = new CirculationEngine(catalog);
+        LoanArchive archive = new LoanArchive();
+        engine.setArchive(archive);
+
+        // Two members per thread so members are also shared between desks
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < threads * 2; i++) {
+            members.add(new Member("S" + i, "Stress Member " + i));
+        }
+
+        AtomicLong borrows = new AtomicLong();
+        AtomicLong returns = new AtomicLong();
+        AtomicLong holds = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        // Count loan events instead of writing them to stdout
+        LoanEventLog events = new LoanEventLog();
+        AtomicLong borrowEvents = new AtomicLong();
+        AtomicLong returnEvents = new AtomicLong();
+        events.subscribe(event -> {
+                if (event.getType() == LoanEventLog.EventType.BORROW) {
+                    borrowEvents.incrementAndGet();
+                } else if (event.getType() == LoanEventLog.EventType.RETURN) {
+                    returnEvents.incrementAndGet();
+                }
+            });
+        LoanEventLog.setGlobal(events);
+
+        // Repeatable reads: one snapshot must return identical loans however long the report takes
+        AtomicLong reports = new AtomicLong();
+        List<String> reportFailures = new ArrayList<>();
+        Thread reporter = new Thread(() -> {
+                try {
+                    start.await();
+                    while (done.getCount() > 0) {
+                        try (CirculationSnapshots.Snapshot snapshot = engine.openSnapshot()) {
+                            Map<String, Loan> first = loansById(snapshot);
+                            Thread.sleep(1);
+                            Map<String, Loan> second = loansById(snapshot);
+                            if (!first.equals(second)) {
+                                reportFailures.add("snapshot " + snapshot.getVersion() + " changed while open");
+                                return;
+                            }
+                        }
+                        reports.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        reporter.start();
+
+        long began = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        start.await();
+                        for (int op = 0; op < opsPerThread; op++) {
+                            Member member = members.get(random.nextInt(members.size()));
+                            String itemId = ids[random.nextInt(ids.length)];
+                            int choice = random.nextInt(10);
+                            if (choice < 4) {
+                                if (engine.borrow(member, itemId) == CirculationService.BorrowResult.BORROWED) {
+                                    borrows.incrementAndGet();
+                                }
+                            } else if (choice < 8) {
+                                if (engine.returnItem(member, itemId) != null) {
+                                    returns.incrementAndGet();
+                                }
+                            } else if (choice < 9) {
+                                if (engine.placeHold(member, itemId) == CirculationService.BorrowResult.HELD) {
+                                    holds.incrementAndGet();
+                                }
+                            } else {
+                                engine.cancelHold(member, itemId);
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            worker.start();
+        }
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - began;
+        reporter.join();
+
+        events.flush();
+        List<String> failures = verify(engine, catalog, members, borrowEvents.get() - returnEvents.get());
+        failures.addAll(reportFailures);
+        failures.addAll(verifySnapshot(engine, members));
+        if (archive.size() != returnEvents.get()) {
+            failures.add("loan history has " + archive.size() + " loans, expected " + returnEvents.get() + " returns");
+        }
+
+        long totalOps = (long) threads * opsPerThread;
+        System.out.println(String.format("threads=%d items=%d ops=%d borrows=%d returns=%d holds=%d",
+                threads, itemCount, totalOps, borrows.get(), returns.get(), holds.get()));
+        System.out.println(String.format("throughput: %.0f ops/s, %d snapshot reports", totalOps / (elapsed / 1e9),
+                reports.get()));
+        System.out.print(Metrics.global().dump());
+
+        if (failures.isEmpty()) {
+            System.out.println("OK: no lost or duplicated updates");
+        } else {
+            for (String failure : failures) {
+                System.out.println("FAIL: " + failure);
+            }
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Loan> loansById(CirculationSnapshots.Snapshot snapshot) {
+        Map<String, Loan> loans = new HashMap<>();
+        for (CirculationSnapshots.ItemState state : snapshot.getLoans()) {
+            loans.put(state.getItem().getId(), state.getLoan());
+        }
+        return loans;
+    }
+
+    // With all desks idle, a new snapshot must equal the live state and nothing old may be retained
+    private static List<String> verifySnapshot(CirculationEngine engine, List<Member> members) {
+        List<String> failures = new ArrayList<>();
+        try (CirculationSnapshots.Snapshot snapshot = engine.openSnapshot()) {
+            for (CirculationSnapshots.ItemState state : snapshot.getItems()) {
+                LibraryItem item = state.getItem();
+                Loan live = null;
+                for (Member member : members) {
+                    live = live != null ? live : member.findLoan(item.getId());
+                }
+                if (state.getStatus() != item.getStatus()) {
+                    failures.add("snapshot shows " + item.getId() + " as " + state.getStatus());
+                } else if (live != null && state.getBorrower() != live.getMember()) {
+                    failures.add("snapshot shows " + item.getId() + " lent to the wrong member");
+                }
+            }
+        }
+        CirculationSnapshots snapshots = engine.getSnapshots();
+        if (snapshots.getOpenSnapshotCount() != 0 || snapshots.getRetainedVersionCount() != 0) {
+            failures.add(snapshots.getRetainedVersionCount() + " versions retained after every snapshot closed");
+        }
+        return failures;
+    }
+
+    private static List<String> verify(CirculationEngine engine, Catalog catalog, List<Member> members,
+    long expectedOpenLoans) {
+        List<String> failures = new ArrayList<>();
+
+        Map<String, Integer> holders = new HashMap<>();
+        long openLoans = 0;
+        for (Member member : members) {
+            for (Loan loan : member.getLoans()) {
+                for (LibraryItem item : loan.getItems()) {
+                    holders.merge(item.getId(), 1, Integer::sum);
+                }
+                openLoans++;
+            }
+        }
+        if (openLoans != expectedOpenLoans) {
+            failures.add("open loans " + openLoans + " != borrow events - return events " + expectedOpenLoans);
+        }
+
+        for (LibraryItem item : catalog.getItems()) {
+            int count = holders.getOrDefault(item.getId(), 0);
+            boolean borrowed = item.getStatus() == LibraryItem.ItemStatus.BORROWED;
+            if (borrowed && count != 1) {
+                failures.add(item.getId() + " is BORROWED but held by " + count + " loans");
+            } else if (!borrowed && count != 0) {
+                failures.add(item.getId() + " is AVAILABLE but held by " + count + " loans");
+            } else if (!borrowed && engine.getHolds().hasWaiting(item.getId())) {
+                failures.add(item.getId() + " is AVAILABLE but has a waiting hold");
+            }
+        }
+
+        for (LibraryItem.ItemStatus status : LibraryItem.ItemStatus.values()) {
+            for (LibraryItem item : catalog.getItemsByStatus(status)) {
+                if (item.getStatus() != status) {
+                    failures.add("status index lists " + item.getId() + " as " + status);
+                }
+            }
+        }
+        return failures;
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * FeeWorkload - Fee Inputs for FeeBenchmark
+ *
+ * This class prepares random (item, daysLate) inputs and evaluates them
+ * through both the current cents path and the pre-FeeSchedule double path,
+ * which is kept here only for comparison.
+ *
+ * Rate Sets:
+ * - published:  $1.00 / $0.50 / $2.00 per day (book / magazine / DVD);
+ *   exact in binary, so the double path happens to sum without error
+ * - fractional: $0.10 / $0.35 / $0.25 per day; not exact in binary, so
+ *   the double totals drift away from the exact cents totals
+ */
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import benchmarks.FeeOperations;
+
+// FeeWorkload class to evaluate late fees for the benchmarks
+public class FeeWorkload implements FeeOperations {
+    private LibraryItem[] items;
+    private LegacyFee[] legacy;
+    private int[] daysLate;
+
+    // The pre-FeeSchedule implementation: one virtual method per subclass
+    private abstract static class LegacyFee {
+        final double dailyRate;
+
+        LegacyFee(double dailyRate) { this.dailyRate = dailyRate; }
+
+        abstract double calculateLateFee(int daysLate);
+    }
+
+    private static final class LegacyBook extends LegacyFee {
+        LegacyBook(double dailyRate) { super(dailyRate); }
+
+        double calculateLateFee(int daysLate) { return daysLate * dailyRate; }
+    }
+
+    private static final class LegacyMagazine extends LegacyFee {
+        LegacyMagazine(double dailyRate) { super(dailyRate); }
+
+        double calculateLateFee(int daysLate) { return daysLate * dailyRate; }
+    }
+
+    private static final class LegacyDVD extends LegacyFee {
+        LegacyDVD(double dailyRate) { super(dailyRate); }
+
+        double calculateLateFee(int daysLate) { return daysLate * dailyRate; }
+    }
+
+    @Override
+    public void setUp(int inputs, String rates) {
+        long[] centsPerDay = ratesFor(rates);
+        FeeSchedule.install(FeeSchedule.DEFAULT
+            .withPolicy(LibraryItem.ItemType.BOOK, FeePolicy.daily(centsPerDay[0]))
+            .withPolicy(LibraryItem.ItemType.MAGAZINE, FeePolicy.daily(centsPerDay[1]))
+            .withPolicy(LibraryItem.ItemType.DVD, FeePolicy.daily(centsPerDay[2])));
+
+        items = new LibraryItem[inputs];
+        legacy = new LegacyFee[inputs];
+        daysLate = new int[inputs];
+        Random random = new Random(7);
+        for (int i = 0; i < inputs; i++) {
+            switch (random.nextInt(3)) {
+                case 0:
+                    items[i] = new Book("t", "B" + i, "a", "i");
+                    legacy[i] = new LegacyBook(centsPerDay[0] / 100.0);
+                    break;
+                case 1:
+                    items[i] = new Magazine("t", "M" + i, "n");
+                    legacy[i] = new LegacyMagazine(centsPerDay[1] / 100.0);
+                    break;
+                default:
+                    items[i] = new DVD("t", "D" + i, "d");
+                    legacy[i] = new LegacyDVD(centsPerDay[2] / 100.0);
+            }
+            daysLate[i] = random.nextInt(60);
+        }
+    }
+
+    // Book, magazine and DVD daily rates in cents
+    private static long[] ratesFor(String rates) {
+        switch (rates) {
+            case "published":
+                return new long[] {100, 50, 200};
+            case "fractional":
+                return new long[] {10, 35, 25};
+            default:
+                throw new IllegalArgumentException("Unknown rate set: " + rates);
+        }
+    }
+
+    @Override
+    public void tearDown() {
+        FeeSchedule.install(FeeSchedule.DEFAULT);
+    }
+
+    @Override
+    public double legacyTotal() {
+        double total = 0;
+        for (int i = 0; i < legacy.length; i++) {
+            total += legacy[i].calculateLateFee(daysLate[i]);
+        }
+        return total;
+    }
+
+    @Override
+    public long centsTotal() {
+        long total = 0;
+        for (int i = 0; i < items.length; i++) {
+            total += items[i].calculateLateFeeCents(daysLate[i]);
+        }
+        return total;
+    }
+
+    @Override
+    public double driftCents() {
+        // Exact decimal difference, so the comparison itself adds no rounding
+        BigDecimal exact = BigDecimal.valueOf(centsTotal(), 2);
+        return new BigDecimal(legacyTotal()).subtract(exact).abs().movePointRight(2).doubleValue();
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * HistoryBenchmark - Loan Archive Size and History Query Latency
+ *
+ * Archives a synthetic stream of returned loans (a year by default, in
+ * return-date order, as a running library would produce them), then reports
+ * bytes stored per loan and the latency of each history query over one
+ * month and over the whole year. Every query answer is checked against a
+ * plain in-memory list of the same loans, and the archive is written to a
+ * temporary directory and loaded back to check that nothing is lost.
+ *
+ * Usage:
+ *   java -cp benchmarks/target/benchmarks.jar HistoryBenchmark [loans] [days] [items] [members]
+ *   (defaults: 2,000,000 loans over 365 days, 50,000 items, 20,000 members)
+ *
+ * Exits with status 1 if a check fails.
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class HistoryBenchmark {
+    private static final int RUNS = 20;
+
+    public static void main(String[] args) throws IOException {
+        int loanCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 365;
+        int itemCount = args.length > 2 ? Integer.parseInt(args[2]) : 50_000;
+        int memberCount = args.length > 3 ? Integer.parseInt(args[3]) : 20_000;
+
+        LocalDate first = LocalDate.of(2025, 1, 1);
+        LocalDate last = first.plusDays(days - 1);
+        List<LibraryItem> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            switch (i % 3) {
+                case 0:
+                    items.add(new Book("History Title " + i, "B" + i, "History Author", null));
+                    break;
+                case 1:
+                    items.add(new Magazine("History Issue " + i, "M" + i, String.valueOf(i)));
+                    break;
+                default:
+                    items.add(new DVD("History Film " + i, "D" + i, "History Director"));
+                    break;
+            }
+        }
+        List<Member> members = new ArrayList<>(memberCount);
+        for (int i = 0; i < memberCount; i++) {
+            members.add(new Member("P" + i, "Patron " + i));
+        }
+
+        Path directory = Files.createTempDirectory("loan-history");
+        LoanArchive archive = LoanArchive.open(directory);
+        List<LoanArchive.Record> reference = new ArrayList<>(loanCount);
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int n = 0; n < loanCount; n++) {
+            LocalDate returned = first.plusDays((long) n * days / loanCount);
+            // Popular items are borrowed far more often than the rest
+            LibraryItem item = items.get((int) (itemCount * Math.pow(random.nextDouble(), 3)));
+            Member member = members.get(random.nextInt(memberCount));
+            LocalDate borrowed = returned.minusDays(1 + random.nextInt(28));
+            Loan loan = new Loan(member, item, borrowed);
+            loan.setReturnDate(returned);
+            archive.record(loan);
+            reference.add(new LoanArchive.Record(item.getId(), item.getType(), member.getMemberId(), borrowed,
+                    loan.getDueDate(), returned));
+        }
+        archive.flush();
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(String.format("loans=%d days=%d items=%d members=%d cores=%d", loanCount, days,
+                itemCount, memberCount, Runtime.getRuntime().availableProcessors()));
+        System.out.println(String.format("archived in %.0f ms (%.0f loans/s), %d segments, %.1f bytes/loan",
+                elapsed / 1e6, loanCount / (elapsed / 1e9), archive.segmentCount(),
+                (double) archive.storedBytes() / archive.size()));
+
+        List<String> failures = new ArrayList<>();
+        LocalDate monthStart = last.minusDays(29);
+        String member = members.get(memberCount / 2).getMemberId();
+        System.out.println(String.format("%-28s %10s %10s", "query", "month ms", "year ms"));
+        report("mostBorrowed(10)",
+            () -> archive.mostBorrowed(monthStart, last, 10), () -> archive.mostBorrowed(first, last, 10));
+        report("averageDaysLate",
+            () -> archive.averageDaysLate(monthStart, last), () -> archive.averageDaysLate(first, last));
+        report("memberHistory",
+            () -> archive.memberHistory(member, monthStart, last), () -> archive.memberHistory(member, first, last));
+
+        check(failures, "archive", archive, reference, first, last, monthStart, member);
+        LoanArchive reloaded = LoanArchive.open(directory);
+        if (reloaded.size() != loanCount) {
+            failures.add("reloaded archive has " + reloaded.size() + " loans, expected " + loanCount);
+        }
+        check(failures, "reloaded archive", reloaded, reference, first, last, monthStart, member);
+        deleteAll(directory);
+
+        if (failures.isEmpty()) {
+            System.out.println("OK: every query matches the reference");
+        } else {
+            for (String failure : failures) {
+                System.out.println("FAIL: " + failure);
+            }
+            System.exit(1);
+        }
+    }
+
+    // Median of RUNS calls for the month and the year range
+    private static void report(String name, Runnable month, Runnable year) {
+        System.out.println(String.format("%-28s %10.2f %10.2f", name, medianMillis(month), medianMillis(year)));
+    }
+
+    private static double medianMillis(Runnable query) {
+        query.run(); // warm up
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            query.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2] / 1e6;
+    }
+
+    private static void check(List<String> failures, String name, LoanArchive archive,
+    List<LoanArchive.Record> reference, LocalDate first, LocalDate last, LocalDate monthStart, String member) {
+        for (LocalDate from : new LocalDate[] {first, monthStart}) {
+            List<LoanArchive.Record> range = new ArrayList<>();
+            for (LoanArchive.Record record : reference) {
+                if (!record.getReturnDate().isBefore(from) && !record.getReturnDate().isAfter(last)) {
+                    range.add(record);
+                }
+            }
+            String label = name + " from " + from;
+
+            Map<String, Long> counts = new HashMap<>();
+            for (LoanArchive.Record record : range) {
+                counts.merge(record.getItemId(), 1L, Long::sum);
+            }
+            List<Map.Entry<String, Long>> expectedTop = new ArrayList<>(counts.entrySet());
+            expectedTop.sort(Map.Entry.<String, Long>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+            expectedTop = expectedTop.subList(0, Math.min(10, expectedTop.size()));
+            if (!expectedTop.equals(archive.mostBorrowed(from, last, 10))) {
+                failures.add(label + ": mostBorrowed differs");
+            }
+
+            long[] late = new long[LibraryItem.ItemType.values().length];
+            long[] returns = new long[late.length];
+            for (LoanArchive.Record record : range) {
+                late[record.getItemType().ordinal()] += record.getDaysLate();
+                returns[record.getItemType().ordinal()]++;
+            }
+            Map<LibraryItem.ItemType, Double> expectedLate = new EnumMap<>(LibraryItem.ItemType.class);
+            for (LibraryItem.ItemType type : LibraryItem.ItemType.values()) {
+                if (returns[type.ordinal()] > 0) {
+                    expectedLate.put(type, (double) late[type.ordinal()] / returns[type.ordinal()]);
+                }
+            }
+            if (!expectedLate.equals(archive.averageDaysLate(from, last))) {
+                failures.add(label + ": averageDaysLate differs");
+            }
+
+            List<String> expectedHistory = new ArrayList<>();
+            for (LoanArchive.Record record : range) {
+                if (record.getMemberId().equals(member)) {
+                    expectedHistory.add(describe(record));
+                }
+            }
+            List<String> history = new ArrayList<>();
+            for (LoanArchive.Record record : archive.memberHistory(member, from, last)) {
+                history.add(describe(record));
+            }
+            expectedHistory.sort(Comparator.naturalOrder());
+            history.sort(Comparator.naturalOrder());
+            if (!expectedHistory.equals(history)) {
+                failures.add(label + ": memberHistory has " + history.size() + " loans, expected "
+                    + expectedHistory.size());
+            }
+        }
+    }
+
+    private static String describe(LoanArchive.Record record) {
+        return record.getReturnDate() + " " + record.getItemId() + " " + record.getItemType() + " "
+            + record.getMemberId() + " " + record.getBorrowDate() + " " + record.getDueDate();
+    }
+
+    private static void deleteAll(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
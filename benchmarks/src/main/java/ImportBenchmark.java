@@ -0,0 +1,114 @@
+/**
+ * ImportBenchmark - Bulk Import and Export Throughput
+ *
+ * Streams a synthetic catalog and member list out to CSV and JSON-lines
+ * files with LibraryTransfer, then imports each file into an empty Catalog
+ * or MemberRegistry and reports records per second. The generated items are
+ * never held in memory together, so export measures serialization and disk
+ * writes only.
+ *
+ * Usage:
+ *   java -Xmx8g -cp benchmarks/target/benchmarks.jar ImportBenchmark [items] [members] [parseThreads] [searchIndex]
+ *   (defaults: 10,000,000 items, 1,000,000 members, one thread per core,
+ *   no search index; pass "index" to import into a Catalog with a SearchIndex)
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.function.IntFunction;
+
+public class ImportBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int itemCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int memberCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        boolean searchIndex = args.length > 3 && args[3].equals("index");
+
+        LibraryTransfer transfer = new LibraryTransfer(threads);
+        Path dir = Files.createTempDirectory("library-import");
+        System.out.println(String.format("items=%d members=%d parseThreads=%d searchIndex=%b",
+                itemCount, memberCount, threads, searchIndex));
+        System.out.println(String.format("%-20s %10s %10s %12s %10s", "run", "records", "ms", "records/s", "MB"));
+        try {
+            for (String extension : new String[] { "csv", "jsonl" }) {
+                Path items = dir.resolve("items." + extension);
+                long start = System.nanoTime();
+                long written = transfer.exportItems(generate(itemCount, ImportBenchmark::item), items);
+                reportSince("export items." + extension, written, start, items);
+
+                System.gc();
+                Catalog catalog = searchIndex ? new Catalog(itemCount, new SearchIndex()) : new Catalog(itemCount);
+                LibraryTransfer.Report result = transfer.importItems(items, catalog);
+                check(result, itemCount);
+                report("import items." + extension, result.getImported(), result.getElapsedMillis(), items);
+                catalog = null;
+                Files.delete(items);
+
+                Path members = dir.resolve("members." + extension);
+                start = System.nanoTime();
+                written = transfer.exportMembers(generate(memberCount, ImportBenchmark::member), members);
+                reportSince("export members." + extension, written, start, members);
+
+                System.gc();
+                MemberRegistry registry = new MemberRegistry(memberCount);
+                result = transfer.importMembers(members, registry);
+                check(result, memberCount);
+                report("import members." + extension, result.getImported(), result.getElapsedMillis(), members);
+                Files.delete(members);
+            }
+        } finally {
+            Files.deleteIfExists(dir.resolve("items.csv"));
+            Files.deleteIfExists(dir.resolve("items.jsonl"));
+            Files.deleteIfExists(dir.resolve("members.csv"));
+            Files.deleteIfExists(dir.resolve("members.jsonl"));
+            Files.delete(dir);
+        }
+    }
+
+    private static LibraryItem item(int i) {
+        String id = "I" + i;
+        switch (i % 3) {
+            case 0:
+                return new Book("Title, Volume " + i, id, "Author " + (i % 5_000), String.format("978-%010d", i));
+            case 1:
+                return new Magazine("Magazine " + (i % 2_000), id, "Issue " + (1 + i % 52));
+            default:
+                return new DVD("Film \"" + i + "\"", id, "Director " + (i % 3_000));
+        }
+    }
+
+    private static Member member(int i) {
+        return new Member("M" + i, "Member " + i);
+    }
+
+    // Creates each record on demand instead of materializing the whole list
+    private static <T> Iterable<T> generate(int count, IntFunction<T> factory) {
+        return () -> new Iterator<T>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() { return next < count; }
+
+            @Override
+            public T next() { return factory.apply(next++); }
+        };
+    }
+
+    private static void check(LibraryTransfer.Report result, int expected) {
+        if (result.getImported() != expected || result.getRejected() != 0) {
+            throw new IllegalStateException("Import mismatch: " + result + " " + result.getErrors());
+        }
+    }
+
+    private static void reportSince(String run, long records, long startNanos, Path file) throws IOException {
+        report(run, records, (System.nanoTime() - startNanos) / 1_000_000, file);
+    }
+
+    private static void report(String run, long records, long millis, Path file) throws IOException {
+        System.out.println(String.format("%-20s %10d %10d %12.0f %10.1f", run, records, millis,
+                records * 1000.0 / Math.max(1, millis), Files.size(file) / (1024.0 * 1024.0)));
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * JournalBenchmark - LoanJournal Throughput and Recovery Time
+ *
+ * Phase 1 runs concurrent borrow/return transactions against a journaled
+ * CirculationEngine and reports durable transactions per second (group commit
+ * lets concurrent threads share each fsync).
+ *
+ * Phase 2 opens a large number of loans, journals a burst of returns and
+ * re-borrows (5% of the loans), snapshots, journals a second burst as the
+ * tail, and times a cold recovery into a fresh engine, including how much
+ * of it was spent in garbage collection (on a single core the serial
+ * collector's young pauses over the freshly restored loans can dominate the
+ * replay itself). It also reports the journal size before and after the
+ * snapshot compacted it.
+ *
+ * Usage:
+ *   java -Xmx8g -cp benchmarks/target/benchmarks.jar JournalBenchmark [threads] [seconds] [recoveryLoans]
+ */
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+public class JournalBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int recoveryLoans = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+
+        // Loan events are not being measured; drop them instead of writing to stdout
+        LoanEventLog.setGlobal(new LoanEventLog());
+
+        Path directory = Files.createTempDirectory("lms-journal");
+        try {
+            long transactions = measureThroughput(directory.resolve("throughput"), threads, seconds);
+            System.out.println(String.format("throughput: %d threads, %.0f durable tx/s",
+                    threads, transactions / (double) seconds));
+
+            long[] timings = measureRecovery(directory.resolve("recovery"), recoveryLoans, threads);
+            System.out.println(String.format("recovery: %d loans, snapshot %d ms, replay %d ms (%d ms in GC), %d cores",
+                    recoveryLoans, timings[0], timings[1], timings[2], Runtime.getRuntime().availableProcessors()));
+            System.out.println(String.format("journal: %d KB before the snapshot, %d KB after compaction,"
+                    + " %d KB tail at recovery", timings[3] / 1024, timings[4] / 1024, timings[5] / 1024));
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static long measureThroughput(Path directory, int threads, int seconds) throws Exception {
+        int itemCount = threads * 64;
+        CirculationEngine engine = newEngine(itemCount, threads);
+        AtomicLong transactions = new AtomicLong();
+
+        try (LoanJournal journal = LoanJournal.open(directory)) {
+            engine.setJournal(journal);
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+            Member[] members = engine.getMembers().toArray(new Member[0]);
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                Member member = members[t];
+                int firstItem = t * 64; // each thread owns its own items
+                workers[t] = new Thread(() -> {
+                        while (System.nanoTime() < deadline) {
+                            String itemId = "B" + (firstItem + ThreadLocalRandom.current().nextInt(64));
+                            if (engine.borrow(member, itemId) == CirculationService.BorrowResult.BORROWED) {
+                                transactions.incrementAndGet();
+                            }
+                            if (engine.returnItem(member, itemId) != null) {
+                                transactions.incrementAndGet();
+                            }
+                        }
+                    });
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+        return transactions.get();
+    }
+
+    private static long[] measureRecovery(Path directory, int loans, int threads) throws Exception {
+        int memberCount = Math.max(1, loans / 10);
+        CirculationEngine source = newEngine(loans, memberCount);
+        Member[] members = source.getMembers().toArray(new Member[0]);
+        try (LoanJournal journal = LoanJournal.open(directory)) {
+            // Loan i is item Bi lent to member i % members; opened unjournaled, then snapshotted
+            for (int i = 0; i < loans; i++) {
+                source.restoreLoan(new Loan(members[i % members.length], source.findItem("B" + i)));
+            }
+            journal.snapshot(source);
+            source.setJournal(journal);
+            churn(source, members, loans, threads, 0);
+            long journalBefore = journal.fileSize();
+
+            long start = System.nanoTime();
+            journal.snapshot(source);
+            long snapshotMillis = (System.nanoTime() - start) / 1_000_000;
+            long journalAfter = journal.fileSize();
+            churn(source, members, loans, threads, 1);
+            long tail = journal.fileSize();
+
+            CirculationEngine target = newEngine(loans, memberCount);
+            long gcBefore = gcMillis();
+            start = System.nanoTime();
+            journal.recover(target);
+            long replayMillis = (System.nanoTime() - start) / 1_000_000;
+            return new long[] {snapshotMillis, replayMillis, gcMillis() - gcBefore, journalBefore, journalAfter, tail};
+        }
+    }
+
+    // Returns and re-borrows a different 5% of the loans per round, split across the threads
+    private static void churn(CirculationEngine engine, Member[] members, int loans, int threads, int round)
+    throws InterruptedException {
+        int count = Math.max(1, loans / 20);
+        int offset = round * count;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers[t] = new Thread(() -> {
+                    for (int i = offset + thread; i < offset + count && i < loans; i += threads) {
+                        Member member = members[i % members.length];
+                        engine.returnItem(member, "B" + i);
+                        engine.borrow(member, "B" + i);
+                    }
+                });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static CirculationEngine newEngine(int items, int members) {
+        CirculationEngine engine = new CirculationEngine(new Catalog(items));
+        for (int i = 0; i < items; i++) {
+            engine.addItem(new Book("Benchmark Title", "B" + i, "Benchmark Author", "000-0000000000"));
+        }
+        for (int i = 0; i < members; i++) {
+            engine.addMember(new Member("M" + i, "Benchmark Member " + i));
+        }
+        return engine;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * LibraryWorkload - Synthetic Library for LibraryBenchmark
+ *
+ * This class builds a library of the requested size (a third each of books,
+ * magazines and DVDs, members with open loans of which a third are overdue)
+ * and runs one core operation per call for the JMH LibraryBenchmark.
+ */
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+
+import benchmarks.LibraryOperations;
+
+// LibraryWorkload class to run core operations for the benchmarks
+public class LibraryWorkload implements LibraryOperations {
+    private CirculationEngine engine;
+    private BatchFeeEngine batch;
+    private String[] ids;
+    private Member[] members;
+    private int firstFree;
+    private LocalDate today;
+
+    @Override
+    public void setUp(int itemCount, int memberCount, int loansPerMember) {
+        // Loan events are not being measured; drop them instead of writing to stdout
+        LoanEventLog.setGlobal(new LoanEventLog());
+
+        engine = new CirculationEngine(new Catalog(itemCount), new MemberRegistry(memberCount));
+        batch = new BatchFeeEngine();
+        ids = new String[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            ids[i] = "I" + i;
+            switch (i % 3) {
+                case 0:
+                    engine.addItem(new Book("Title " + i, ids[i], "Author " + (i % 1000), "978-" + i));
+                    break;
+                case 1:
+                    engine.addItem(new Magazine("Title " + i, ids[i], "Issue " + (i % 12)));
+                    break;
+                default:
+                    engine.addItem(new DVD("Title " + i, ids[i], "Director " + (i % 500)));
+            }
+        }
+        members = new Member[memberCount];
+        for (int i = 0; i < memberCount; i++) {
+            members[i] = new Member("A" + i, "Member " + i);
+            engine.addMember(members[i]);
+        }
+
+        // Open loans, a third of them overdue, using the first part of the catalog
+        int loaned = Math.min(itemCount / 2, memberCount * loansPerMember);
+        today = LocalDate.now();
+        for (int i = 0; i < loaned; i++) {
+            int daysAgo = i % 3 == 0 ? Loan.LOAN_PERIOD_DAYS + 1 + i % 30 : i % Loan.LOAN_PERIOD_DAYS;
+            engine.restoreLoan(new Loan(members[i % memberCount], engine.findItem(ids[i]), today.minusDays(daysAgo)));
+        }
+        firstFree = loaned;
+    }
+
+    @Override
+    public Object findItem() {
+        return engine.findItem(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Override
+    public Object findMember() {
+        return engine.findMember(members[ThreadLocalRandom.current().nextInt(members.length)].getMemberId());
+    }
+
+    @Override
+    public Object borrowReturn() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Member member = members[random.nextInt(members.length)];
+        String itemId = ids[firstFree + random.nextInt(ids.length - firstFree)];
+        engine.borrow(member, itemId);
+        return engine.returnItem(member, itemId);
+    }
+
+    @Override
+    public long dashboard() {
+        return engine.outstandingFeesCents(members[ThreadLocalRandom.current().nextInt(members.length)], today);
+    }
+
+    @Override
+    public long batchFees() throws IOException {
+        return batch.run(engine.getMembers(), today, null).getTotalFeesCents();
+    }
+
+    @Override
+    public int listItems() {
+        StringBuilder sb = new StringBuilder("All Items:\n\n");
+        for (LibraryItem item : engine.getCatalog().getItems()) {
+            sb.append(String.format("ID: %s - %s - Status: %s\n", item.getId(), item.getTitle(), item.getStatus()));
+        }
+        return sb.length();
+    }
+
+    @Override
+    public int listLoans() {
+        StringBuilder sb = new StringBuilder("Current Loans:\n\n");
+        for (Member member : engine.getMembers()) {
+            for (Loan loan : member.getLoans()) {
+                for (LibraryItem item : loan.getItems()) {
+                    sb.append(String.format("Member: %s - Item: %s (ID: %s)\n",
+                            member.getName(), item.getTitle(), item.getId()));
+                }
+            }
+        }
+        return sb.length();
+    }
+}
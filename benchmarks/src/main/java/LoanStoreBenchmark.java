@@ -0,0 +1,141 @@
+/**
+ * LoanStoreBenchmark - Loan Objects vs. CompactLoanStore Memory and GC Cost
+ *
+ * Loads the same loans twice, once as Loan objects in a list and once as
+ * rows in a CompactLoanStore, and for each layout reports:
+ * - retained heap per loan (heap used after a full GC, minus the baseline)
+ * - collections and total/average GC pause time while loading the loans,
+ *   running one outstanding-fee pass and a churn phase that keeps
+ *   allocating short-lived garbage while the loans stay live
+ *
+ * Members and items are shared pools in both runs, so the difference is the
+ * per-loan cost only. GC numbers come from the GarbageCollectorMXBeans.
+ *
+ * Usage:
+ *   java -Xmx8g -cp benchmarks/target/benchmarks.jar LoanStoreBenchmark [loans]      (default 10,000,000)
+ */
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LoanStoreBenchmark {
+    private static final int ITEMS = 100_000;
+    private static final int MEMBERS = 10_000;
+    private static final int CHURN_ALLOCATIONS = 50_000_000;
+
+    // Keeps the JIT from discarding results
+    private static volatile long sink;
+    private static volatile Object garbageSink;
+
+    public static void main(String[] args) {
+        int loanCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+
+        LibraryItem[] items = new LibraryItem[ITEMS];
+        for (int i = 0; i < ITEMS; i++) {
+            switch (i % 3) {
+                case 0:
+                    items[i] = new Book("Title " + i, "I" + i, "Author", "978-" + i);
+                    break;
+                case 1:
+                    items[i] = new Magazine("Title " + i, "I" + i, "Issue");
+                    break;
+                default:
+                    items[i] = new DVD("Title " + i, "I" + i, "Director");
+            }
+        }
+        Member[] members = new Member[MEMBERS];
+        for (int i = 0; i < MEMBERS; i++) {
+            members[i] = new Member("A" + i, "Member " + i);
+        }
+        LocalDate today = LocalDate.now();
+
+        System.out.println(String.format("loans=%d items=%d members=%d", loanCount, ITEMS, MEMBERS));
+        System.out.println(String.format("%-8s %12s %10s %12s %12s", "layout", "bytes/loan", "gcCount", "gcTotalMs", "gcAvgMs"));
+
+        // Loan objects: one Loan with its LocalDates and item list per loan
+        long baseline = usedHeapAfterGc();
+        long[] gcBefore = gcTotals();
+        List<Loan> loans = new ArrayList<>();
+        for (int i = 0; i < loanCount; i++) {
+            LocalDate borrowDate = today.minusDays(i % 60);
+            Loan loan = new Loan(members[i % MEMBERS], items[i % ITEMS], borrowDate);
+            if (i % 4 != 0) {
+                loan.setReturnDate(borrowDate.plusDays(i % 20));
+            }
+            loans.add(loan);
+        }
+        long total = 0;
+        for (Loan loan : loans) {
+            if (loan.getReturnDate() == null) {
+                long daysLate = today.toEpochDay() - loan.getDueDate().toEpochDay();
+                if (daysLate > 0) {
+                    total += loan.getItem().calculateLateFeeCents((int) daysLate);
+                }
+            }
+        }
+        sink = total;
+        churn();
+        long[] gcAfter = gcTotals();
+        long retained = usedHeapAfterGc() - baseline;
+        print("objects", retained, loanCount, gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+        sink = loans.size();
+        loans = null;
+
+        // CompactLoanStore: primitive columns, one row per loan
+        baseline = usedHeapAfterGc();
+        gcBefore = gcTotals();
+        CompactLoanStore store = new CompactLoanStore();
+        for (int i = 0; i < loanCount; i++) {
+            LibraryItem item = items[i % ITEMS];
+            int borrowDay = (int) today.toEpochDay() - i % 60;
+            int returnDay = i % 4 != 0 ? borrowDay + i % 20 : CompactLoanStore.NO_DAY;
+            if (returnDay == CompactLoanStore.NO_DAY) {
+                // The item's previous loan comes back before it goes out again
+                store.markReturned(item.getId(), LocalDate.ofEpochDay(borrowDay));
+            }
+            store.add(members[i % MEMBERS].getMemberId(), item.getId(), item.getType(),
+                borrowDay, borrowDay + Loan.LOAN_PERIOD_DAYS, returnDay);
+        }
+        sink = store.outstandingFeesCents(today);
+        churn();
+        gcAfter = gcTotals();
+        retained = usedHeapAfterGc() - baseline;
+        print("compact", retained, loanCount, gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+        sink = store.size();
+    }
+
+    // Short-lived allocations, as a busy server would produce
+    private static void churn() {
+        for (int i = 0; i < CHURN_ALLOCATIONS; i++) {
+            garbageSink = new long[4];
+        }
+    }
+
+    private static void print(String layout, long retained, int loanCount, long gcCount, long gcMillis) {
+        System.out.println(String.format("%-8s %12.1f %10d %12d %12.2f", layout,
+                (double) retained / loanCount, gcCount, gcMillis,
+                gcCount == 0 ? 0.0 : (double) gcMillis / gcCount));
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // { collection count, collection time in ms } over all collectors
+    private static long[] gcTotals() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[] { count, millis };
+    }
+}
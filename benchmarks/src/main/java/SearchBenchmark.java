@@ -0,0 +1,119 @@
+/**
+ * SearchBenchmark - SearchIndex Build Time and Query Latency
+ *
+ * Indexes a synthetic catalog (titles drawn from a Zipf-like vocabulary,
+ * authors and directors from name lists, unique ISBNs) and reports the
+ * p50/p99/max latency of each query shape:
+ * - common:  one very frequent title word
+ * - rare:    one infrequent title word
+ * - prefix:  the first three letters of a word
+ * - two:     two title words together
+ * - author:  an author's full name
+ * - isbn:    an exact ISBN with hyphens
+ *
+ * Items are indexed directly, without a Catalog, so the heap holds only the
+ * items and the index.
+ *
+ * Usage:
+ *   java -Xmx8g -cp benchmarks/target/benchmarks.jar SearchBenchmark [items] [queriesPerShape]
+ *   (defaults: 10,000,000 items, 20,000 queries)
+ */
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+public class SearchBenchmark {
+    private static final int VOCABULARY = 20_000;
+    private static final int NAMES = 2_000;
+
+    // Keeps the JIT from discarding results
+    private static volatile long sink;
+
+    public static void main(String[] args) {
+        int itemCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+        Random random = new Random(11);
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = word(random, 4 + random.nextInt(6));
+        }
+        String[] names = new String[NAMES];
+        for (int i = 0; i < NAMES; i++) {
+            names[i] = capitalize(word(random, 5)) + " " + capitalize(word(random, 7));
+        }
+
+        SearchIndex index = new SearchIndex();
+        long start = System.nanoTime();
+        for (int i = 0; i < itemCount; i++) {
+            StringBuilder title = new StringBuilder();
+            int length = 2 + random.nextInt(4);
+            for (int w = 0; w < length; w++) {
+                title.append(w == 0 ? "" : " ").append(capitalize(words[zipf(random)]));
+            }
+            String id = "I" + i;
+            switch (i % 3) {
+                case 0:
+                    index.add(new Book(title.toString(), id, names[random.nextInt(NAMES)], isbn(i)));
+                    break;
+                case 1:
+                    index.add(new Magazine(title.toString(), id, "Issue " + (1 + i % 52)));
+                    break;
+                default:
+                    index.add(new DVD(title.toString(), id, names[random.nextInt(NAMES)]));
+            }
+        }
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println(String.format("items=%d indexed in %d ms", itemCount, buildMillis));
+        System.out.println(String.format("%-8s %10s %10s %10s %8s", "query", "p50 us", "p99 us", "max us", "hits"));
+
+        report(index, "common", queries, q -> words[0]);
+        report(index, "rare", queries, q -> words[VOCABULARY / 2 + q % (VOCABULARY / 2)]);
+        report(index, "prefix", queries, q -> words[q % 200].substring(0, 3));
+        report(index, "two", queries, q -> words[q % 50] + " " + words[50 + q % 500]);
+        report(index, "author", queries, q -> names[q % NAMES]);
+        report(index, "isbn", queries, q -> isbn(3 * (q % (itemCount / 3))));
+    }
+
+    private static void report(SearchIndex index, String name, int queries, IntFunction<String> query) {
+        for (int q = 0; q < queries; q++) {
+            sink += index.search(query.apply(q), SearchIndex.DEFAULT_LIMIT).size();
+        }
+        long[] nanos = new long[queries];
+        long hits = 0;
+        for (int q = 0; q < queries; q++) {
+            String text = query.apply(q);
+            long start = System.nanoTime();
+            hits += index.search(text, SearchIndex.DEFAULT_LIMIT).size();
+            nanos[q] = System.nanoTime() - start;
+        }
+        sink += hits;
+        Arrays.sort(nanos);
+        System.out.println(String.format("%-8s %10.1f %10.1f %10.1f %8.1f", name,
+                nanos[queries / 2] / 1000.0, nanos[(int) (queries * 0.99)] / 1000.0,
+                nanos[queries - 1] / 1000.0, (double) hits / queries));
+    }
+
+    // Low indexes are much more frequent, like common words in real titles
+    private static int zipf(Random random) {
+        double u = random.nextDouble();
+        return (int) Math.min(VOCABULARY - 1, Math.pow(VOCABULARY, u * u) - 1);
+    }
+
+    private static String isbn(int i) {
+        return String.format("978-%010d", i);
+    }
+
+    private static String word(Random random, int length) {
+        char[] letters = new char[length];
+        for (int i = 0; i < length; i++) {
+            letters[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(letters);
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * ShardBenchmark - Multi-Branch Throughput over the Loopback Transport
+ *
+ * Spreads a catalog over 1, 2, 4 ... branches with BranchRouter and
+ * LoopbackTransport, then drives a random borrow/return/lookup mix from
+ * many client threads while one client keeps transferring items between
+ * branches. Reports aggregate operations per second for each branch count
+ * and checks afterwards that:
+ * - every item is on the shelf (or lent) at exactly one branch
+ * - each lent item has exactly one open loan across all branches
+ *
+ * Every branch runs its requests on its own thread, so throughput can only
+ * grow with the branch count up to the number of cores.
+ *
+ * Usage:
+ *   java -cp benchmarks/target/benchmarks.jar ShardBenchmark [items] [clients] [opsPerClient] [shardCounts...]
+ *   (defaults: 100,000 items, 32 clients, 20,000 ops, 1 2 4 8 branches)
+ *
+ * Exits with status 1 if a check fails.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ShardBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int itemCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int opsPerClient = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+        List<Integer> shardCounts = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            shardCounts.add(Integer.parseInt(args[i]));
+        }
+        if (shardCounts.isEmpty()) {
+            shardCounts.addAll(List.of(1, 2, 4, 8));
+        }
+        LoanEventLog.setGlobal(new LoanEventLog());
+
+        System.out.println(String.format("items=%d clients=%d opsPerClient=%d cores=%d",
+                itemCount, clients, opsPerClient, Runtime.getRuntime().availableProcessors()));
+        System.out.println(String.format("%-8s %12s %10s %10s", "branches", "ops/s", "transfers", "check"));
+        boolean ok = true;
+        for (int shards : shardCounts) {
+            ok &= run(shards, itemCount, clients, opsPerClient);
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean run(int shards, int itemCount, int clients, int opsPerClient)
+    throws InterruptedException {
+        try (LoopbackTransport transport = new LoopbackTransport(shards, itemCount / shards)) {
+            BranchRouter router = new BranchRouter(transport);
+            String[] ids = new String[itemCount];
+            for (int i = 0; i < itemCount; i++) {
+                ids[i] = "I" + i;
+                router.addItem(new Book("Branch Title " + i, ids[i], "Branch Author", null));
+            }
+            List<Member> members = new ArrayList<>();
+            for (int i = 0; i < clients * 4; i++) {
+                Member member = new Member("M" + i, "Member " + i);
+                router.addMember(member);
+                members.add(member);
+            }
+
+            AtomicLong transfers = new AtomicLong();
+            CountDownLatch done = new CountDownLatch(clients);
+            long start = System.nanoTime();
+            for (int c = 0; c < clients; c++) {
+                // Client 0 also moves items around; transfers of one item must not overlap
+                boolean transferring = c == 0;
+                new Thread(() -> {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        for (int op = 0; op < opsPerClient; op++) {
+                            Member member = members.get(random.nextInt(members.size()));
+                            String itemId = ids[random.nextInt(ids.length)];
+                            int choice = random.nextInt(100);
+                            if (transferring && choice < 5) {
+                                if (router.transfer(itemId, random.nextInt(shards))) {
+                                    transfers.incrementAndGet();
+                                }
+                            } else if (choice < 45) {
+                                router.borrow(member, itemId);
+                            } else if (choice < 90) {
+                                router.returnItem(member, itemId);
+                            } else {
+                                router.findItem(itemId);
+                            }
+                        }
+                        done.countDown();
+                    }).start();
+            }
+            done.await();
+            long elapsed = System.nanoTime() - start;
+
+            List<String> failures = verify(transport, router, ids, members);
+            System.out.println(String.format("%-8d %12.0f %10d %10s", shards,
+                    (double) clients * opsPerClient / (elapsed / 1e9), transfers.get(),
+                    failures.isEmpty() ? "OK" : "FAIL"));
+            for (String failure : failures) {
+                System.out.println("  " + failure);
+            }
+            return failures.isEmpty();
+        }
+    }
+
+    // Runs with all clients idle, reading the shards' engines directly
+    private static List<String> verify(LoopbackTransport transport, BranchRouter router, String[] ids,
+    List<Member> members) {
+        List<String> failures = new ArrayList<>();
+        for (String id : ids) {
+            int live = 0;
+            int loans = 0;
+            boolean borrowed = false;
+            for (int shard = 0; shard < transport.shardCount(); shard++) {
+                CirculationEngine engine = transport.getShard(shard).getEngine();
+                LibraryItem item = engine.findItem(id);
+                if (item != null && item.getStatus() != LibraryItem.ItemStatus.TRANSFERRED) {
+                    live++;
+                    if (shard != router.shardOfItem(id)) {
+                        failures.add(id + " is at branch " + shard + " but routed to " + router.shardOfItem(id));
+                    }
+                }
+                for (Member member : members) {
+                    Member visitor = engine.findMember(member.getMemberId());
+                    if (visitor != null && visitor.findLoan(id) != null) {
+                        loans++;
+                    }
+                }
+                borrowed |= item != null && item.getStatus() == LibraryItem.ItemStatus.BORROWED;
+            }
+            if (live != 1) {
+                failures.add(id + " is live at " + live + " branches");
+            }
+            if (loans != (borrowed ? 1 : 0)) {
+                failures.add(id + (borrowed ? " is BORROWED" : " is not lent") + " but has " + loans + " loans");
+            }
+            if (failures.size() > 10) {
+                break;
+            }
+        }
+        return failures;
+    }
+}
@@ -0,0 +1,73 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BatchFeeBenchmark - Scaling of the Batch Late-Fee Run
+ *
+ * Times one BatchFeeEngine pass over every member, in milliseconds, for
+ * growing member counts and pool sizes:
+ * - members: the work is linear, so ms / members should stay flat once the
+ *   members no longer fit in cache; run on a quiet multi-core machine with
+ *   enough iterations, since single runs over 1M members are noisy
+ * - parallelism: 1 runs on a one-thread pool, 0 on the common pool (every
+ *   core); on a machine with n cores the 0 runs should approach 1/n of the
+ *   1 runs
+ * - csv: with the CSV rows formatted and streamed to a discarding writer,
+ *   or the totals only
+ *
+ *   java -jar benchmarks/target/benchmarks.jar BatchFeeBenchmark -p members=100000,1000000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BatchFeeBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int members;
+
+    @Param("3")
+    int loansPerMember;
+
+    @Param({"1", "0"})
+    int parallelism;
+
+    @Param({"false", "true"})
+    boolean csv;
+
+    private BatchFeeOperations batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        batch = Workloads.load(BatchFeeOperations.class, "BatchFeeWorkload");
+        batch.setUp(members, loansPerMember, parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        batch.tearDown();
+    }
+
+    @Benchmark
+    public long run() throws IOException {
+        return batch.run(csv);
+    }
+}
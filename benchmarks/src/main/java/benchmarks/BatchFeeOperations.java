@@ -0,0 +1,22 @@
+package benchmarks;
+
+import java.io.IOException;
+
+/**
+ * BatchFeeOperations - Batch Fee Run Measured by BatchFeeBenchmark
+ *
+ * Implemented by the default-package BatchFeeWorkload, which builds members
+ * with open loans and runs one BatchFeeEngine pass per call.
+ */
+public interface BatchFeeOperations {
+
+    // Members with the given number of single-item loans each, a third of
+    // them overdue; parallelism 0 uses the common ForkJoinPool
+    void setUp(int members, int loansPerMember, int parallelism);
+
+    // Shuts down a dedicated pool, if setUp() created one
+    void tearDown();
+
+    // One BatchFeeEngine run over every member; csv streams the rows to a discarding writer
+    long run(boolean csv) throws IOException;
+}
@@ -0,0 +1,27 @@
+package benchmarks;
+
+/**
+ * FeeOperations - Fee Paths Compared by FeeBenchmark
+ *
+ * Implemented by the default-package FeeWorkload. Each call evaluates the
+ * late fee of every prepared (item, daysLate) input once and returns the
+ * total.
+ */
+public interface FeeOperations {
+
+    // Prepares the given number of random inputs and installs the named
+    // rate set ("published" or "fractional") as the FeeSchedule
+    void setUp(int inputs, String rates);
+
+    // Restores the default FeeSchedule
+    void tearDown();
+
+    // The original virtual calculateLateFee(int) per subclass, summed as double dollars
+    double legacyTotal();
+
+    // LibraryItem.calculateLateFeeCents(int) through the FeeSchedule, summed as long cents
+    long centsTotal();
+
+    // How far the double total is from the exact cents total, in cents
+    double driftCents();
+}
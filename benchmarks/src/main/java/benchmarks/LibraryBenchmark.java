@@ -0,0 +1,93 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * LibraryBenchmark - Regression Benchmarks for the Core Domain Operations
+ *
+ * Runs every core operation against a synthetic library and reports the
+ * average time per operation, so results can be compared between commits.
+ * The library size is a JMH parameter, e.g.
+ *   java -jar benchmarks/target/benchmarks.jar LibraryBenchmark -p items=1000000
+ *
+ * Operations: see LibraryOperations. The whole-library passes (batchFees,
+ * listItems, listLoans) are reported in milliseconds, the rest in
+ * nanoseconds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LibraryBenchmark {
+
+    @Param("100000")
+    int items;
+
+    @Param("10000")
+    int members;
+
+    @Param("5")
+    int loansPerMember;
+
+    private LibraryOperations library;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        library = Workloads.load(LibraryOperations.class, "LibraryWorkload");
+        library.setUp(items, members, loansPerMember);
+    }
+
+    @Benchmark
+    public Object findItem() {
+        return library.findItem();
+    }
+
+    @Benchmark
+    public Object findMember() {
+        return library.findMember();
+    }
+
+    @Benchmark
+    public Object borrowReturn() {
+        return library.borrowReturn();
+    }
+
+    @Benchmark
+    public long dashboard() {
+        return library.dashboard();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long batchFees() throws IOException {
+        return library.batchFees();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int listItems() {
+        return library.listItems();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int listLoans() {
+        return library.listLoans();
+    }
+}
@@ -0,0 +1,36 @@
+package benchmarks;
+
+import java.io.IOException;
+
+/**
+ * LibraryOperations - Core Operations Measured by LibraryBenchmark
+ *
+ * Implemented by the default-package LibraryWorkload, which builds a
+ * synthetic library and runs one operation per call.
+ */
+public interface LibraryOperations {
+
+    // Items, members and open loans per member of the synthetic library
+    void setUp(int items, int members, int loansPerMember);
+
+    // Random id lookup through CirculationService
+    Object findItem();
+
+    // Random member id lookup, as in the login dialog
+    Object findMember();
+
+    // Borrow then return one free item (Loan.onBorrow/onReturn)
+    Object borrowReturn();
+
+    // Outstanding fee total for one random member, as in showDashboard()
+    long dashboard();
+
+    // BatchFeeEngine pass over every member
+    long batchFees() throws IOException;
+
+    // Render every catalog row, as the old displayAllItems() text listing did
+    int listItems();
+
+    // Render every open loan, as the old displayCurrentLoans() text listing did
+    int listLoans();
+}
@@ -0,0 +1,23 @@
+package benchmarks;
+
+/**
+ * Workloads - Loads the Default-Package Workload Behind a Benchmark
+ *
+ * The application classes live in the default package, which a benchmark
+ * in a named package cannot reference. Each benchmark therefore declares
+ * an interface here and loads its one implementation, a default-package
+ * class next to it, by name.
+ */
+final class Workloads {
+
+    private Workloads() {
+    }
+
+    static <T> T load(Class<T> type, String className) {
+        try {
+            return type.cast(Class.forName(className).getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load workload " + className, e);
+        }
+    }
+}